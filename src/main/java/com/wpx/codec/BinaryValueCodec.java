@@ -0,0 +1,957 @@
+package com.wpx.codec;
+
+import java.lang.reflect.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * @Author: 不会飞的小鹏
+ * @Description: 紧凑的二进制编解码，首字节为格式标记 0xB1，首字节不是该标记的值按JSON解码，便于从JSON逐步迁移
+ * 整数为变长编码，字段名在一个值中只写一次，之后按序号引用；字段按名称匹配，增删字段不影响已保存的值
+ * 按声明的类型解码，不保存子类信息，不支持循环引用；对象需要无参构造器
+ * 值中包含无法按字段读写的对象（JDK内部类型如Duration、Locale，没有无参构造器的类型，声明为接口或抽象类的字段、集合元素和map值）时，整个值改用fallback编码
+ * 顶层值和顶层集合的元素可能按接口或抽象父类解码，实现了这类父类型的对象同样改用fallback
+ * 时间类型只有解码支持的类型（TEMPORAL_TYPES）按字符串编码，其他时间类型和声明为Temporal等父类型的字段改用fallback
+ * 可以直接从堆外的ByteBuffer解码，只为字符串和byte[]字段复制字节
+ */
+public class BinaryValueCodec implements ValueCodec {
+
+    /**
+     * 格式标记，不是JSON的合法首字节
+     */
+    static final byte MAGIC = (byte) 0xB1;
+
+    private static final int NULL = 0;
+
+    private static final int FALSE = 1;
+
+    private static final int TRUE = 2;
+
+    private static final int INT = 3;
+
+    private static final int FLOAT = 4;
+
+    private static final int DOUBLE = 5;
+
+    private static final int STRING = 6;
+
+    private static final int BYTES = 7;
+
+    private static final int ARRAY = 8;
+
+    private static final int MAP = 9;
+
+    private static final int OBJECT = 10;
+
+    /**
+     * 按字符串编码的时间类型，与 parseTemporal 支持的类型一致
+     */
+    private static final Set<Class<?>> TEMPORAL_TYPES = new HashSet<>(Arrays.asList(LocalDateTime.class,
+            LocalDate.class, LocalTime.class, Instant.class, OffsetDateTime.class, ZonedDateTime.class,
+            OffsetTime.class, Year.class, YearMonth.class, MonthDay.class, ZoneOffset.class));
+
+    /**
+     * 每个类的字段和构造器，首次编解码时解析
+     */
+    private static final ClassValue<ClassInfo> CLASS_INFOS = new ClassValue<ClassInfo>() {
+        @Override
+        protected ClassInfo computeValue(Class<?> type) {
+            return new ClassInfo(type);
+        }
+    };
+
+    /**
+     * 首字节不是格式标记时使用的编解码器
+     */
+    private final ValueCodec fallback;
+
+    public BinaryValueCodec() {
+        this(JsonValueCodec.INSTANCE);
+    }
+
+    /**
+     * @param fallback  解码首字节不是格式标记的值
+     */
+    public BinaryValueCodec(ValueCodec fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        Output output = new Output();
+        output.writeByte(MAGIC);
+        try {
+            output.writeValue(value);
+        } catch (UnsupportedTypeException e) {
+            return fallback.encode(value);
+        }
+        return output.toByteArray();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T decode(byte[] bytes, Class<T> target) {
+        if (bytes[0] != MAGIC) {
+            return fallback.decode(bytes, target);
+        }
+        try {
+            return (T) new Input(ByteBuffer.wrap(bytes)).readValue(target);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("truncated binary value", e);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> List<T> decodeList(byte[] bytes, Class<T> target) {
+        if (bytes[0] != MAGIC) {
+            return fallback.decodeList(bytes, target);
+        }
+        return readList(new Input(ByteBuffer.wrap(bytes)), target);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T decode(ByteBuffer buffer, Class<T> target) {
+        if (buffer.get(buffer.position()) != MAGIC) {
+            return fallback.decode(buffer, target);
+        }
+        try {
+            return (T) new Input(buffer).readValue(target);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("truncated binary value", e);
+        }
+    }
+
+    @Override
+    public <T> List<T> decodeList(ByteBuffer buffer, Class<T> target) {
+        if (buffer.get(buffer.position()) != MAGIC) {
+            return fallback.decodeList(buffer, target);
+        }
+        return readList(new Input(buffer), target);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> readList(Input input, Class<T> target) {
+        try {
+            int tag = input.readTag();
+            return tag == NULL ? null : (List<T>) input.readCollection(tag, new ArrayList<>(), target);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("truncated binary value", e);
+        }
+    }
+
+    /**
+     * 类型对应的Class，无法确定时为Object
+     *
+     * @param type
+     */
+    private static Class<?> rawClass(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return rawClass(((ParameterizedType) type).getRawType());
+        }
+        if (type instanceof GenericArrayType) {
+            return Array.newInstance(rawClass(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+        }
+        if (type instanceof WildcardType) {
+            return rawClass(((WildcardType) type).getUpperBounds()[0]);
+        }
+        if (type instanceof TypeVariable) {
+            return rawClass(((TypeVariable<?>) type).getBounds()[0]);
+        }
+        return Object.class;
+    }
+
+    /**
+     * 泛型参数，没有泛型信息时为Object
+     *
+     * @param type
+     * @param index
+     */
+    private static Type typeArgument(Type type, int index) {
+        if (type instanceof ParameterizedType) {
+            Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+            if (index < arguments.length) {
+                return arguments[index];
+            }
+        }
+        return Object.class;
+    }
+
+    /**
+     * 数组元素的类型，声明的类型不是数组时为Object
+     *
+     * @param type
+     */
+    private static Type componentType(Type type) {
+        if (type instanceof GenericArrayType) {
+            return ((GenericArrayType) type).getGenericComponentType();
+        }
+        Class<?> raw = rawClass(type);
+        return raw.isArray() ? raw.getComponentType() : Object.class;
+    }
+
+    /**
+     * 编码输出
+     */
+    private static class Output {
+
+        private byte[] buffer = new byte[64];
+
+        private int position;
+
+        /**
+         * 已写入的字段名和序号
+         */
+        private final Map<String, Integer> names = new HashMap<>();
+
+        void writeValue(Object value) {
+            writeValue(value, null);
+        }
+
+        /**
+         * @param value
+         * @param declared  声明的类型（包含泛型参数），解码时按该类型创建对象；为null时是顶层值，解码的类型由调用方指定
+         */
+        private void writeValue(Object value, Type declared) {
+            if (value == null) {
+                writeByte(NULL);
+            } else if (value instanceof String) {
+                writeByte(STRING);
+                writeString((String) value);
+            } else if (value instanceof Integer || value instanceof Long || value instanceof Short
+                    || value instanceof Byte) {
+                writeByte(INT);
+                writeVarLong(zigZag(((Number) value).longValue()));
+            } else if (value instanceof Boolean) {
+                writeByte((Boolean) value ? TRUE : FALSE);
+            } else if (value instanceof Double) {
+                writeByte(DOUBLE);
+                writeLong(Double.doubleToLongBits((Double) value));
+            } else if (value instanceof Float) {
+                writeByte(FLOAT);
+                writeInt(Float.floatToIntBits((Float) value));
+            } else if (value instanceof Character) {
+                writeByte(INT);
+                writeVarLong(zigZag((Character) value));
+            } else if (value instanceof Enum) {
+                writeByte(STRING);
+                writeString(((Enum<?>) value).name());
+            } else if (value instanceof BigDecimal || value instanceof BigInteger || value instanceof UUID) {
+                writeByte(STRING);
+                writeString(value.toString());
+            } else if (TEMPORAL_TYPES.contains(value.getClass())) {
+                // 声明为Temporal等父类型时无法确定解码的类型
+                Class<?> declaredClass = declared == null ? Object.class : rawClass(declared);
+                if (declaredClass != Object.class && declaredClass != value.getClass()) {
+                    throw new UnsupportedTypeException(declaredClass);
+                }
+                writeByte(STRING);
+                writeString(value.toString());
+            } else if (value instanceof Number) {
+                writeByte(DOUBLE);
+                writeLong(Double.doubleToLongBits(((Number) value).doubleValue()));
+            } else if (value instanceof Date) {
+                writeByte(INT);
+                writeVarLong(zigZag(((Date) value).getTime()));
+            } else if (value instanceof byte[]) {
+                byte[] bytes = (byte[]) value;
+                writeByte(BYTES);
+                writeVarLong(bytes.length);
+                writeBytes(bytes, bytes.length);
+            } else if (value instanceof Collection) {
+                Collection<?> collection = (Collection<?>) value;
+                writeByte(ARRAY);
+                writeVarLong(collection.size());
+                Type elementType = declared == null ? null : typeArgument(declared, 0);
+                for (Object element : collection) {
+                    writeValue(element, elementType);
+                }
+            } else if (value.getClass().isArray()) {
+                int length = Array.getLength(value);
+                writeByte(ARRAY);
+                writeVarLong(length);
+                Type componentType = declared == null ? null : componentType(declared);
+                for (int i = 0; i < length; i++) {
+                    writeValue(Array.get(value, i), componentType);
+                }
+            } else if (value instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) value;
+                writeByte(MAP);
+                writeVarLong(map.size());
+                Type keyType = declared == null ? null : typeArgument(declared, 0);
+                Type valueType = declared == null ? null : typeArgument(declared, 1);
+                map.forEach((key, entryValue) -> {
+                    writeValue(key, keyType);
+                    writeValue(entryValue, valueType);
+                });
+            } else {
+                writeObject(value, declared);
+            }
+        }
+
+        /**
+         * 写入对象的非null字段
+         * 对象或声明的类型不能按字段解码时抛出UnsupportedTypeException，由encode改用fallback编码
+         *
+         * @param value
+         * @param declared  声明的类型，为Object时解码为map，为null时按调用方指定的类型解码
+         */
+        private void writeObject(Object value, Type declared) {
+            ClassInfo info = CLASS_INFOS.get(value.getClass());
+            if (!info.supported) {
+                throw new UnsupportedTypeException(value.getClass());
+            }
+            if (declared == null) {
+                if (info.polymorphic) {
+                    throw new UnsupportedTypeException(value.getClass());
+                }
+            } else {
+                Class<?> declaredClass = rawClass(declared);
+                if (declaredClass != Object.class && declaredClass != value.getClass()
+                        && !CLASS_INFOS.get(declaredClass).supported) {
+                    throw new UnsupportedTypeException(declaredClass);
+                }
+            }
+            FieldInfo[] fields = info.fields;
+            Object[] values = new Object[fields.length];
+            int count = 0;
+            for (int i = 0; i < fields.length; i++) {
+                values[i] = fields[i].get(value);
+                if (values[i] != null) {
+                    count++;
+                }
+            }
+            writeByte(OBJECT);
+            writeVarLong(count);
+            for (int i = 0; i < fields.length; i++) {
+                if (values[i] != null) {
+                    writeName(fields[i].name);
+                    writeValue(values[i], fields[i].type);
+                }
+            }
+        }
+
+        /**
+         * 字段名首次出现时写入0和名称，之后写入序号+1
+         *
+         * @param name
+         */
+        private void writeName(String name) {
+            Integer index = names.get(name);
+            if (index != null) {
+                writeVarLong(index + 1);
+                return;
+            }
+            writeVarLong(0);
+            writeString(name);
+            names.put(name, names.size());
+        }
+
+        private void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            writeBytes(bytes, bytes.length);
+        }
+
+        private static long zigZag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+
+        private void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeInt(int value) {
+            ensureCapacity(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void writeLong(long value) {
+            ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeBytes(byte[] bytes, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, 0, buffer, position, length);
+            position += length;
+        }
+
+        private void ensureCapacity(int length) {
+            if (position + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+    }
+
+    /**
+     * 解码输入，跳过格式标记
+     */
+    private static class Input {
+
+        /**
+         * 只使用绝对位置读取，不改变缓冲区的position
+         */
+        private final ByteBuffer buffer;
+
+        private int position;
+
+        /**
+         * 已读取的字段名，按序号引用
+         */
+        private final List<String> names = new ArrayList<>();
+
+        Input(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.position = buffer.position() + 1;
+        }
+
+        Object readValue(Type type) {
+            int tag = readTag();
+            return tag == NULL ? null : read(tag, type);
+        }
+
+        /**
+         * 按声明的类型读取一个非null的值
+         *
+         * @param tag
+         * @param type
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Object read(int tag, Type type) {
+            Class<?> raw = rawClass(type);
+            if (raw == Object.class) {
+                return readAny(tag);
+            }
+            if (raw == String.class) {
+                return tag == STRING ? readString() : String.valueOf(readAny(tag));
+            }
+            if (raw == boolean.class || raw == Boolean.class) {
+                if (tag != TRUE && tag != FALSE) {
+                    throw mismatch(tag, type);
+                }
+                return tag == TRUE;
+            }
+            if (raw.isPrimitive() || Number.class.isAssignableFrom(raw) || raw == Character.class) {
+                return readNumber(tag, raw);
+            }
+            if (raw.isEnum()) {
+                return Enum.valueOf((Class<Enum>) raw, readString(tag, type));
+            }
+            if (raw == UUID.class) {
+                return UUID.fromString(readString(tag, type));
+            }
+            if (Date.class.isAssignableFrom(raw)) {
+                return readDate(tag, raw);
+            }
+            if (TEMPORAL_TYPES.contains(raw)) {
+                return parseTemporal(readString(tag, type), raw);
+            }
+            if (raw == byte[].class) {
+                if (tag != BYTES) {
+                    throw mismatch(tag, type);
+                }
+                return readBytes(readLength());
+            }
+            if (raw.isArray()) {
+                return readArray(tag, type, raw);
+            }
+            if (Collection.class.isAssignableFrom(raw)) {
+                return readCollection(tag, newCollection(raw), typeArgument(type, 0));
+            }
+            if (Map.class.isAssignableFrom(raw)) {
+                return readMap(tag, newMap(raw), typeArgument(type, 0), typeArgument(type, 1));
+            }
+            return readObject(tag, raw);
+        }
+
+        /**
+         * 没有类型信息时读取，对象和map读取为LinkedHashMap，整数读取为Long
+         *
+         * @param tag
+         */
+        private Object readAny(int tag) {
+            switch (tag) {
+                case NULL:
+                    return null;
+                case FALSE:
+                    return Boolean.FALSE;
+                case TRUE:
+                    return Boolean.TRUE;
+                case INT:
+                    return readZigZag();
+                case FLOAT:
+                    return Float.intBitsToFloat(readInt());
+                case DOUBLE:
+                    return Double.longBitsToDouble(readLong());
+                case STRING:
+                    return readString();
+                case BYTES:
+                    return read(tag, byte[].class);
+                case ARRAY:
+                    return readCollection(tag, new ArrayList<>(), Object.class);
+                case MAP:
+                case OBJECT:
+                    return readMap(tag, new LinkedHashMap<>(), Object.class, Object.class);
+                default:
+                    throw new IllegalArgumentException("unknown binary value tag " + tag);
+            }
+        }
+
+        private Object readNumber(int tag, Class<?> raw) {
+            Number number;
+            if (tag == INT) {
+                number = readZigZag();
+            } else if (tag == DOUBLE) {
+                number = Double.longBitsToDouble(readLong());
+            } else if (tag == FLOAT) {
+                number = Float.intBitsToFloat(readInt());
+            } else if (tag == STRING) {
+                number = new BigDecimal(readString());
+            } else {
+                throw mismatch(tag, raw);
+            }
+            if (raw == int.class || raw == Integer.class) {
+                return number.intValue();
+            }
+            if (raw == long.class || raw == Long.class) {
+                return number.longValue();
+            }
+            if (raw == double.class || raw == Double.class) {
+                return number.doubleValue();
+            }
+            if (raw == float.class || raw == Float.class) {
+                return number.floatValue();
+            }
+            if (raw == short.class || raw == Short.class) {
+                return number.shortValue();
+            }
+            if (raw == byte.class || raw == Byte.class) {
+                return number.byteValue();
+            }
+            if (raw == char.class || raw == Character.class) {
+                return (char) number.intValue();
+            }
+            if (raw == BigDecimal.class) {
+                return number instanceof BigDecimal ? number
+                        : tag == INT ? BigDecimal.valueOf(number.longValue()) : new BigDecimal(number.toString());
+            }
+            if (raw == BigInteger.class) {
+                return number instanceof BigDecimal ? ((BigDecimal) number).toBigInteger()
+                        : BigInteger.valueOf(number.longValue());
+            }
+            return number;
+        }
+
+        private Object readDate(int tag, Class<?> raw) {
+            if (tag != INT) {
+                throw mismatch(tag, raw);
+            }
+            long time = readZigZag();
+            if (raw == Date.class) {
+                return new Date(time);
+            }
+            try {
+                // java.sql.Date、Time、Timestamp
+                return raw.getConstructor(long.class).newInstance(time);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("unsupported date type " + raw.getName(), e);
+            }
+        }
+
+        private Object parseTemporal(String text, Class<?> raw) {
+            if (raw == LocalDateTime.class) {
+                return LocalDateTime.parse(text);
+            }
+            if (raw == LocalDate.class) {
+                return LocalDate.parse(text);
+            }
+            if (raw == LocalTime.class) {
+                return LocalTime.parse(text);
+            }
+            if (raw == Instant.class) {
+                return Instant.parse(text);
+            }
+            if (raw == OffsetDateTime.class) {
+                return OffsetDateTime.parse(text);
+            }
+            if (raw == ZonedDateTime.class) {
+                return ZonedDateTime.parse(text);
+            }
+            if (raw == OffsetTime.class) {
+                return OffsetTime.parse(text);
+            }
+            if (raw == Year.class) {
+                return Year.of(Integer.parseInt(text));
+            }
+            if (raw == YearMonth.class) {
+                return YearMonth.parse(text);
+            }
+            if (raw == MonthDay.class) {
+                return MonthDay.parse(text);
+            }
+            if (raw == ZoneOffset.class) {
+                return ZoneOffset.of(text);
+            }
+            throw new IllegalArgumentException("unsupported temporal type " + raw.getName());
+        }
+
+        private Object readArray(int tag, Type type, Class<?> raw) {
+            if (tag != ARRAY) {
+                throw mismatch(tag, type);
+            }
+            Type componentType = componentType(type);
+            Class<?> componentClass = rawClass(componentType);
+            int length = readLength();
+            Object array = Array.newInstance(componentClass, length);
+            for (int i = 0; i < length; i++) {
+                Object element = readValue(componentType);
+                if (element != null || !componentClass.isPrimitive()) {
+                    Array.set(array, i, element);
+                }
+            }
+            return array;
+        }
+
+        Collection<Object> readCollection(int tag, Collection<Object> collection, Type elementType) {
+            if (tag != ARRAY) {
+                throw mismatch(tag, elementType);
+            }
+            int size = readLength();
+            for (int i = 0; i < size; i++) {
+                collection.add(readValue(elementType));
+            }
+            return collection;
+        }
+
+        /**
+         * 读取map，对象按字段名和值读取
+         */
+        private Map<Object, Object> readMap(int tag, Map<Object, Object> map, Type keyType, Type valueType) {
+            int size = readLength();
+            if (tag == OBJECT) {
+                for (int i = 0; i < size; i++) {
+                    map.put(readName(), readValue(valueType));
+                }
+            } else if (tag == MAP) {
+                for (int i = 0; i < size; i++) {
+                    map.put(readValue(keyType), readValue(valueType));
+                }
+            } else {
+                throw mismatch(tag, valueType);
+            }
+            return map;
+        }
+
+        /**
+         * 按字段名读取对象，没有对应字段的值被跳过
+         */
+        private Object readObject(int tag, Class<?> raw) {
+            if (tag != OBJECT) {
+                throw mismatch(tag, raw);
+            }
+            ClassInfo info = CLASS_INFOS.get(raw);
+            Object instance = info.newInstance();
+            int count = readLength();
+            for (int i = 0; i < count; i++) {
+                FieldInfo field = info.fieldMap.get(readName());
+                int valueTag = readTag();
+                if (field == null) {
+                    readAny(valueTag);
+                } else if (valueTag != NULL) {
+                    field.set(instance, read(valueTag, field.type));
+                }
+            }
+            return instance;
+        }
+
+        private String readName() {
+            int reference = readLength();
+            if (reference > 0) {
+                return names.get(reference - 1);
+            }
+            String name = readString();
+            names.add(name);
+            return name;
+        }
+
+        private String readString(int tag, Type type) {
+            if (tag != STRING) {
+                throw mismatch(tag, type);
+            }
+            return readString();
+        }
+
+        private String readString() {
+            int length = readLength();
+            if (buffer.hasArray()) {
+                checkRemaining(length);
+                String value = new String(buffer.array(), buffer.arrayOffset() + position, length,
+                        StandardCharsets.UTF_8);
+                position += length;
+                return value;
+            }
+            return new String(readBytes(length), StandardCharsets.UTF_8);
+        }
+
+        private byte[] readBytes(int length) {
+            checkRemaining(length);
+            byte[] bytes = new byte[length];
+            ByteBuffer source = buffer.duplicate();
+            source.position(position);
+            source.get(bytes);
+            position += length;
+            return bytes;
+        }
+
+        private void checkRemaining(int length) {
+            if (length > buffer.limit() - position) {
+                throw new IndexOutOfBoundsException("binary value has less than " + length + " bytes left");
+            }
+        }
+
+        int readTag() {
+            return buffer.get(position++) & 0xFF;
+        }
+
+        private int readLength() {
+            long length = readVarLong();
+            if (length < 0 || length > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("invalid binary value length " + length);
+            }
+            return (int) length;
+        }
+
+        private long readZigZag() {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private long readVarLong() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer.get(position++);
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("malformed binary varint");
+        }
+
+        private int readInt() {
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                value = (value << 8) | (buffer.get(position++) & 0xFF);
+            }
+            return value;
+        }
+
+        private long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (buffer.get(position++) & 0xFF);
+            }
+            return value;
+        }
+
+        private static IllegalArgumentException mismatch(int tag, Type type) {
+            return new IllegalArgumentException("cannot decode binary value tag " + tag + " as " + type.getTypeName());
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Collection<Object> newCollection(Class<?> raw) {
+            if (!raw.isInterface() && !Modifier.isAbstract(raw.getModifiers())) {
+                return (Collection<Object>) CLASS_INFOS.get(raw).newInstance();
+            }
+            if (SortedSet.class.isAssignableFrom(raw)) {
+                return new TreeSet<>();
+            }
+            if (Set.class.isAssignableFrom(raw)) {
+                return new LinkedHashSet<>();
+            }
+            if (Queue.class.isAssignableFrom(raw)) {
+                return new ArrayDeque<>();
+            }
+            return new ArrayList<>();
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Map<Object, Object> newMap(Class<?> raw) {
+            if (!raw.isInterface() && !Modifier.isAbstract(raw.getModifiers())) {
+                return (Map<Object, Object>) CLASS_INFOS.get(raw).newInstance();
+            }
+            if (SortedMap.class.isAssignableFrom(raw)) {
+                return new TreeMap<>();
+            }
+            if (ConcurrentMap.class.isAssignableFrom(raw)) {
+                return new ConcurrentHashMap<>();
+            }
+            return new LinkedHashMap<>();
+        }
+
+    }
+
+    /**
+     * 类的无参构造器和所有实例字段，包含父类字段，子类字段覆盖父类同名字段
+     */
+    private static class ClassInfo {
+
+        /**
+         * 无参构造器由ClassMetadata解析，与RedisBaseService共用
+         */
+        private final ClassMetadata<?> metadata;
+
+        private final FieldInfo[] fields;
+
+        private final Map<String, FieldInfo> fieldMap = new HashMap<>();
+
+        /**
+         * 是否可以按字段编码并解码：不是JDK的类型，有无参构造器，所有字段都可以访问
+         */
+        private final boolean supported;
+
+        /**
+         * 是否有非JDK的接口或抽象父类，作为顶层值时调用方可能按父类型解码
+         */
+        private final boolean polymorphic;
+
+        ClassInfo(Class<?> type) {
+            this.metadata = ClassMetadata.of(type);
+            boolean accessible = !isJdkType(type) && metadata.isInstantiable();
+            List<FieldInfo> fieldList = new ArrayList<>();
+            for (Class<?> current = type; accessible && current != null && current != Object.class;
+                 current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()
+                            || fieldMap.containsKey(field.getName())) {
+                        continue;
+                    }
+                    try {
+                        field.setAccessible(true);
+                    } catch (RuntimeException e) {
+                        // 模块未开放的字段
+                        accessible = false;
+                        break;
+                    }
+                    FieldInfo fieldInfo = new FieldInfo(field);
+                    fieldMap.put(fieldInfo.name, fieldInfo);
+                    fieldList.add(fieldInfo);
+                }
+            }
+            this.supported = accessible;
+            this.polymorphic = hasPolymorphicSupertype(type);
+            this.fields = accessible ? fieldList.toArray(new FieldInfo[0]) : new FieldInfo[0];
+            if (!accessible) {
+                fieldMap.clear();
+            }
+        }
+
+        /**
+         * JDK的类型按内部字段编码无法保证能解码，也可能无法访问
+         *
+         * @param type
+         */
+        private static boolean isJdkType(Class<?> type) {
+            String name = type.getName();
+            return type.getClassLoader() == null || name.startsWith("java.") || name.startsWith("javax.")
+                    || name.startsWith("jdk.") || name.startsWith("sun.") || name.startsWith("com.sun.");
+        }
+
+        private static boolean hasPolymorphicSupertype(Class<?> type) {
+            for (Class<?> current = type; current != null && current != Object.class;
+                 current = current.getSuperclass()) {
+                if (current != type && Modifier.isAbstract(current.getModifiers()) && !isJdkType(current)) {
+                    return true;
+                }
+                for (Class<?> implemented : current.getInterfaces()) {
+                    if (!isJdkType(implemented) || hasPolymorphicSupertype(implemented)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        Object newInstance() {
+            return metadata.newInstance();
+        }
+
+    }
+
+    /**
+     * 值中包含不能按字段编解码的类型
+     */
+    private static class UnsupportedTypeException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedTypeException(Class<?> type) {
+            super(type.getName() + " cannot be encoded field by field", null, false, false);
+        }
+
+    }
+
+    private static class FieldInfo {
+
+        private final Field field;
+
+        private final String name;
+
+        private final Type type;
+
+        FieldInfo(Field field) {
+            this.field = field;
+            this.name = field.getName();
+            this.type = field.getGenericType();
+        }
+
+        Object get(Object instance) {
+            try {
+                return field.get(instance);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void set(Object instance, Object value) {
+            try {
+                field.set(instance, value);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+    }
+
+}
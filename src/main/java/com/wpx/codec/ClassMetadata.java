@@ -0,0 +1,108 @@
+package com.wpx.codec;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+
+/**
+ * @Author: 不会飞的小鹏
+ * @Description: 每个类的元数据，首次使用时解析并缓存，随类一起回收
+ * 通过MethodHandle调用无参构造器，代替每次反射调用 Class.newInstance；可以提供一个共享的空对象
+ */
+public final class ClassMetadata<T> {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final ClassValue<ClassMetadata<?>> METADATA = new ClassValue<ClassMetadata<?>>() {
+        @Override
+        protected ClassMetadata<?> computeValue(Class<?> type) {
+            return new ClassMetadata<>(type);
+        }
+    };
+
+    private final Class<T> type;
+
+    /**
+     * 无参构造器，类型为 ()Object；没有可用的无参构造器时为null
+     */
+    private final MethodHandle constructor;
+
+    /**
+     * 共享的空对象，首次使用时创建
+     */
+    private volatile T emptyInstance;
+
+    private ClassMetadata(Class<T> type) {
+        this.type = type;
+        this.constructor = findConstructor(type);
+    }
+
+    /**
+     * 获取类的元数据
+     *
+     * @param type
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ClassMetadata<T> of(Class<T> type) {
+        return (ClassMetadata<T>) METADATA.get(type);
+    }
+
+    private static MethodHandle findConstructor(Class<?> type) {
+        if (type.isInterface() || type.isPrimitive() || type.isArray() || Modifier.isAbstract(type.getModifiers())) {
+            return null;
+        }
+        try {
+            Constructor<?> noArgConstructor = type.getDeclaredConstructor();
+            if (!Modifier.isPublic(type.getModifiers()) || !Modifier.isPublic(noArgConstructor.getModifiers())) {
+                noArgConstructor.setAccessible(true);
+            }
+            return LOOKUP.unreflectConstructor(noArgConstructor).asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException | RuntimeException e) {
+            // 没有无参构造器或不可访问，创建对象时报错
+            return null;
+        }
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * 是否可以通过无参构造器创建对象
+     */
+    public boolean isInstantiable() {
+        return constructor != null;
+    }
+
+    /**
+     * 通过无参构造器创建对象
+     */
+    @SuppressWarnings("unchecked")
+    public T newInstance() {
+        if (constructor == null) {
+            throw new IllegalArgumentException(type.getName() + " has no accessible no-arg constructor");
+        }
+        try {
+            return (T) (Object) constructor.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("failed to instantiate " + type.getName(), e);
+        }
+    }
+
+    /**
+     * 共享的空对象，所有调用方拿到同一个实例，不能修改
+     */
+    public T emptyInstance() {
+        T instance = emptyInstance;
+        if (instance == null) {
+            instance = newInstance();
+            emptyInstance = instance;
+        }
+        return instance;
+    }
+
+}
@@ -0,0 +1,381 @@
+package com.wpx.codec;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * @Author: 不会飞的小鹏
+ * @Description: 压缩装饰器，编码后的字节不小于阈值时使用JDK Deflater压缩，并以标记字节开头，解码时根据首字节自动识别
+ * 首字节不是压缩标记的值直接交给被装饰的编解码器；阈值为 Integer.MAX_VALUE 时只解压不压缩，关闭压缩后已压缩的值仍能读取
+ * 关闭压缩时也需要保留原来的字典，否则使用字典压缩的值无法读取
+ * 格式：标记字节 0xC1（无字典）或 0xC2（预置字典），4字节原始长度，使用字典时再跟4字节字典的Adler32，之后为raw deflate数据
+ */
+public class CompressingValueCodec implements ValueCodec {
+
+    /**
+     * 无字典的压缩标记，不是JSON和二进制格式的合法首字节
+     */
+    static final byte DEFLATE = (byte) 0xC1;
+
+    /**
+     * 使用预置字典的压缩标记
+     */
+    static final byte DEFLATE_DICTIONARY = (byte) 0xC2;
+
+    /**
+     * deflate的窗口为32KB，超出部分的字典不会被使用
+     */
+    public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+    /**
+     * 训练字典时统计的片段长度
+     */
+    private static final int SEGMENT_LENGTH = 12;
+
+    /**
+     * 判断内容是否已选入字典的片段长度，短于 SEGMENT_LENGTH，错位的相似片段也视为重复
+     */
+    private static final int COVER_LENGTH = 8;
+
+    /**
+     * deflate的最大压缩率约为1032:1，原始长度超过压缩数据长度的该倍数时视为无效
+     */
+    private static final int MAX_COMPRESSION_RATIO = 1032;
+
+    private final ValueCodec delegate;
+
+    /**
+     * 编码后的字节数不小于该值时压缩
+     */
+    private final int threshold;
+
+    private final byte[] dictionary;
+
+    private final int dictionaryId;
+
+    /**
+     * Deflater和Inflater持有本地内存，按线程复用，避免每次压缩都重新分配
+     */
+    private final ThreadLocal<Deflater> deflaters;
+
+    private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    /**
+     * @param delegate  被装饰的编解码器
+     * @param threshold  编码后的字节数不小于该值时压缩
+     * @param level  压缩级别 0-9，-1为默认级别
+     */
+    public CompressingValueCodec(ValueCodec delegate, int threshold, int level) {
+        this(delegate, threshold, level, null);
+    }
+
+    /**
+     * @param delegate  被装饰的编解码器
+     * @param threshold  编码后的字节数不小于该值时压缩
+     * @param level  压缩级别 0-9，-1为默认级别
+     * @param dictionary  预置字典，可以通过 trainDictionary 生成；为空时不使用字典
+     */
+    public CompressingValueCodec(ValueCodec delegate, int threshold, int level, byte[] dictionary) {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("invalid compression level: " + level);
+        }
+        this.delegate = delegate;
+        this.threshold = Math.max(threshold, 0);
+        if (dictionary != null && dictionary.length > 0) {
+            this.dictionary = dictionary.length > MAX_DICTIONARY_SIZE
+                    ? Arrays.copyOfRange(dictionary, dictionary.length - MAX_DICTIONARY_SIZE, dictionary.length)
+                    : dictionary.clone();
+            Adler32 adler32 = new Adler32();
+            adler32.update(this.dictionary);
+            this.dictionaryId = (int) adler32.getValue();
+        } else {
+            this.dictionary = null;
+            this.dictionaryId = 0;
+        }
+        this.deflaters = ThreadLocal.withInitial(() -> new Deflater(level, true));
+    }
+
+    public ValueCodec getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        byte[] encoded = delegate.encode(value);
+        if (encoded.length < threshold) {
+            return encoded;
+        }
+        return compress(encoded);
+    }
+
+    @Override
+    public <T> T decode(byte[] bytes, Class<T> target) {
+        return delegate.decode(decompress(bytes), target);
+    }
+
+    @Override
+    public <T> List<T> decodeList(byte[] bytes, Class<T> target) {
+        return delegate.decodeList(decompress(bytes), target);
+    }
+
+    @Override
+    public <T> T decode(ByteBuffer buffer, Class<T> target) {
+        return isCompressed(buffer) ? decode(ValueCodecs.toBytes(buffer), target) : delegate.decode(buffer, target);
+    }
+
+    @Override
+    public <T> List<T> decodeList(ByteBuffer buffer, Class<T> target) {
+        return isCompressed(buffer) ? decodeList(ValueCodecs.toBytes(buffer), target)
+                : delegate.decodeList(buffer, target);
+    }
+
+    /**
+     * 未压缩的值直接交给被装饰的编解码器解码，压缩的值需要复制为byte[]后解压
+     *
+     * @param buffer
+     */
+    private static boolean isCompressed(ByteBuffer buffer) {
+        byte first = buffer.get(buffer.position());
+        return first == DEFLATE || first == DEFLATE_DICTIONARY;
+    }
+
+    /**
+     * 压缩后不小于原始长度时返回原始字节
+     *
+     * @param encoded
+     */
+    private byte[] compress(byte[] encoded) {
+        int headerLength = dictionary == null ? 5 : 9;
+        byte[] out = new byte[encoded.length];
+        if (out.length <= headerLength) {
+            return encoded;
+        }
+        out[0] = dictionary == null ? DEFLATE : DEFLATE_DICTIONARY;
+        writeInt(out, 1, encoded.length);
+        if (dictionary != null) {
+            writeInt(out, 5, dictionaryId);
+        }
+        Deflater deflater = deflaters.get();
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(encoded);
+            deflater.finish();
+            int position = headerLength;
+            while (!deflater.finished()) {
+                if (position == out.length) {
+                    return encoded;
+                }
+                position += deflater.deflate(out, position, out.length - position);
+            }
+            return position < out.length ? Arrays.copyOf(out, position) : encoded;
+        } finally {
+            deflater.reset();
+        }
+    }
+
+    /**
+     * 首字节不是压缩标记时返回原始字节
+     *
+     * @param bytes
+     */
+    private byte[] decompress(byte[] bytes) {
+        if (bytes.length == 0 || (bytes[0] != DEFLATE && bytes[0] != DEFLATE_DICTIONARY)) {
+            return bytes;
+        }
+        boolean useDictionary = bytes[0] == DEFLATE_DICTIONARY;
+        int headerLength = useDictionary ? 9 : 5;
+        if (bytes.length < headerLength) {
+            throw new IllegalArgumentException("truncated compressed value");
+        }
+        int length = readInt(bytes, 1);
+        // 按deflate的最大压缩率校验原始长度，避免损坏或伪造的长度分配过大的内存
+        if (length < 0 || length > (long) (bytes.length - headerLength) * MAX_COMPRESSION_RATIO) {
+            throw new IllegalArgumentException("invalid compressed length: " + length);
+        }
+        if (useDictionary && (dictionary == null || readInt(bytes, 5) != dictionaryId)) {
+            throw new IllegalArgumentException("value was compressed with a different dictionary");
+        }
+        Inflater inflater = inflaters.get();
+        try {
+            if (useDictionary) {
+                inflater.setDictionary(dictionary);
+            }
+            inflater.setInput(bytes, headerLength, bytes.length - headerLength);
+            byte[] out = new byte[length];
+            int position = 0;
+            while (position < length) {
+                int read = inflater.inflate(out, position, length - position);
+                if (read == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("truncated compressed value");
+                }
+                position += read;
+            }
+            return out;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("invalid compressed value", e);
+        } finally {
+            inflater.reset();
+        }
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16
+                | (bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+    }
+
+    /**
+     * 根据样本值训练预置字典
+     * 统计在多个样本中出现的片段，按出现的样本数从多到少选取，选中的片段向两侧合并出现次数相近的相邻片段，
+     * 包含已选内容的片段不再选取，避免字典中是错位的重复内容；出现最多的内容放在字典末尾，离待压缩数据最近
+     * 样本应为被装饰的编解码器编码后的字节，字典变更后使用旧字典压缩的值无法读取
+     *
+     * @param samples  样本值
+     * @param size  字典的最大字节数，不超过32KB
+     */
+    public static byte[] trainDictionary(Collection<byte[]> samples, int size) {
+        int dictionarySize = Math.min(size, MAX_DICTIONARY_SIZE);
+        if (samples == null || samples.isEmpty() || dictionarySize <= 0) {
+            return new byte[0];
+        }
+        Map<Segment, Integer> counts = new HashMap<>();
+        for (byte[] sample : samples) {
+            Set<Segment> seen = new HashSet<>();
+            for (int i = 0; i + SEGMENT_LENGTH <= sample.length; i++) {
+                Segment segment = new Segment(sample, i, SEGMENT_LENGTH);
+                if (seen.add(segment)) {
+                    counts.merge(segment, 1, Integer::sum);
+                }
+            }
+        }
+        List<Map.Entry<Segment, Integer>> candidates = new ArrayList<>();
+        for (Map.Entry<Segment, Integer> entry : counts.entrySet()) {
+            if (entry.getValue() > 1) {
+                candidates.add(entry);
+            }
+        }
+        candidates.sort((a, b) -> b.getValue().compareTo(a.getValue()));
+        Set<Segment> covered = new HashSet<>();
+        List<byte[]> pieces = new ArrayList<>();
+        int total = 0;
+        for (Map.Entry<Segment, Integer> candidate : candidates) {
+            int remaining = dictionarySize - total;
+            if (remaining < SEGMENT_LENGTH) {
+                break;
+            }
+            Segment segment = candidate.getKey();
+            byte[] sample = segment.bytes;
+            int start = segment.offset;
+            int end = segment.offset + SEGMENT_LENGTH;
+            if (isCovered(sample, start, end, covered)) {
+                continue;
+            }
+            for (int i = start; i + COVER_LENGTH <= end; i++) {
+                covered.add(new Segment(sample, i, COVER_LENGTH));
+            }
+            // 向两侧合并出现次数相近的相邻片段，得到一段连续的内容，遇到已选过的内容时停止
+            int minCount = Math.max(2, candidate.getValue() / 2);
+            while (end - start < remaining && start > 0
+                    && counts.getOrDefault(new Segment(sample, start - 1, SEGMENT_LENGTH), 0) >= minCount
+                    && covered.add(new Segment(sample, start - 1, COVER_LENGTH))) {
+                start--;
+            }
+            while (end - start < remaining && end < sample.length
+                    && counts.getOrDefault(new Segment(sample, end - SEGMENT_LENGTH + 1, SEGMENT_LENGTH), 0) >= minCount
+                    && covered.add(new Segment(sample, end - COVER_LENGTH + 1, COVER_LENGTH))) {
+                end++;
+            }
+            pieces.add(Arrays.copyOfRange(sample, start, end));
+            total += end - start;
+        }
+        byte[] dictionary = new byte[total];
+        int position = 0;
+        for (int i = pieces.size() - 1; i >= 0; i--) {
+            byte[] piece = pieces.get(i);
+            System.arraycopy(piece, 0, dictionary, position, piece.length);
+            position += piece.length;
+        }
+        return dictionary;
+    }
+
+    /**
+     * 片段中是否有已选入字典的内容
+     *
+     * @param sample
+     * @param start
+     * @param end
+     * @param covered  已选入字典的 COVER_LENGTH 长度的片段
+     */
+    private static boolean isCovered(byte[] sample, int start, int end, Set<Segment> covered) {
+        for (int i = start; i + COVER_LENGTH <= end; i++) {
+            if (covered.contains(new Segment(sample, i, COVER_LENGTH))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 样本中的一个片段，不复制字节
+     */
+    private static final class Segment {
+
+        private final byte[] bytes;
+
+        private final int offset;
+
+        private final int length;
+
+        private final int hash;
+
+        Segment(byte[] bytes, int offset, int length) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+            int h = 1;
+            for (int i = offset; i < offset + length; i++) {
+                h = 31 * h + bytes[i];
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Segment)) {
+                return false;
+            }
+            Segment other = (Segment) o;
+            if (hash != other.hash || length != other.length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (bytes[offset + i] != other.bytes[other.offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.wpx.codec;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.util.ParameterizedTypeImpl;
+
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * @Author: 不会飞的小鹏
+ * @Description: fastjson编解码，直接输出和解析UTF-8字节，不经过String
+ * 与通过StringRedisTemplate保存的JSON字符串完全兼容
+ * 从ByteBuffer解码时，堆内缓冲区直接解析底层数组，堆外缓冲区复制到线程复用的数组后解析，不为每个值分配byte[]
+ */
+public class JsonValueCodec implements ValueCodec {
+
+    public static final JsonValueCodec INSTANCE = new JsonValueCodec();
+
+    /**
+     * 线程复用数组的最大长度，超过时单独分配，避免线程长期持有大数组
+     */
+    private static final int MAX_SCRATCH_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[1024]);
+
+    /**
+     * 每个元素类型对应的 List<T> 类型，避免每次解码都创建，fastjson按该类型缓存反序列化器
+     */
+    private static final ClassValue<Type> LIST_TYPES = new ClassValue<Type>() {
+        @Override
+        protected Type computeValue(Class<?> type) {
+            return new ParameterizedTypeImpl(new Type[]{type}, null, List.class);
+        }
+    };
+
+    @Override
+    public byte[] encode(Object value) {
+        return JSON.toJSONBytes(value);
+    }
+
+    @Override
+    public <T> T decode(byte[] bytes, Class<T> target) {
+        return JSON.parseObject(bytes, target);
+    }
+
+    @Override
+    public <T> List<T> decodeList(byte[] bytes, Class<T> target) {
+        return JSON.parseObject(bytes, LIST_TYPES.get(target));
+    }
+
+    @Override
+    public <T> T decode(ByteBuffer buffer, Class<T> target) {
+        return parse(buffer, target);
+    }
+
+    @Override
+    public <T> List<T> decodeList(ByteBuffer buffer, Class<T> target) {
+        return parse(buffer, LIST_TYPES.get(target));
+    }
+
+    /**
+     * fastjson先将字节解码为char[]再解析，不会保留对数组的引用，因此可以复用数组
+     *
+     * @param buffer
+     * @param type
+     */
+    private static <T> T parse(ByteBuffer buffer, Type type) {
+        int length = buffer.remaining();
+        if (buffer.hasArray()) {
+            return JSON.parseObject(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                    StandardCharsets.UTF_8, type);
+        }
+        byte[] bytes = length > MAX_SCRATCH_SIZE ? new byte[length] : scratch(length);
+        buffer.duplicate().get(bytes, 0, length);
+        return JSON.parseObject(bytes, 0, length, StandardCharsets.UTF_8, type);
+    }
+
+    private static byte[] scratch(int length) {
+        byte[] bytes = SCRATCH.get();
+        if (bytes.length < length) {
+            bytes = new byte[Math.min(Math.max(bytes.length * 2, length), MAX_SCRATCH_SIZE)];
+            SCRATCH.set(bytes);
+        }
+        return bytes;
+    }
+
+}
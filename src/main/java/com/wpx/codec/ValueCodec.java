@@ -0,0 +1,58 @@
+package com.wpx.codec;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * @Author: 不会飞的小鹏
+ * @Description: 值的编解码器，RedisBaseService的对象方法通过它在对象和Redis中保存的字节之间转换
+ * 实现需要线程安全；自定义实现通过 operations.codec.class-name 配置，需要无参构造器
+ * ByteBuffer的解码方法用于直接从Lettuce的响应缓冲区解码，默认复制为byte[]后解码
+ */
+public interface ValueCodec {
+
+    /**
+     * 对象编码为字节
+     *
+     * @param value  不为null
+     */
+    byte[] encode(Object value);
+
+    /**
+     * 字节解码为对象
+     *
+     * @param bytes  不为空
+     * @param target  对象类型
+     */
+    <T> T decode(byte[] bytes, Class<T> target);
+
+    /**
+     * 字节解码为list，字节由 encode 一个集合得到
+     *
+     * @param bytes  不为空
+     * @param target  元素类型
+     */
+    <T> List<T> decodeList(byte[] bytes, Class<T> target);
+
+    /**
+     * 从缓冲区解码为对象，读取position到limit之间的字节
+     * 缓冲区只在调用期间有效，实现不能保留对它的引用，也不能改变它的position
+     *
+     * @param buffer  不为空
+     * @param target  对象类型
+     */
+    default <T> T decode(ByteBuffer buffer, Class<T> target) {
+        return decode(ValueCodecs.toBytes(buffer), target);
+    }
+
+    /**
+     * 从缓冲区解码为list，约束与 decode(ByteBuffer, Class) 相同
+     *
+     * @param buffer  不为空
+     * @param target  元素类型
+     */
+    default <T> List<T> decodeList(ByteBuffer buffer, Class<T> target) {
+        return decodeList(ValueCodecs.toBytes(buffer), target);
+    }
+
+}
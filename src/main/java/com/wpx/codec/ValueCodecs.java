@@ -0,0 +1,78 @@
+package com.wpx.codec;
+
+import com.wpx.property.RedisMessageProperties;
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * @Author: 不会飞的小鹏
+ * @Description: 根据配置创建数据源使用的ValueCodec
+ */
+public class ValueCodecs {
+
+    private ValueCodecs() {
+    }
+
+    /**
+     * 创建编解码器，配置了 className 时使用自定义实现
+     * 始终使用CompressingValueCodec装饰，关闭压缩时只是不再压缩新写入的值，已压缩的值仍然可以读取
+     *
+     * @param properties
+     */
+    public static ValueCodec create(RedisMessageProperties.Codec properties) {
+        ValueCodec codec = createBase(properties);
+        RedisMessageProperties.Compression compression = properties.getCompression();
+        byte[] dictionary = StringUtils.hasText(compression.getDictionary())
+                ? loadDictionary(compression.getDictionary()) : null;
+        int threshold = compression.isEnabled() ? compression.getThreshold() : Integer.MAX_VALUE;
+        return new CompressingValueCodec(codec, threshold, compression.getLevel(), dictionary);
+    }
+
+    private static ValueCodec createBase(RedisMessageProperties.Codec properties) {
+        if (StringUtils.hasText(properties.getClassName())) {
+            Class<?> codecClass;
+            try {
+                codecClass = ClassUtils.forName(properties.getClassName(), ValueCodecs.class.getClassLoader());
+            } catch (ClassNotFoundException | LinkageError e) {
+                throw new IllegalArgumentException("value codec [" + properties.getClassName() + "] not found", e);
+            }
+            return BeanUtils.instantiateClass(codecClass, ValueCodec.class);
+        }
+        return properties.getType() == RedisMessageProperties.CodecType.BINARY ? new BinaryValueCodec()
+                : JsonValueCodec.INSTANCE;
+    }
+
+    /**
+     * 复制缓冲区position到limit之间的字节，不改变缓冲区的position
+     *
+     * @param buffer
+     */
+    public static byte[] toBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * 读取预置字典
+     *
+     * @param location  资源路径，如 classpath:redis-dictionary.bin
+     */
+    private static byte[] loadDictionary(String location) {
+        Resource resource = new DefaultResourceLoader(ValueCodecs.class.getClassLoader()).getResource(location);
+        try (InputStream inputStream = resource.getInputStream()) {
+            return StreamUtils.copyToByteArray(inputStream);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("compression dictionary [" + location + "] cannot be read", e);
+        }
+    }
+
+}
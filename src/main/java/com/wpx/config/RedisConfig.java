@@ -1,12 +1,30 @@
 package com.wpx.config;
 
+import com.wpx.property.RedisDataSourceProperties;
+import com.wpx.service.RedisAsyncBaseService;
 import com.wpx.service.RedisBaseService;
+import com.wpx.util.RedisAsyncCacheUtils;
+import com.wpx.util.RedisBinaryCacheUtils;
 import com.wpx.util.RedisCacheUtils;
+import com.wpx.util.RedisCounterAggregator;
+import com.wpx.util.RedisIdGenerator;
+import com.wpx.util.RedisLockClient;
+import com.wpx.util.RedisReactiveCacheUtils;
+import io.lettuce.core.resource.ClientResources;
+import io.lettuce.core.resource.DefaultClientResources;
+import io.lettuce.core.resource.Delay;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
 
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
 /**
  * @Author: 不会飞的小鹏
  * @Description: 配置默认的Redis
@@ -15,14 +33,85 @@ import org.springframework.data.redis.core.StringRedisTemplate;
 @EnableAutoConfiguration
 public class RedisConfig {
 
+    /**
+     * 所有数据源共用的Lettuce ClientResources，避免每个连接工厂各自创建I/O和计算线程池
+     * 声明后spring boot将不再创建默认的ClientResources，默认数据源同样使用该实例
+     *
+     * @param redisDataSourceProperties
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ClientResources redisClientResources(RedisDataSourceProperties redisDataSourceProperties) {
+        RedisDataSourceProperties.ClientResources properties = redisDataSourceProperties.getClientResources();
+        DefaultClientResources.Builder builder = DefaultClientResources.builder();
+        if (properties.getIoThreadPoolSize() != null) {
+            builder.ioThreadPoolSize(properties.getIoThreadPoolSize());
+        }
+        if (properties.getComputationThreadPoolSize() != null) {
+            builder.computationThreadPoolSize(properties.getComputationThreadPoolSize());
+        }
+        if (properties.getMinReconnectDelay() != null || properties.getMaxReconnectDelay() != null) {
+            Duration lower = properties.getMinReconnectDelay() != null ? properties.getMinReconnectDelay()
+                    : Duration.ZERO;
+            Duration upper = properties.getMaxReconnectDelay() != null ? properties.getMaxReconnectDelay()
+                    : Duration.ofSeconds(30);
+            builder.reconnectDelay(Delay.exponential(lower, upper, 2, TimeUnit.MILLISECONDS));
+        }
+        return builder.build();
+    }
+
+    @Bean
+    public RedisBaseService redisBaseService(RedisCacheUtils redisCacheUtils, RedisLockClient redisLockClient) {
+        return new RedisBaseService(redisCacheUtils, redisLockClient);
+    }
+
+    @Bean
+    public RedisTemplate<String, byte[]> redisBinaryTemplate(RedisConnectionFactory redisConnectionFactory) {
+        return RedisBinaryCacheUtils.createTemplate(redisConnectionFactory);
+    }
+
+    @Bean
+    public RedisCacheUtils redisCacheUtils(StringRedisTemplate stringRedisTemplate,
+                                           RedisTemplate<String, byte[]> redisBinaryTemplate,
+                                           RedisDataSourceProperties redisDataSourceProperties) {
+        return new RedisCacheUtils(stringRedisTemplate, redisBinaryTemplate,
+                redisDataSourceProperties.getOperations());
+    }
+
+    @Bean
+    public RedisAsyncCacheUtils redisAsyncCacheUtils(LettuceConnectionFactory lettuceConnectionFactory,
+                                                     RedisDataSourceProperties redisDataSourceProperties) {
+        return new RedisAsyncCacheUtils(lettuceConnectionFactory,
+                redisDataSourceProperties.getOperations().getTtlJitter());
+    }
+
+    @Bean
+    public RedisAsyncBaseService redisAsyncBaseService(RedisAsyncCacheUtils redisAsyncCacheUtils,
+                                                       RedisBaseService redisBaseService,
+                                                       RedisDataSourceProperties redisDataSourceProperties) {
+        return new RedisAsyncBaseService(redisAsyncCacheUtils, redisBaseService,
+                redisDataSourceProperties.getOperations().getAsyncExecutorThreads());
+    }
+
+    @Bean
+    public RedisReactiveCacheUtils redisReactiveCacheUtils(ReactiveStringRedisTemplate reactiveStringRedisTemplate,
+                                                           RedisDataSourceProperties redisDataSourceProperties) {
+        return new RedisReactiveCacheUtils(reactiveStringRedisTemplate, redisDataSourceProperties.getOperations());
+    }
+
+    @Bean
+    public RedisCounterAggregator redisCounterAggregator(RedisCacheUtils redisCacheUtils) {
+        return new RedisCounterAggregator(redisCacheUtils);
+    }
+
     @Bean
-    public RedisBaseService redisBaseService(RedisCacheUtils redisCacheUtils) {
-        return new RedisBaseService(redisCacheUtils);
+    public RedisIdGenerator redisIdGenerator(RedisCacheUtils redisCacheUtils) {
+        return new RedisIdGenerator(redisCacheUtils);
     }
 
     @Bean
-    public RedisCacheUtils redisCacheUtils(StringRedisTemplate stringRedisTemplate) {
-        return new RedisCacheUtils(stringRedisTemplate);
+    public RedisLockClient redisLockClient(RedisCacheUtils redisCacheUtils,
+                                           LettuceConnectionFactory lettuceConnectionFactory) {
+        return new RedisLockClient(redisCacheUtils, lettuceConnectionFactory);
     }
 
 }
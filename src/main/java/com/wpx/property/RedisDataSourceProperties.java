@@ -3,6 +3,7 @@ package com.wpx.property;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
 import java.util.Map;
 
 /**
@@ -17,6 +18,27 @@ public class RedisDataSourceProperties {
 
     private Map<String, RedisMessageProperties> dataSource;
 
+    /**
+     * Lettuce client resources shared by the default and all registered data sources.
+     */
+    private final ClientResources clientResources = new ClientResources();
+
+    /**
+     * RedisCacheUtils and RedisBaseService options of the default data source.
+     */
+    private final RedisMessageProperties.Operations operations = new RedisMessageProperties.Operations();
+
+    /**
+     * How the registered data sources connect at startup.
+     */
+    private InitMode initMode = InitMode.LAZY;
+
+    /**
+     * Maximum time to wait for all data sources to connect in PARALLEL init mode.
+     * Data sources that are not connected in time keep connecting in the background.
+     */
+    private Duration initTimeout = Duration.ofSeconds(10);
+
     public Map<String, RedisMessageProperties> getDataSource() {
         return dataSource;
     }
@@ -25,4 +47,107 @@ public class RedisDataSourceProperties {
         this.dataSource = dataSource;
     }
 
+    public ClientResources getClientResources() {
+        return clientResources;
+    }
+
+    public RedisMessageProperties.Operations getOperations() {
+        return operations;
+    }
+
+    public InitMode getInitMode() {
+        return initMode;
+    }
+
+    public void setInitMode(InitMode initMode) {
+        this.initMode = initMode;
+    }
+
+    public Duration getInitTimeout() {
+        return initTimeout;
+    }
+
+    public void setInitTimeout(Duration initTimeout) {
+        this.initTimeout = initTimeout;
+    }
+
+    /**
+     * Startup connection strategy of the registered data sources.
+     */
+    public enum InitMode {
+
+        /**
+         * Do not connect at startup, each data source connects on first use.
+         */
+        LAZY,
+
+        /**
+         * Connect all data sources in parallel at startup, bounded by the init timeout.
+         * Failures are logged and do not prevent the context from starting.
+         */
+        PARALLEL
+
+    }
+
+    /**
+     * Shared Lettuce client resources properties.
+     */
+    public static class ClientResources {
+
+        /**
+         * Number of I/O event loop threads. Defaults to the number of available
+         * processors when not set.
+         */
+        private Integer ioThreadPoolSize;
+
+        /**
+         * Number of computation threads. Defaults to the number of available
+         * processors when not set.
+         */
+        private Integer computationThreadPoolSize;
+
+        /**
+         * Lower bound of the exponential reconnect delay.
+         */
+        private Duration minReconnectDelay;
+
+        /**
+         * Upper bound of the exponential reconnect delay.
+         */
+        private Duration maxReconnectDelay;
+
+        public Integer getIoThreadPoolSize() {
+            return ioThreadPoolSize;
+        }
+
+        public void setIoThreadPoolSize(Integer ioThreadPoolSize) {
+            this.ioThreadPoolSize = ioThreadPoolSize;
+        }
+
+        public Integer getComputationThreadPoolSize() {
+            return computationThreadPoolSize;
+        }
+
+        public void setComputationThreadPoolSize(Integer computationThreadPoolSize) {
+            this.computationThreadPoolSize = computationThreadPoolSize;
+        }
+
+        public Duration getMinReconnectDelay() {
+            return minReconnectDelay;
+        }
+
+        public void setMinReconnectDelay(Duration minReconnectDelay) {
+            this.minReconnectDelay = minReconnectDelay;
+        }
+
+        public Duration getMaxReconnectDelay() {
+            return maxReconnectDelay;
+        }
+
+        public void setMaxReconnectDelay(Duration maxReconnectDelay) {
+            this.maxReconnectDelay = maxReconnectDelay;
+        }
+
+    }
+
 }
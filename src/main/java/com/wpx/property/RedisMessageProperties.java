@@ -2,6 +2,7 @@ package com.wpx.property;
 
 import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @Author: 不会飞的小鹏
@@ -54,6 +55,12 @@ public class RedisMessageProperties {
      */
     private Duration connectTimeout;
 
+    /**
+     * Per command type read timeout overrides, keyed by command name such as GET or
+     * HGETALL. Commands without an override use the read timeout.
+     */
+    private Map<String, Duration> commandTimeouts;
+
     /**
      * Client name to be set on connections with CLIENT SETNAME.
      */
@@ -72,6 +79,8 @@ public class RedisMessageProperties {
 
     private final Lettuce lettuce = new Lettuce();
 
+    private final Operations operations = new Operations();
+
     public int getDatabase() {
         return this.database;
     }
@@ -144,6 +153,14 @@ public class RedisMessageProperties {
         this.connectTimeout = connectTimeout;
     }
 
+    public Map<String, Duration> getCommandTimeouts() {
+        return this.commandTimeouts;
+    }
+
+    public void setCommandTimeouts(Map<String, Duration> commandTimeouts) {
+        this.commandTimeouts = commandTimeouts;
+    }
+
     public String getClientName() {
         return this.clientName;
     }
@@ -184,6 +201,10 @@ public class RedisMessageProperties {
         return this.lettuce;
     }
 
+    public Operations getOperations() {
+        return this.operations;
+    }
+
     /**
      * Type of Redis client to use.
      */
@@ -201,6 +222,56 @@ public class RedisMessageProperties {
 
     }
 
+    /**
+     * Node selection policy for read-only commands.
+     */
+    public enum ReadFromType {
+
+        /**
+         * Read from the master only.
+         */
+        MASTER,
+
+        /**
+         * Read preferably from the master and fall back to replicas.
+         */
+        MASTER_PREFERRED,
+
+        /**
+         * Read from replicas only.
+         */
+        REPLICA,
+
+        /**
+         * Read preferably from replicas and fall back to the master.
+         */
+        REPLICA_PREFERRED,
+
+        /**
+         * Read from the node with the lowest latency.
+         */
+        NEAREST
+
+    }
+
+    /**
+     * How ordinary commands obtain a connection.
+     */
+    public enum ConnectionMode {
+
+        /**
+         * Multiplex ordinary commands over one shared native connection. The pool, if
+         * configured, is only used for blocking and transactional commands.
+         */
+        SHARED,
+
+        /**
+         * Borrow a pooled connection for every command.
+         */
+        POOLED
+
+    }
+
     /**
      * Pool properties.
      */
@@ -396,6 +467,17 @@ public class RedisMessageProperties {
          */
         private Pool pool;
 
+        /**
+         * Node selection policy for read-only commands. Writes always go to the
+         * master. Applies to sentinel, cluster and standalone master/replica setups.
+         */
+        private ReadFromType readFrom;
+
+        /**
+         * How ordinary commands obtain a connection.
+         */
+        private ConnectionMode connectionMode = ConnectionMode.SHARED;
+
         private final Cluster cluster = new Cluster();
 
         public Duration getShutdownTimeout() {
@@ -414,6 +496,22 @@ public class RedisMessageProperties {
             this.pool = pool;
         }
 
+        public ReadFromType getReadFrom() {
+            return this.readFrom;
+        }
+
+        public void setReadFrom(ReadFromType readFrom) {
+            this.readFrom = readFrom;
+        }
+
+        public ConnectionMode getConnectionMode() {
+            return this.connectionMode;
+        }
+
+        public void setConnectionMode(ConnectionMode connectionMode) {
+            this.connectionMode = connectionMode;
+        }
+
         public Cluster getCluster() {
             return this.cluster;
         }
@@ -476,4 +574,628 @@ public class RedisMessageProperties {
 
     }
 
+    /**
+     * RedisCacheUtils and RedisBaseService options.
+     */
+    public static class Operations {
+
+        /**
+         * Maximum number of commands sent in one pipeline. Larger batches are split
+         * into several pipelines.
+         */
+        private int pipelineSize = 1000;
+
+        /**
+         * Maximum number of keys sent in one MGET or MSET command. In cluster mode keys
+         * are additionally split by hash slot.
+         */
+        private int multiKeySize = 500;
+
+        /**
+         * Number of threads deserializing the results of the async base service. The
+         * common ForkJoinPool is used when not positive.
+         */
+        private int asyncExecutorThreads;
+
+        /**
+         * COUNT hint sent with each SCAN, HSCAN, SSCAN and ZSCAN iteration.
+         */
+        private int scanCount = 1000;
+
+        /**
+         * Maximum number of keys removed per second by pattern-based bulk deletes.
+         * Unlimited when not positive.
+         */
+        private int unlinkRateLimit;
+
+        /**
+         * Random spread, in percent, added to every expiration so that keys written
+         * together do not expire together. A value of 10 extends a TTL by 0 to 10%.
+         */
+        private int ttlJitter;
+
+        /**
+         * What the typed getters of the base services return for a missing or empty value.
+         */
+        private MissValue missValue = MissValue.NEW_INSTANCE;
+
+        private final NearCache nearCache = new NearCache();
+
+        private final Loader loader = new Loader();
+
+        private final Counter counter = new Counter();
+
+        private final IdGenerator idGenerator = new IdGenerator();
+
+        private final Lock lock = new Lock();
+
+        private final Codec codec = new Codec();
+
+        private final ParallelDecode parallelDecode = new ParallelDecode();
+
+        public int getPipelineSize() {
+            return this.pipelineSize;
+        }
+
+        public void setPipelineSize(int pipelineSize) {
+            this.pipelineSize = pipelineSize;
+        }
+
+        public int getMultiKeySize() {
+            return this.multiKeySize;
+        }
+
+        public void setMultiKeySize(int multiKeySize) {
+            this.multiKeySize = multiKeySize;
+        }
+
+        public int getAsyncExecutorThreads() {
+            return this.asyncExecutorThreads;
+        }
+
+        public void setAsyncExecutorThreads(int asyncExecutorThreads) {
+            this.asyncExecutorThreads = asyncExecutorThreads;
+        }
+
+        public int getScanCount() {
+            return this.scanCount;
+        }
+
+        public void setScanCount(int scanCount) {
+            this.scanCount = scanCount;
+        }
+
+        public int getUnlinkRateLimit() {
+            return this.unlinkRateLimit;
+        }
+
+        public void setUnlinkRateLimit(int unlinkRateLimit) {
+            this.unlinkRateLimit = unlinkRateLimit;
+        }
+
+        public int getTtlJitter() {
+            return this.ttlJitter;
+        }
+
+        public void setTtlJitter(int ttlJitter) {
+            this.ttlJitter = ttlJitter;
+        }
+
+        public MissValue getMissValue() {
+            return this.missValue;
+        }
+
+        public void setMissValue(MissValue missValue) {
+            this.missValue = missValue;
+        }
+
+        public NearCache getNearCache() {
+            return this.nearCache;
+        }
+
+        public Loader getLoader() {
+            return this.loader;
+        }
+
+        public Counter getCounter() {
+            return this.counter;
+        }
+
+        public IdGenerator getIdGenerator() {
+            return this.idGenerator;
+        }
+
+        public Lock getLock() {
+            return this.lock;
+        }
+
+        public Codec getCodec() {
+            return this.codec;
+        }
+
+        public ParallelDecode getParallelDecode() {
+            return this.parallelDecode;
+        }
+
+    }
+
+    /**
+     * How the near cache learns about changed keys.
+     */
+    public enum InvalidationMode {
+
+        /**
+         * Use Redis 6 client-side caching in broadcasting mode (CLIENT TRACKING BCAST).
+         */
+        TRACKING,
+
+        /**
+         * Subscribe to keyspace notifications. Requires notify-keyspace-events to be
+         * enabled on the server.
+         */
+        KEYSPACE_NOTIFICATION
+
+    }
+
+    /**
+     * Near cache properties.
+     */
+    public static class NearCache {
+
+        /**
+         * Whether to cache value and hash reads in local memory. Not supported in
+         * cluster mode.
+         */
+        private boolean enabled;
+
+        /**
+         * Maximum number of cached entries. The least recently used entries are evicted
+         * first.
+         */
+        private int maximumSize = 10000;
+
+        /**
+         * Upper bound for how long an entry stays cached, protecting against missed
+         * invalidation messages.
+         */
+        private Duration timeToLive = Duration.ofMinutes(10);
+
+        /**
+         * How cached entries are invalidated.
+         */
+        private InvalidationMode invalidation = InvalidationMode.TRACKING;
+
+        /**
+         * Key prefixes eligible for caching. Invalidation messages are only requested
+         * for these prefixes. All keys are cached when empty.
+         */
+        private List<String> prefixes;
+
+        public boolean isEnabled() {
+            return this.enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaximumSize() {
+            return this.maximumSize;
+        }
+
+        public void setMaximumSize(int maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        public Duration getTimeToLive() {
+            return this.timeToLive;
+        }
+
+        public void setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+
+        public InvalidationMode getInvalidation() {
+            return this.invalidation;
+        }
+
+        public void setInvalidation(InvalidationMode invalidation) {
+            this.invalidation = invalidation;
+        }
+
+        public List<String> getPrefixes() {
+            return this.prefixes;
+        }
+
+        public void setPrefixes(List<String> prefixes) {
+            this.prefixes = prefixes;
+        }
+
+    }
+
+    /**
+     * Cache-aside loader properties.
+     */
+    public static class Loader {
+
+        /**
+         * Whether to take a Redis lock before loading a missing key, so that only one
+         * instance runs the loader while the others wait for its result.
+         */
+        private boolean distributedLock;
+
+        /**
+         * Lease of the load lock and how long other instances wait for the value before
+         * loading it themselves.
+         */
+        private Duration lockTimeout = Duration.ofSeconds(10);
+
+        /**
+         * Time to live of the marker written when the loader returns null. Absent values
+         * are not cached when not set.
+         */
+        private Duration negativeTtl;
+
+        /**
+         * Whether to reload entries in the background as they near expiry. Each read
+         * triggers a refresh with a probability that grows as the remaining TTL shrinks
+         * relative to the observed load time (XFetch).
+         */
+        private boolean refreshAhead;
+
+        /**
+         * Eagerness of refresh-ahead. Values above 1 favour earlier refreshes.
+         */
+        private double refreshBeta = 1.0;
+
+        /**
+         * Number of threads running background refreshes.
+         */
+        private int refreshThreads = 2;
+
+        public boolean isDistributedLock() {
+            return this.distributedLock;
+        }
+
+        public void setDistributedLock(boolean distributedLock) {
+            this.distributedLock = distributedLock;
+        }
+
+        public Duration getLockTimeout() {
+            return this.lockTimeout;
+        }
+
+        public void setLockTimeout(Duration lockTimeout) {
+            this.lockTimeout = lockTimeout;
+        }
+
+        public Duration getNegativeTtl() {
+            return this.negativeTtl;
+        }
+
+        public void setNegativeTtl(Duration negativeTtl) {
+            this.negativeTtl = negativeTtl;
+        }
+
+        public boolean isRefreshAhead() {
+            return this.refreshAhead;
+        }
+
+        public void setRefreshAhead(boolean refreshAhead) {
+            this.refreshAhead = refreshAhead;
+        }
+
+        public double getRefreshBeta() {
+            return this.refreshBeta;
+        }
+
+        public void setRefreshBeta(double refreshBeta) {
+            this.refreshBeta = refreshBeta;
+        }
+
+        public int getRefreshThreads() {
+            return this.refreshThreads;
+        }
+
+        public void setRefreshThreads(int refreshThreads) {
+            this.refreshThreads = refreshThreads;
+        }
+
+    }
+
+    /**
+     * Counter aggregator properties.
+     */
+    public static class Counter {
+
+        /**
+         * Interval between flushes of the locally accumulated deltas.
+         */
+        private Duration flushInterval = Duration.ofSeconds(1);
+
+        /**
+         * Number of distinct pending counters that triggers an early flush.
+         */
+        private int flushThreshold = 10000;
+
+        public Duration getFlushInterval() {
+            return this.flushInterval;
+        }
+
+        public void setFlushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+
+        public int getFlushThreshold() {
+            return this.flushThreshold;
+        }
+
+        public void setFlushThreshold(int flushThreshold) {
+            this.flushThreshold = flushThreshold;
+        }
+
+    }
+
+    /**
+     * ID generator properties.
+     */
+    public static class IdGenerator {
+
+        /**
+         * Number of IDs reserved with one INCRBY.
+         */
+        private int segmentSize = 1000;
+
+        /**
+         * Percentage of the current segment left when the next segment is fetched in
+         * the background.
+         */
+        private int prefetchPercent = 20;
+
+        public int getSegmentSize() {
+            return this.segmentSize;
+        }
+
+        public void setSegmentSize(int segmentSize) {
+            this.segmentSize = segmentSize;
+        }
+
+        public int getPrefetchPercent() {
+            return this.prefetchPercent;
+        }
+
+        public void setPrefetchPercent(int prefetchPercent) {
+            this.prefetchPercent = prefetchPercent;
+        }
+
+    }
+
+    /**
+     * Distributed lock properties.
+     */
+    public static class Lock {
+
+        /**
+         * Lease of a lock acquired without an explicit lease time. The lease is renewed
+         * every third of this duration while the lock is held.
+         */
+        private Duration leaseTime = Duration.ofSeconds(30);
+
+        /**
+         * Prefix of the pub/sub channel on which lock releases are published.
+         */
+        private String channelPrefix = "redis-lock:";
+
+        public Duration getLeaseTime() {
+            return this.leaseTime;
+        }
+
+        public void setLeaseTime(Duration leaseTime) {
+            this.leaseTime = leaseTime;
+        }
+
+        public String getChannelPrefix() {
+            return this.channelPrefix;
+        }
+
+        public void setChannelPrefix(String channelPrefix) {
+            this.channelPrefix = channelPrefix;
+        }
+
+    }
+
+    /**
+     * Parallel decoding of large multi-value results.
+     */
+    public static class ParallelDecode {
+
+        /**
+         * Minimum number of elements of a list, set or hash result for it to be decoded
+         * in parallel. Smaller results are decoded on the calling thread. Disabled when
+         * not positive.
+         */
+        private int threshold = 10000;
+
+        /**
+         * Parallelism of the dedicated ForkJoinPool created on first use. The number of
+         * available processors is used when not positive.
+         */
+        private int parallelism;
+
+        public int getThreshold() {
+            return this.threshold;
+        }
+
+        public void setThreshold(int threshold) {
+            this.threshold = threshold;
+        }
+
+        public int getParallelism() {
+            return this.parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+    }
+
+    /**
+     * Result of a typed read whose value is missing or empty.
+     */
+    public enum MissValue {
+
+        /**
+         * A new instance created with the no-arg constructor of the target type.
+         */
+        NEW_INSTANCE,
+
+        /**
+         * null, nothing is allocated.
+         */
+        NULL,
+
+        /**
+         * One instance per target type shared by all callers. It must not be modified.
+         */
+        SHARED_INSTANCE
+
+    }
+
+    /**
+     * Built-in value codecs.
+     */
+    public enum CodecType {
+
+        /**
+         * fastjson text, readable by the String based operations.
+         */
+        JSON,
+
+        /**
+         * Compact binary format. Values that are not in this format are read as JSON.
+         */
+        BINARY
+
+    }
+
+    /**
+     * Value codec properties.
+     */
+    public static class Codec {
+
+        /**
+         * Codec used by the typed operations of the base services.
+         */
+        private CodecType type = CodecType.JSON;
+
+        /**
+         * Fully qualified name of a custom ValueCodec implementation with a no-arg
+         * constructor. Takes precedence over type.
+         */
+        private String className;
+
+        /**
+         * Whether the async base service decodes replies straight from the Lettuce reply
+         * buffers on the I/O thread, instead of copying them to byte[] and decoding on the
+         * async executor. Suited to small and medium values.
+         */
+        private boolean directDecode;
+
+        /**
+         * Compression of large encoded values.
+         */
+        private final Compression compression = new Compression();
+
+        public CodecType getType() {
+            return this.type;
+        }
+
+        public void setType(CodecType type) {
+            this.type = type;
+        }
+
+        public String getClassName() {
+            return this.className;
+        }
+
+        public void setClassName(String className) {
+            this.className = className;
+        }
+
+        public boolean isDirectDecode() {
+            return this.directDecode;
+        }
+
+        public void setDirectDecode(boolean directDecode) {
+            this.directDecode = directDecode;
+        }
+
+        public Compression getCompression() {
+            return this.compression;
+        }
+
+    }
+
+    /**
+     * Value compression properties.
+     */
+    public static class Compression {
+
+        /**
+         * Whether to deflate encoded values that reach the threshold. Compressed values
+         * are detected on read, so existing values stay readable either way.
+         */
+        private boolean enabled;
+
+        /**
+         * Minimum size in bytes of an encoded value to be compressed.
+         */
+        private int threshold = 16 * 1024;
+
+        /**
+         * Deflate level from 0 to 9, -1 for the default level.
+         */
+        private int level = -1;
+
+        /**
+         * Location of a preset dictionary, e.g. "classpath:redis-dictionary.bin". Values
+         * compressed with a dictionary can only be read with the same dictionary.
+         */
+        private String dictionary;
+
+        public boolean isEnabled() {
+            return this.enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getThreshold() {
+            return this.threshold;
+        }
+
+        public void setThreshold(int threshold) {
+            this.threshold = threshold;
+        }
+
+        public int getLevel() {
+            return this.level;
+        }
+
+        public void setLevel(int level) {
+            this.level = level;
+        }
+
+        public String getDictionary() {
+            return this.dictionary;
+        }
+
+        public void setDictionary(String dictionary) {
+            this.dictionary = dictionary;
+        }
+
+    }
+
 }
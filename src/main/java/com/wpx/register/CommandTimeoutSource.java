@@ -0,0 +1,45 @@
+package com.wpx.register;
+
+import io.lettuce.core.TimeoutOptions;
+import io.lettuce.core.protocol.RedisCommand;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author: 不会飞的小鹏
+ * @Description: 按命令类型获取超时时间，未单独配置的命令使用默认的超时时间
+ */
+class CommandTimeoutSource extends TimeoutOptions.TimeoutSource {
+
+    /**
+     * 默认的超时时间  单位为毫秒
+     */
+    private final long defaultTimeout;
+
+    /**
+     * 命令名称(大写)对应的超时时间  单位为毫秒
+     */
+    private final Map<String, Long> commandTimeouts = new HashMap<>();
+
+    CommandTimeoutSource(Duration defaultTimeout, Map<String, Duration> commandTimeouts) {
+        this.defaultTimeout = defaultTimeout.toMillis();
+        commandTimeouts.forEach((command, timeout) ->
+                this.commandTimeouts.put(command.toUpperCase(Locale.ROOT), timeout.toMillis()));
+    }
+
+    @Override
+    public long getTimeout(RedisCommand<?, ?, ?> command) {
+        Long timeout = commandTimeouts.get(command.getType().name());
+        return timeout == null ? defaultTimeout : timeout;
+    }
+
+    @Override
+    public TimeUnit getTimeUnit() {
+        return TimeUnit.MILLISECONDS;
+    }
+
+}
@@ -2,25 +2,62 @@ package com.wpx.register;
 
 import com.wpx.property.RedisDataSourceProperties;
 import com.wpx.property.RedisMessageProperties;
+import com.wpx.service.RedisAsyncBaseService;
 import com.wpx.service.RedisBaseService;
 import com.wpx.util.CollectionUtils;
+import com.wpx.util.RedisAsyncCacheUtils;
+import com.wpx.util.RedisBinaryCacheUtils;
 import com.wpx.util.RedisCacheUtils;
+import com.wpx.util.RedisCounterAggregator;
+import com.wpx.util.RedisIdGenerator;
+import com.wpx.util.RedisLockClient;
+import com.wpx.util.RedisReactiveCacheUtils;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.ReadFrom;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.SocketOptions;
+import io.lettuce.core.TimeoutOptions;
+import io.lettuce.core.cluster.ClusterClientOptions;
+import io.lettuce.core.cluster.ClusterTopologyRefreshOptions;
+import io.lettuce.core.resource.ClientResources;
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
 import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisPassword;
+import org.springframework.data.redis.connection.RedisSentinelConfiguration;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * @Author: 不会飞的小鹏
@@ -30,6 +67,8 @@ import java.util.Map;
 @Component
 public class RedisTemplateRegister implements BeanFactoryAware, InstantiationAwareBeanPostProcessor {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedisTemplateRegister.class);
+
     @Autowired
     private RedisDataSourceProperties redisDataSourceProperties;
 
@@ -48,6 +87,51 @@ public class RedisTemplateRegister implements BeanFactoryAware, InstantiationAwa
      */
     public static final String SERVICE_NAME = "BaseService";
 
+    /**
+     * RedisAsyncCacheUtils的beanName后缀
+     */
+    public static final String ASYNC_UTIL_NAME = "AsyncCacheUtils";
+
+    /**
+     * RedisAsyncBaseService的beanName后缀
+     */
+    public static final String ASYNC_SERVICE_NAME = "AsyncBaseService";
+
+    /**
+     * value为byte[]的RedisTemplate的beanName后缀
+     */
+    public static final String BINARY_TEMPLATE_NAME = "BinaryTemplate";
+
+    /**
+     * ReactiveStringRedisTemplate的beanName后缀
+     */
+    public static final String REACTIVE_TEMPLATE_NAME = "ReactiveTemplate";
+
+    /**
+     * RedisReactiveCacheUtils的beanName后缀
+     */
+    public static final String REACTIVE_UTIL_NAME = "ReactiveCacheUtils";
+
+    /**
+     * RedisCounterAggregator的beanName后缀
+     */
+    public static final String COUNTER_NAME = "CounterAggregator";
+
+    /**
+     * RedisIdGenerator的beanName后缀
+     */
+    public static final String ID_GENERATOR_NAME = "IdGenerator";
+
+    /**
+     * RedisLockClient的beanName后缀
+     */
+    public static final String LOCK_CLIENT_NAME = "LockClient";
+
+    /**
+     * LettuceConnectionFactory销毁回调的名称后缀，连接工厂不注册为bean，避免影响默认数据源的自动配置
+     */
+    public static final String CONNECTION_FACTORY_NAME = "ConnectionFactory";
+
     /**
      * 读取redis配置并创建对应的StringRedisTemplate
      *
@@ -59,23 +143,123 @@ public class RedisTemplateRegister implements BeanFactoryAware, InstantiationAwa
         DefaultListableBeanFactory listableBeanFactory = (DefaultListableBeanFactory) beanFactory;
         Map<String, RedisMessageProperties> redisDataSource = redisDataSourceProperties.getDataSource();
         if (CollectionUtils.nonEmpty(redisDataSource)) {
+            // 所有数据源共用同一个ClientResources
+            ClientResources clientResources = listableBeanFactory.getBean(ClientResources.class);
+            Map<String, RedisConnectionFactory> connectionFactories = new LinkedHashMap<>();
             redisDataSource.forEach((name, dataSource) -> {
                 StringRedisTemplate stringRedisTemplate = new StringRedisTemplate();
-                RedisConnectionFactory redisConnection = getRedisConnection(dataSource);
+                LettuceConnectionFactory redisConnection = getRedisConnection(dataSource, clientResources);
+                connectionFactories.put(name, redisConnection);
+                // 最先注册，容器关闭时最后销毁，按 shutdown-timeout 关闭连接和客户端
+                listableBeanFactory.registerDisposableBean(name + CONNECTION_FACTORY_NAME, redisConnection::destroy);
                 stringRedisTemplate.setConnectionFactory(redisConnection);
                 stringRedisTemplate.afterPropertiesSet();
                 // 向ioc容器中注入StringRedisTemplate
                 String templateName = name + TEMPLATE_NAME;
                 listableBeanFactory.registerSingleton(templateName, stringRedisTemplate);
+                // 向ioc容器中注入value为byte[]的RedisTemplate
+                RedisTemplate<String, byte[]> binaryTemplate = RedisBinaryCacheUtils.createTemplate(redisConnection);
+                listableBeanFactory.registerSingleton(name + BINARY_TEMPLATE_NAME, binaryTemplate);
                 // 向ioc容器中注入RedisCacheUtils
-                RedisCacheUtils redisCacheUtils = new RedisCacheUtils(stringRedisTemplate);
+                RedisCacheUtils redisCacheUtils = new RedisCacheUtils(stringRedisTemplate, binaryTemplate,
+                        dataSource.getOperations());
                 String utilName = name + UTIL_NAME;
                 listableBeanFactory.registerSingleton(utilName, redisCacheUtils);
-                // 向ioc容器中注入RedisBaseService
-                RedisBaseService redisBaseService = new RedisBaseService(redisCacheUtils);
+                listableBeanFactory.registerDisposableBean(utilName, redisCacheUtils::close);
+                // 向ioc容器中注入RedisLockClient
+                RedisLockClient redisLockClient = new RedisLockClient(redisCacheUtils, redisConnection);
+                String lockClientName = name + LOCK_CLIENT_NAME;
+                listableBeanFactory.registerSingleton(lockClientName, redisLockClient);
+                listableBeanFactory.registerDisposableBean(lockClientName, redisLockClient::close);
+                // 向ioc容器中注入RedisBaseService，getOrLoad的分布式锁使用同一个RedisLockClient
+                RedisBaseService redisBaseService = new RedisBaseService(redisCacheUtils, redisLockClient);
                 String serviceName = name + SERVICE_NAME;
                 listableBeanFactory.registerSingleton(serviceName, redisBaseService);
+                listableBeanFactory.registerDisposableBean(serviceName, redisBaseService::close);
+                // 向ioc容器中注入RedisAsyncCacheUtils
+                RedisAsyncCacheUtils redisAsyncCacheUtils = new RedisAsyncCacheUtils(redisConnection,
+                        dataSource.getOperations().getTtlJitter());
+                String asyncUtilName = name + ASYNC_UTIL_NAME;
+                listableBeanFactory.registerSingleton(asyncUtilName, redisAsyncCacheUtils);
+                listableBeanFactory.registerDisposableBean(asyncUtilName, redisAsyncCacheUtils::close);
+                // 向ioc容器中注入RedisAsyncBaseService
+                RedisAsyncBaseService redisAsyncBaseService = new RedisAsyncBaseService(redisAsyncCacheUtils,
+                        redisBaseService, dataSource.getOperations().getAsyncExecutorThreads());
+                String asyncServiceName = name + ASYNC_SERVICE_NAME;
+                listableBeanFactory.registerSingleton(asyncServiceName, redisAsyncBaseService);
+                listableBeanFactory.registerDisposableBean(asyncServiceName, redisAsyncBaseService::close);
+                // 向ioc容器中注入ReactiveStringRedisTemplate
+                ReactiveStringRedisTemplate reactiveStringRedisTemplate = new ReactiveStringRedisTemplate(redisConnection);
+                String reactiveTemplateName = name + REACTIVE_TEMPLATE_NAME;
+                listableBeanFactory.registerSingleton(reactiveTemplateName, reactiveStringRedisTemplate);
+                // 向ioc容器中注入RedisReactiveCacheUtils
+                RedisReactiveCacheUtils redisReactiveCacheUtils = new RedisReactiveCacheUtils(
+                        reactiveStringRedisTemplate, dataSource.getOperations());
+                String reactiveUtilName = name + REACTIVE_UTIL_NAME;
+                listableBeanFactory.registerSingleton(reactiveUtilName, redisReactiveCacheUtils);
+                // 向ioc容器中注入RedisCounterAggregator
+                RedisCounterAggregator redisCounterAggregator = new RedisCounterAggregator(redisCacheUtils);
+                String counterName = name + COUNTER_NAME;
+                listableBeanFactory.registerSingleton(counterName, redisCounterAggregator);
+                listableBeanFactory.registerDisposableBean(counterName, redisCounterAggregator::close);
+                // 向ioc容器中注入RedisIdGenerator
+                RedisIdGenerator redisIdGenerator = new RedisIdGenerator(redisCacheUtils);
+                String idGeneratorName = name + ID_GENERATOR_NAME;
+                listableBeanFactory.registerSingleton(idGeneratorName, redisIdGenerator);
+                listableBeanFactory.registerDisposableBean(idGeneratorName, redisIdGenerator::close);
             });
+            if (redisDataSourceProperties.getInitMode() == RedisDataSourceProperties.InitMode.PARALLEL) {
+                initConnections(connectionFactories, redisDataSourceProperties.getInitTimeout());
+            }
+        }
+    }
+
+    /**
+     * 并行初始化所有数据源的连接
+     * 超时或连接失败只记录日志，不阻塞容器启动，未完成的数据源在后台继续连接或在首次使用时重连
+     *
+     * @param connectionFactories
+     * @param timeout
+     */
+    private void initConnections(Map<String, RedisConnectionFactory> connectionFactories, Duration timeout) {
+        ExecutorService executor = Executors.newFixedThreadPool(connectionFactories.size(), runnable -> {
+            Thread thread = new Thread(runnable, "redis-data-source-init");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        connectionFactories.forEach((name, connectionFactory) ->
+                futures.add(CompletableFuture.runAsync(() -> initConnection(name, connectionFactory), executor)));
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(timeout.toMillis(),
+                    TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            LOGGER.warn("redis data sources not connected within {}ms, continue startup", timeout.toMillis());
+        } catch (ExecutionException e) {
+            // 单个数据源的异常已在initConnection中记录
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 初始化数据源连接并记录耗时
+     *
+     * @param name
+     * @param connectionFactory
+     */
+    private void initConnection(String name, RedisConnectionFactory connectionFactory) {
+        long start = System.nanoTime();
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.ping();
+            LOGGER.info("redis data source [{}] connected in {}ms", name,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            LOGGER.warn("redis data source [{}] failed to connect after {}ms", name,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), e);
+            throw e;
         }
     }
 
@@ -83,27 +267,177 @@ public class RedisTemplateRegister implements BeanFactoryAware, InstantiationAwa
      * 配置redisConnection
      *
      * @param dataSource
+     * @param clientResources
      */
-    private RedisConnectionFactory getRedisConnection(RedisMessageProperties dataSource) {
-        return getLettuceConnectionFactory(dataSource);
+    private LettuceConnectionFactory getRedisConnection(RedisMessageProperties dataSource,
+                                                        ClientResources clientResources) {
+        return getLettuceConnectionFactory(dataSource, clientResources);
     }
 
     /**
      * 获取LettuceConnection
+     * 优先级：sentinel > cluster > 单机
      *
      * @param dataSource
+     * @param clientResources
      */
-    private RedisConnectionFactory getLettuceConnectionFactory(RedisMessageProperties dataSource) {
-        RedisStandaloneConfiguration redisConfig = getRedisConfig(dataSource);
-        RedisMessageProperties.Pool pool = dataSource.getLettuce().getPool();
-        GenericObjectPoolConfig poolConfig = getPoolConfig(pool);
-        LettucePoolingClientConfiguration clientConfiguration = LettucePoolingClientConfiguration.builder()
-                .poolConfig(poolConfig).build();
-        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(redisConfig, clientConfiguration);
+    private LettuceConnectionFactory getLettuceConnectionFactory(RedisMessageProperties dataSource,
+                                                                 ClientResources clientResources) {
+        LettuceClientConfiguration clientConfiguration = getClientConfiguration(dataSource, clientResources);
+        LettuceConnectionFactory connectionFactory;
+        if (isSentinel(dataSource)) {
+            connectionFactory = new LettuceConnectionFactory(getSentinelConfig(dataSource), clientConfiguration);
+        } else if (isCluster(dataSource)) {
+            connectionFactory = new LettuceConnectionFactory(getClusterConfig(dataSource), clientConfiguration);
+        } else {
+            connectionFactory = new LettuceConnectionFactory(getRedisConfig(dataSource), clientConfiguration);
+        }
+        // SHARED模式下普通命令复用同一个线程安全的原生连接，仅阻塞和事务命令从连接池获取连接
+        connectionFactory.setShareNativeConnection(
+                dataSource.getLettuce().getConnectionMode() != RedisMessageProperties.ConnectionMode.POOLED);
         connectionFactory.afterPropertiesSet();
         return connectionFactory;
     }
 
+    /**
+     * 获取Lettuce客户端配置
+     *
+     * @param dataSource
+     * @param clientResources
+     */
+    private LettuceClientConfiguration getClientConfiguration(RedisMessageProperties dataSource,
+                                                              ClientResources clientResources) {
+        LettuceClientConfiguration.LettuceClientConfigurationBuilder builder = getClientConfigurationBuilder(
+                dataSource.getLettuce().getPool());
+        builder.clientOptions(getClientOptions(dataSource)).clientResources(clientResources);
+        if (dataSource.getTimeout() != null) {
+            builder.commandTimeout(dataSource.getTimeout());
+        }
+        if (dataSource.getLettuce().getShutdownTimeout() != null) {
+            builder.shutdownTimeout(dataSource.getLettuce().getShutdownTimeout());
+        }
+        if (StringUtils.hasText(dataSource.getClientName())) {
+            builder.clientName(dataSource.getClientName());
+        }
+        if (dataSource.isSsl() || getConnectionInfo(dataSource).isSsl()) {
+            builder.useSsl();
+        }
+        RedisMessageProperties.ReadFromType readFrom = dataSource.getLettuce().getReadFrom();
+        if (readFrom != null) {
+            builder.readFrom(getReadFrom(readFrom));
+        }
+        return builder.build();
+    }
+
+    /**
+     * 获取Lettuce客户端配置的builder
+     * 未配置连接池时不使用连接池
+     *
+     * @param pool
+     */
+    private LettuceClientConfiguration.LettuceClientConfigurationBuilder getClientConfigurationBuilder(
+            RedisMessageProperties.Pool pool) {
+        if (pool == null) {
+            return LettuceClientConfiguration.builder();
+        }
+        return LettucePoolingClientConfiguration.builder().poolConfig(getPoolConfig(pool));
+    }
+
+    /**
+     * 获取读操作的节点选择策略
+     * 只读命令按照策略路由到对应节点，写命令始终发送到master
+     *
+     * @param readFrom
+     */
+    private ReadFrom getReadFrom(RedisMessageProperties.ReadFromType readFrom) {
+        switch (readFrom) {
+            case MASTER:
+                return ReadFrom.MASTER;
+            case MASTER_PREFERRED:
+                return ReadFrom.MASTER_PREFERRED;
+            case REPLICA:
+                return ReadFrom.REPLICA;
+            case REPLICA_PREFERRED:
+                return ReadFrom.REPLICA_PREFERRED;
+            case NEAREST:
+                return ReadFrom.NEAREST;
+            default:
+                throw new IllegalArgumentException("unsupported read from: " + readFrom);
+        }
+    }
+
+    /**
+     * 获取客户端选项
+     * 集群模式下根据 lettuce.cluster.refresh 配置拓扑刷新
+     *
+     * @param dataSource
+     */
+    private ClientOptions getClientOptions(RedisMessageProperties dataSource) {
+        ClientOptions.Builder builder = getClientOptionsBuilder(dataSource);
+        if (dataSource.getConnectTimeout() != null) {
+            builder.socketOptions(SocketOptions.builder().connectTimeout(dataSource.getConnectTimeout()).build());
+        }
+        return builder.timeoutOptions(getTimeoutOptions(dataSource)).build();
+    }
+
+    /**
+     * 获取客户端选项的builder
+     * 集群模式下根据 lettuce.cluster.refresh 配置拓扑刷新
+     *
+     * @param dataSource
+     */
+    private ClientOptions.Builder getClientOptionsBuilder(RedisMessageProperties dataSource) {
+        if (!isCluster(dataSource)) {
+            return ClientOptions.builder();
+        }
+        RedisMessageProperties.Lettuce.Cluster.Refresh refresh = dataSource.getLettuce().getCluster().getRefresh();
+        ClusterTopologyRefreshOptions.Builder refreshBuilder = ClusterTopologyRefreshOptions.builder()
+                .dynamicRefreshSources(refresh.isDynamicRefreshSources());
+        if (refresh.getPeriod() != null) {
+            refreshBuilder.enablePeriodicRefresh(refresh.getPeriod());
+        }
+        if (refresh.isAdaptive()) {
+            refreshBuilder.enableAllAdaptiveRefreshTriggers();
+        }
+        return ClusterClientOptions.builder().topologyRefreshOptions(refreshBuilder.build());
+    }
+
+    /**
+     * 获取命令超时选项
+     * 超时的命令由lettuce直接以异常结束，配置了 command-timeouts 时按命令类型使用对应的超时时间
+     *
+     * @param dataSource
+     */
+    private TimeoutOptions getTimeoutOptions(RedisMessageProperties dataSource) {
+        if (CollectionUtils.isEmpty(dataSource.getCommandTimeouts())) {
+            return TimeoutOptions.enabled();
+        }
+        Duration defaultTimeout = dataSource.getTimeout() != null ? dataSource.getTimeout()
+                : RedisURI.DEFAULT_TIMEOUT_DURATION;
+        return TimeoutOptions.builder()
+                .timeoutSource(new CommandTimeoutSource(defaultTimeout, dataSource.getCommandTimeouts())).build();
+    }
+
+    /**
+     * 是否为哨兵模式
+     *
+     * @param dataSource
+     */
+    private boolean isSentinel(RedisMessageProperties dataSource) {
+        RedisMessageProperties.Sentinel sentinel = dataSource.getSentinel();
+        return sentinel != null && CollectionUtils.nonEmpty(sentinel.getNodes());
+    }
+
+    /**
+     * 是否为集群模式
+     *
+     * @param dataSource
+     */
+    private boolean isCluster(RedisMessageProperties dataSource) {
+        RedisMessageProperties.Cluster cluster = dataSource.getCluster();
+        return cluster != null && CollectionUtils.nonEmpty(cluster.getNodes());
+    }
+
     /**
      * 获取连接池配置
      *
@@ -129,13 +463,114 @@ public class RedisTemplateRegister implements BeanFactoryAware, InstantiationAwa
      * @param dataSource
      */
     private RedisStandaloneConfiguration getRedisConfig(RedisMessageProperties dataSource) {
+        ConnectionInfo connectionInfo = getConnectionInfo(dataSource);
         RedisStandaloneConfiguration redisConfig = new RedisStandaloneConfiguration();
-        redisConfig.setHostName(dataSource.getHost());
-        redisConfig.setPort(dataSource.getPort());
+        redisConfig.setHostName(connectionInfo.getHost());
+        redisConfig.setPort(connectionInfo.getPort());
         redisConfig.setUsername(dataSource.getUsername());
-        redisConfig.setPassword(RedisPassword.of(dataSource.getPassword()));
+        redisConfig.setPassword(RedisPassword.of(connectionInfo.getPassword()));
         redisConfig.setDatabase(dataSource.getDatabase());
         return redisConfig;
     }
 
+    /**
+     * 获取连接信息
+     * 配置了url时，url中的host、port、password和ssl覆盖对应的配置
+     *
+     * @param dataSource
+     */
+    private ConnectionInfo getConnectionInfo(RedisMessageProperties dataSource) {
+        if (!StringUtils.hasText(dataSource.getUrl())) {
+            return new ConnectionInfo(dataSource.getHost(), dataSource.getPort(), dataSource.getPassword(), false);
+        }
+        try {
+            URI uri = new URI(dataSource.getUrl());
+            String scheme = uri.getScheme();
+            if (!"redis".equals(scheme) && !"rediss".equals(scheme)) {
+                throw new IllegalArgumentException("invalid redis url: " + dataSource.getUrl());
+            }
+            String password = null;
+            if (uri.getUserInfo() != null) {
+                String userInfo = uri.getUserInfo();
+                int index = userInfo.indexOf(':');
+                password = index >= 0 ? userInfo.substring(index + 1) : userInfo;
+            }
+            int port = uri.getPort() > 0 ? uri.getPort() : RedisURI.DEFAULT_REDIS_PORT;
+            return new ConnectionInfo(uri.getHost(), port, password, "rediss".equals(scheme));
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("malformed redis url: " + dataSource.getUrl(), e);
+        }
+    }
+
+    /**
+     * 获取redis哨兵连接配置
+     *
+     * @param dataSource
+     */
+    private RedisSentinelConfiguration getSentinelConfig(RedisMessageProperties dataSource) {
+        RedisMessageProperties.Sentinel sentinel = dataSource.getSentinel();
+        RedisSentinelConfiguration sentinelConfig = new RedisSentinelConfiguration(sentinel.getMaster(),
+                new HashSet<>(sentinel.getNodes()));
+        sentinelConfig.setUsername(dataSource.getUsername());
+        sentinelConfig.setPassword(RedisPassword.of(dataSource.getPassword()));
+        sentinelConfig.setSentinelPassword(RedisPassword.of(sentinel.getPassword()));
+        sentinelConfig.setDatabase(dataSource.getDatabase());
+        return sentinelConfig;
+    }
+
+    /**
+     * 获取redis集群连接配置
+     * 集群模式下不支持选择database
+     *
+     * @param dataSource
+     */
+    private RedisClusterConfiguration getClusterConfig(RedisMessageProperties dataSource) {
+        RedisMessageProperties.Cluster cluster = dataSource.getCluster();
+        RedisClusterConfiguration clusterConfig = new RedisClusterConfiguration(cluster.getNodes());
+        if (cluster.getMaxRedirects() != null) {
+            clusterConfig.setMaxRedirects(cluster.getMaxRedirects());
+        }
+        clusterConfig.setUsername(dataSource.getUsername());
+        clusterConfig.setPassword(RedisPassword.of(dataSource.getPassword()));
+        return clusterConfig;
+    }
+
+    /**
+     * redis连接信息
+     */
+    private static class ConnectionInfo {
+
+        private final String host;
+
+        private final int port;
+
+        private final String password;
+
+        private final boolean ssl;
+
+        ConnectionInfo(String host, int port, String password, boolean ssl) {
+            this.host = host;
+            this.port = port;
+            this.password = password;
+            this.ssl = ssl;
+        }
+
+        String getHost() {
+            return host;
+        }
+
+        int getPort() {
+            return port;
+        }
+
+        String getPassword() {
+            return password;
+        }
+
+        boolean isSsl() {
+            return ssl;
+        }
+
+    }
+
 }
@@ -0,0 +1,444 @@
+package com.wpx.service;
+
+import com.wpx.util.RedisAsyncBinaryCacheUtils;
+import com.wpx.util.RedisAsyncCacheUtils;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @Author: 不会飞的小鹏
+ * @Description: 在RedisAsyncCacheUtils的基础上封装，将数据序列化
+ * 结果的反序列化在指定的线程池中执行，不占用Lettuce的I/O线程，序列化方式与对应数据源的RedisBaseService一致
+ * 对象方法通过byte[]读写，不经过String
+ * 开启 operations.codec.direct-decode 时，单个key的读取在Lettuce的I/O线程上直接从响应缓冲区解码，不复制为byte[]，也不切换线程
+ */
+public class RedisAsyncBaseService implements AutoCloseable {
+
+    private final RedisAsyncCacheUtils redisAsyncCacheUtils;
+
+    /**
+     * 对象方法通过byte[]读写
+     */
+    private final RedisAsyncBinaryCacheUtils binaryCacheUtils;
+
+    private final RedisBaseService redisBaseService;
+
+    /**
+     * 反序列化使用的线程池
+     */
+    private final Executor executor;
+
+    /**
+     * 由当前对象创建的线程池，关闭时一并关闭
+     */
+    private final ExecutorService ownedExecutor;
+
+    /**
+     * 是否直接从响应缓冲区解码
+     */
+    private final boolean directDecode;
+
+    /**
+     * 缓存3天
+     */
+    private static final Long TTL = 3L * 24 * 60 * 60;
+
+    /**
+     * @param redisAsyncCacheUtils
+     * @param redisBaseService
+     * @param executorThreads  反序列化线程数，小于等于0时使用公共的ForkJoinPool
+     */
+    public RedisAsyncBaseService(RedisAsyncCacheUtils redisAsyncCacheUtils, RedisBaseService redisBaseService,
+                                 int executorThreads) {
+        this.redisAsyncCacheUtils = redisAsyncCacheUtils;
+        this.binaryCacheUtils = redisAsyncCacheUtils.getBinaryCacheUtils();
+        this.redisBaseService = redisBaseService;
+        this.directDecode = redisBaseService.getOperations().getCodec().isDirectDecode();
+        if (executorThreads > 0) {
+            AtomicInteger threadIndex = new AtomicInteger();
+            this.ownedExecutor = Executors.newFixedThreadPool(executorThreads, runnable -> {
+                Thread thread = new Thread(runnable, "redis-async-decode-" + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.executor = ownedExecutor;
+        } else {
+            this.ownedExecutor = null;
+            this.executor = ForkJoinPool.commonPool();
+        }
+    }
+
+    /**
+     * @param redisAsyncCacheUtils
+     * @param redisBaseService
+     * @param executor  反序列化使用的线程池，由调用方负责关闭
+     */
+    public RedisAsyncBaseService(RedisAsyncCacheUtils redisAsyncCacheUtils, RedisBaseService redisBaseService,
+                                 Executor executor) {
+        this.redisAsyncCacheUtils = redisAsyncCacheUtils;
+        this.binaryCacheUtils = redisAsyncCacheUtils.getBinaryCacheUtils();
+        this.redisBaseService = redisBaseService;
+        this.directDecode = redisBaseService.getOperations().getCodec().isDirectDecode();
+        this.executor = executor;
+        this.ownedExecutor = null;
+    }
+
+    /**
+     * 为key设置过期时间
+     * 默认3天
+     *
+     * @param    key
+     */
+    public CompletableFuture<Boolean> expire(String key) {
+        return expire(key, TTL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 为key设置过期时间
+     *
+     * @param    key
+     * @param    timeout
+     * @param    timeUnit
+     */
+    public CompletableFuture<Boolean> expire(String key, long timeout, TimeUnit timeUnit) {
+        return redisAsyncCacheUtils.expire(key, timeout, timeUnit);
+    }
+
+    /**
+     * 从Redis value中获取值
+     *
+     * @param key
+     */
+    public CompletableFuture<String> getForValue(String key) {
+        return redisAsyncCacheUtils.getForValue(key);
+    }
+
+    /**
+     * 从Redis value中获取值并转换为对应对象
+     *
+     * @param key
+     * @param target
+     */
+    public <T> CompletableFuture<T> getForValue(String key, Class<T> target) {
+        if (directDecode) {
+            return binaryCacheUtils.getForValue(key, buffer -> redisBaseService.bufferToObject(buffer, target));
+        }
+        return binaryCacheUtils.getForValue(key)
+                .thenApplyAsync(value -> redisBaseService.bytesToObject(value, target), executor);
+    }
+
+    /**
+     * 从Redis value中获取值并转换为对应对象
+     * 值不存在时为Optional.empty()，不创建对象，不受 operations.miss-value 影响
+     *
+     * @param key
+     * @param target
+     */
+    public <T> CompletableFuture<Optional<T>> findForValue(String key, Class<T> target) {
+        if (directDecode) {
+            return binaryCacheUtils.getForValue(key, buffer -> redisBaseService.bufferToOptional(buffer, target));
+        }
+        return binaryCacheUtils.getForValue(key)
+                .thenApplyAsync(value -> redisBaseService.bytesToOptional(value, target), executor);
+    }
+
+    /**
+     * 从Redis value中获取值并转换为对应的对象list
+     *
+     * @param key
+     * @param target
+     */
+    public <T> CompletableFuture<List<T>> listForValue(String key, Class<T> target) {
+        if (directDecode) {
+            return binaryCacheUtils.getForValue(key, buffer -> redisBaseService.bufferToList(buffer, target));
+        }
+        return binaryCacheUtils.getForValue(key)
+                .thenApplyAsync(value -> redisBaseService.bytesToList(value, target), executor);
+    }
+
+    /**
+     * 从Redis value中批量获取值并转换为对应对象
+     *
+     * @param keys
+     * @param target
+     * @return CompletableFuture<List<T>>  与keys顺序一致的对象
+     */
+    public <T> CompletableFuture<List<T>> multiGetForValue(Collection<String> keys, Class<T> target) {
+        return binaryCacheUtils.multiGetForValue(keys)
+                .thenApplyAsync(values -> redisBaseService.listBytesToList(values, target), executor);
+    }
+
+    /**
+     * 将数据存放到redis value
+     *
+     * @param key
+     * @param value
+     */
+    public CompletableFuture<Void> setForValue(String key, String value) {
+        return redisAsyncCacheUtils.setForValue(key, value);
+    }
+
+    /**
+     * 将对象存放到redis value
+     *
+     * @param key
+     * @param data
+     */
+    public <T> CompletableFuture<Void> setForValue(String key, T data) {
+        return binaryCacheUtils.setForValue(key, redisBaseService.objectToBytes(data));
+    }
+
+    /**
+     * redis value 赋值并添加过期时间
+     * 默认3天
+     *
+     * @param key  Redis key
+     * @param data  需要存放的对象
+     */
+    public <T> CompletableFuture<Void> setForValueTtl(String key, T data) {
+        return setForValueTtl(key, data, TTL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * redis value 赋值并添加过期时间
+     *
+     * @param key  Redis key
+     * @param data  需要存放的对象
+     * @param timeout  过期时间
+     * @param timeUnit  时间单位
+     */
+    public <T> CompletableFuture<Void> setForValueTtl(String key, T data, Long timeout, TimeUnit timeUnit) {
+        return binaryCacheUtils.setForValueTtl(key, redisBaseService.objectToBytes(data), timeout, timeUnit);
+    }
+
+    /**
+     * 对Redis的key进行自增
+     *
+     * @param    key  Redis key
+     * @param    delta  自增的数值
+     */
+    public CompletableFuture<Long> incrementForValue(String key, long delta) {
+        return redisAsyncCacheUtils.incrementForValue(key, delta);
+    }
+
+    /**
+     * 从Redis hash中获取值
+     *
+     * @param key
+     * @param hashKey
+     */
+    public CompletableFuture<String> getForHash(String key, String hashKey) {
+        return redisAsyncCacheUtils.getForHash(key, hashKey);
+    }
+
+    /**
+     * 从Redis hash中获取值并转换为对应对象
+     *
+     * @param key
+     * @param hashKey
+     * @param target
+     */
+    public <T> CompletableFuture<T> getForHash(String key, String hashKey, Class<T> target) {
+        if (directDecode) {
+            return binaryCacheUtils.getForHash(key, hashKey,
+                    buffer -> redisBaseService.bufferToObject(buffer, target));
+        }
+        return binaryCacheUtils.getForHash(key, hashKey)
+                .thenApplyAsync(value -> redisBaseService.bytesToObject(value, target), executor);
+    }
+
+    /**
+     * 从Redis hash中获取值并转换为对应对象
+     * 值不存在时为Optional.empty()，不创建对象，不受 operations.miss-value 影响
+     *
+     * @param key
+     * @param hashKey
+     * @param target
+     */
+    public <T> CompletableFuture<Optional<T>> findForHash(String key, String hashKey, Class<T> target) {
+        if (directDecode) {
+            return binaryCacheUtils.getForHash(key, hashKey,
+                    buffer -> redisBaseService.bufferToOptional(buffer, target));
+        }
+        return binaryCacheUtils.getForHash(key, hashKey)
+                .thenApplyAsync(value -> redisBaseService.bytesToOptional(value, target), executor);
+    }
+
+    /**
+     * 将对象保存到redis hash
+     *
+     * @param key
+     * @param hashKey
+     * @param data
+     */
+    public <T> CompletableFuture<Boolean> putForHash(String key, String hashKey, T data) {
+        return binaryCacheUtils.putForHash(key, hashKey, redisBaseService.objectToBytes(data));
+    }
+
+    /**
+     * 从Redis hash中批量获取值并转换为对应对象集合
+     *
+     * @param key
+     * @param hashKeys
+     * @param target
+     * @return CompletableFuture<List<T>>  与hashKeys顺序一致的对象
+     */
+    public <T> CompletableFuture<List<T>> multiGetForHash(String key, Collection<String> hashKeys,
+                                                          Class<T> target) {
+        if (directDecode) {
+            return binaryCacheUtils.multiGetForHash(key, hashKeys,
+                    buffer -> redisBaseService.bufferToObject(buffer, target));
+        }
+        return binaryCacheUtils.multiGetForHash(key, hashKeys)
+                .thenApplyAsync(values -> redisBaseService.listBytesToList(values, target), executor);
+    }
+
+    /**
+     * 从Redis hash中获取所有的value并转换为对应对象集合
+     *
+     * @param key
+     * @param target
+     */
+    public <T> CompletableFuture<List<T>> valuesForHash(String key, Class<T> target) {
+        if (directDecode) {
+            return binaryCacheUtils.valuesForHash(key, buffer -> redisBaseService.bufferToObject(buffer, target));
+        }
+        return binaryCacheUtils.valuesForHash(key)
+                .thenApplyAsync(values -> redisBaseService.listBytesToList(values, target), executor);
+    }
+
+    /**
+     * 从Redis hash中获取所有的entry并将value转换为对应对象
+     *
+     * @param key
+     * @param target
+     */
+    public <T> CompletableFuture<Map<String, T>> entriesForHash(String key, Class<T> target) {
+        if (directDecode) {
+            return binaryCacheUtils.entriesForHash(key, buffer -> redisBaseService.bufferToObject(buffer, target));
+        }
+        return binaryCacheUtils.entriesForHash(key)
+                .thenApplyAsync(entries -> redisBaseService.conversionMap(entries, target), executor);
+    }
+
+    /**
+     * 从Redis list 左端pop元素并转换为对应对象
+     *
+     * @param key
+     * @param target
+     */
+    public <T> CompletableFuture<T> leftPopForList(String key, Class<T> target) {
+        if (directDecode) {
+            return binaryCacheUtils.leftPopForList(key, buffer -> redisBaseService.bufferToObject(buffer, target));
+        }
+        return binaryCacheUtils.leftPopForList(key)
+                .thenApplyAsync(value -> redisBaseService.bytesToObject(value, target), executor);
+    }
+
+    /**
+     * 从Redis list 右端pop元素并转换为对应对象
+     *
+     * @param key
+     * @param target
+     */
+    public <T> CompletableFuture<T> rightPopForList(String key, Class<T> target) {
+        if (directDecode) {
+            return binaryCacheUtils.rightPopForList(key, buffer -> redisBaseService.bufferToObject(buffer, target));
+        }
+        return binaryCacheUtils.rightPopForList(key)
+                .thenApplyAsync(value -> redisBaseService.bytesToObject(value, target), executor);
+    }
+
+    /**
+     * 从Redis list 右端push对象
+     *
+     * @param key
+     * @param data
+     */
+    public <T> CompletableFuture<Long> rightPushForList(String key, T data) {
+        return binaryCacheUtils.rightPushForList(key, redisBaseService.objectToBytes(data));
+    }
+
+    /**
+     * 从Redis list 批量获取元素并转换为对应对象集合
+     *
+     * @param key
+     * @param start
+     * @param end
+     * @param target
+     */
+    public <T> CompletableFuture<List<T>> rangeForList(String key, long start, long end, Class<T> target) {
+        if (directDecode) {
+            return binaryCacheUtils.rangeForList(key, start, end,
+                    buffer -> redisBaseService.bufferToObject(buffer, target));
+        }
+        return binaryCacheUtils.rangeForList(key, start, end)
+                .thenApplyAsync(values -> redisBaseService.listBytesToList(values, target), executor);
+    }
+
+    /**
+     * 向Redis set添加对象
+     *
+     * @param key
+     * @param data
+     */
+    public <T> CompletableFuture<Long> addForSet(String key, T data) {
+        return binaryCacheUtils.addForSet(key, redisBaseService.objectToBytes(data));
+    }
+
+    /**
+     * 从Redis set pop元素并转换为对应对象
+     *
+     * @param key
+     * @param target
+     */
+    public <T> CompletableFuture<T> popForSet(String key, Class<T> target) {
+        if (directDecode) {
+            return binaryCacheUtils.popForSet(key, buffer -> redisBaseService.bufferToObject(buffer, target));
+        }
+        return binaryCacheUtils.popForSet(key)
+                .thenApplyAsync(value -> redisBaseService.bytesToObject(value, target), executor);
+    }
+
+    /**
+     * 从Redis set 获取所有的元素并转换为对应的对象
+     *
+     * @param key
+     * @param target
+     */
+    public <T> CompletableFuture<Set<T>> membersForSet(String key, Class<T> target) {
+        if (directDecode) {
+            return binaryCacheUtils.membersForSet(key, buffer -> redisBaseService.bufferToObject(buffer, target))
+                    .thenApply(HashSet::new);
+        }
+        return binaryCacheUtils.membersForSet(key)
+                .thenApplyAsync(values -> redisBaseService.setBytesToSet(values, target), executor);
+    }
+
+    /**
+     * 从Redis 中删除key
+     *
+     * @param keys
+     */
+    public CompletableFuture<Long> delete(String... keys) {
+        return redisAsyncCacheUtils.delete(keys);
+    }
+
+    /**
+     * 关闭当前对象创建的线程池
+     */
+    @Override
+    public void close() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+}
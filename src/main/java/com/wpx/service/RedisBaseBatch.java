@@ -0,0 +1,312 @@
+package com.wpx.service;
+
+import com.wpx.util.RedisBatch;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author: 不会飞的小鹏
+ * @Description: 在RedisBatch的基础上封装，将数据序列化，并将结果转换为对应对象
+ * 对象与RedisBaseService一样通过ValueCodec编码为byte[]
+ */
+public class RedisBaseBatch {
+
+    private final RedisBatch redisBatch;
+
+    private final RedisBaseService redisBaseService;
+
+    RedisBaseBatch(RedisBatch redisBatch, RedisBaseService redisBaseService) {
+        this.redisBatch = redisBatch;
+        this.redisBaseService = redisBaseService;
+    }
+
+    /**
+     * 为key设置过期时间
+     *
+     * @param    key
+     * @param    timeout
+     * @param    timeUnit
+     */
+    public RedisBatch.Response<Boolean> expire(String key, long timeout, TimeUnit timeUnit) {
+        return redisBatch.expire(key, timeout, timeUnit);
+    }
+
+    /**
+     * 为key设置过期时间
+     * 单位默认为秒
+     *
+     * @param    key
+     * @param    timeout
+     */
+    public RedisBatch.Response<Boolean> expire(String key, long timeout) {
+        return redisBatch.expire(key, timeout);
+    }
+
+    /**
+     * 从Redis 中删除某个key
+     *
+     * @param    key
+     */
+    public RedisBatch.Response<Long> delete(String key) {
+        return redisBatch.delete(key);
+    }
+
+    /**
+     * 从Redis value中获取值
+     *
+     * @param key
+     */
+    public RedisBatch.Response<String> getForValue(String key) {
+        return redisBatch.getForValue(key);
+    }
+
+    /**
+     * 从Redis value中获取值并转换为对应对象
+     *
+     * @param key
+     * @param target
+     */
+    public <T> RedisBatch.Response<T> getForValue(String key, Class<T> target) {
+        return redisBatch.getBytesForValue(key).map(value -> redisBaseService.bytesToObject(value, target));
+    }
+
+    /**
+     * 从Redis value中获取值并转换为对应对象，值不存在时为Optional.empty()
+     *
+     * @param key
+     * @param target
+     */
+    public <T> RedisBatch.Response<Optional<T>> findForValue(String key, Class<T> target) {
+        return redisBatch.getBytesForValue(key).map(value -> redisBaseService.bytesToOptional(value, target));
+    }
+
+    /**
+     * 将数据存放到redis value
+     *
+     * @param key
+     * @param value
+     */
+    public RedisBatch.Response<Boolean> setForValue(String key, String value) {
+        return redisBatch.setForValue(key, value);
+    }
+
+    /**
+     * 将数据存放到redis value
+     *
+     * @param key
+     * @param data
+     */
+    public <T> RedisBatch.Response<Boolean> setForValue(String key, T data) {
+        return redisBatch.setForValue(key, redisBaseService.objectToBytes(data));
+    }
+
+    /**
+     * redis value 赋值并添加过期时间
+     *
+     * @param key  Redis key
+     * @param value  需要存放的值
+     * @param timeout  过期时间
+     * @param timeUnit  时间单位
+     */
+    public RedisBatch.Response<Boolean> setForValueTtl(String key, String value, long timeout, TimeUnit timeUnit) {
+        return redisBatch.setForValueTtl(key, value, timeout, timeUnit);
+    }
+
+    /**
+     * redis value 赋值并添加过期时间
+     *
+     * @param key  Redis key
+     * @param data  需要存放的对象
+     * @param timeout  过期时间
+     * @param timeUnit  时间单位
+     */
+    public <T> RedisBatch.Response<Boolean> setForValueTtl(String key, T data, long timeout, TimeUnit timeUnit) {
+        return redisBatch.setForValueTtl(key, redisBaseService.objectToBytes(data), timeout, timeUnit);
+    }
+
+    /**
+     * 对Redis的key进行自增
+     *
+     * @param    key  Redis key
+     * @param    delta  自增的数值
+     */
+    public RedisBatch.Response<Long> incrementForValue(String key, long delta) {
+        return redisBatch.incrementForValue(key, delta);
+    }
+
+    /**
+     * 从Redis hash中获取值
+     *
+     * @param key
+     * @param hashKey
+     */
+    public RedisBatch.Response<String> getForHash(String key, String hashKey) {
+        return redisBatch.getForHash(key, hashKey);
+    }
+
+    /**
+     * 从Redis hash中获取值并转换为对应对象
+     *
+     * @param key
+     * @param hashKey
+     * @param target
+     */
+    public <T> RedisBatch.Response<T> getForHash(String key, String hashKey, Class<T> target) {
+        return redisBatch.getBytesForHash(key, hashKey).map(value -> redisBaseService.bytesToObject(value, target));
+    }
+
+    /**
+     * 从Redis hash中获取值并转换为对应对象，值不存在时为Optional.empty()
+     *
+     * @param key
+     * @param hashKey
+     * @param target
+     */
+    public <T> RedisBatch.Response<Optional<T>> findForHash(String key, String hashKey, Class<T> target) {
+        return redisBatch.getBytesForHash(key, hashKey)
+                .map(value -> redisBaseService.bytesToOptional(value, target));
+    }
+
+    /**
+     * 将数据保存到redis hash
+     *
+     * @param    key  Redis key
+     * @param    hashKey  hash中的 键值对key
+     * @param    value  hash中的 键值对value
+     */
+    public RedisBatch.Response<Boolean> putForHash(String key, String hashKey, String value) {
+        return redisBatch.putForHash(key, hashKey, value);
+    }
+
+    /**
+     * 将对象保存到redis hash
+     *
+     * @param    key  Redis key
+     * @param    hashKey  hash中的 键值对key
+     * @param    data  hash中的 键值对value
+     */
+    public <T> RedisBatch.Response<Boolean> putForHash(String key, String hashKey, T data) {
+        return redisBatch.putForHash(key, hashKey, redisBaseService.objectToBytes(data));
+    }
+
+    /**
+     * redis hash 累加
+     *
+     * @param    key  Redis key
+     * @param    hashKey  hash中的 要对value累加的键值对key
+     * @param    delta  累加的数值
+     */
+    public RedisBatch.Response<Long> incrementForHash(String key, String hashKey, long delta) {
+        return redisBatch.incrementForHash(key, hashKey, delta);
+    }
+
+    /**
+     * 从redis hash 中删除元素
+     *
+     * @param    key  Redis key
+     * @param    hashKey  hash中的 键值对key
+     */
+    public RedisBatch.Response<Long> deleteForHash(String key, String hashKey) {
+        return redisBatch.deleteForHash(key, hashKey);
+    }
+
+    /**
+     * 从Redis list左端push数据
+     *
+     * @param    key  Redis key
+     * @param    value  存入list中的值
+     */
+    public RedisBatch.Response<Long> leftPushForList(String key, String value) {
+        return redisBatch.leftPushForList(key, value);
+    }
+
+    /**
+     * 从Redis list左端push对象
+     *
+     * @param    key  Redis key
+     * @param    data  存入list中的对象
+     */
+    public <T> RedisBatch.Response<Long> leftPushForList(String key, T data) {
+        return redisBatch.leftPushForList(key, redisBaseService.objectToBytes(data));
+    }
+
+    /**
+     * 从Redis list右端push数据
+     *
+     * @param    key  Redis key
+     * @param    value  存入list中的值
+     */
+    public RedisBatch.Response<Long> rightPushForList(String key, String value) {
+        return redisBatch.rightPushForList(key, value);
+    }
+
+    /**
+     * 从Redis list右端push对象
+     *
+     * @param    key  Redis key
+     * @param    data  存入list中的对象
+     */
+    public <T> RedisBatch.Response<Long> rightPushForList(String key, T data) {
+        return redisBatch.rightPushForList(key, redisBaseService.objectToBytes(data));
+    }
+
+    /**
+     * 向Redis Set中添加元素
+     *
+     * @param    key
+     * @param    value
+     */
+    public RedisBatch.Response<Long> addForSet(String key, String value) {
+        return redisBatch.addForSet(key, value);
+    }
+
+    /**
+     * 向Redis Set中添加对象
+     *
+     * @param    key
+     * @param    data
+     */
+    public <T> RedisBatch.Response<Long> addForSet(String key, T data) {
+        return redisBatch.addForSet(key, redisBaseService.objectToBytes(data));
+    }
+
+    /**
+     * 从 Redis set 中移除元素
+     *
+     * @param    key
+     * @param    value
+     */
+    public RedisBatch.Response<Long> removeForSet(String key, String value) {
+        return redisBatch.removeForSet(key, value);
+    }
+
+    /**
+     * 累加redis sort set 的数值
+     *
+     * @param    key  Redis key
+     * @param    value  需要累加的value -- 累加项
+     * @param    score  累加的数值 -- 分数
+     */
+    public RedisBatch.Response<Double> incrementScoreForZSet(String key, String value, double score) {
+        return redisBatch.incrementScoreForZSet(key, value, score);
+    }
+
+    /**
+     * 已添加的操作数量
+     */
+    public int size() {
+        return redisBatch.size();
+    }
+
+    /**
+     * 通过pipeline执行所有已添加的操作
+     *
+     * @return   List<Object>  按添加顺序返回所有操作未经转换的结果
+     */
+    public List<Object> execute() {
+        return redisBatch.execute();
+    }
+
+}
@@ -1,25 +1,103 @@
 package com.wpx.service;
 
-import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson.JSONArray;
+import com.wpx.codec.ClassMetadata;
+import com.wpx.codec.ValueCodec;
+import com.wpx.codec.ValueCodecs;
+import com.wpx.property.RedisMessageProperties;
 import com.wpx.util.CollectionUtils;
+import com.wpx.util.RedisBatch;
+import com.wpx.util.RedisBinaryCacheUtils;
 import com.wpx.util.RedisCacheUtils;
-import org.springframework.util.StringUtils;
+import com.wpx.util.RedisLock;
+import com.wpx.util.RedisLockClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.ZSetOperations;
 
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @Author: 不会飞的小鹏
  * @Description: 在RedisCacheUtils的基础上封装，将数据序列化
+ * 对象通过ValueCodec编码为byte[]保存，不经过String；String参数的方法仍按字符串读写
  */
-public class RedisBaseService {
+public class RedisBaseService implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedisBaseService.class);
+
+    private static final byte[] EMPTY = new byte[0];
 
     private RedisCacheUtils redisCacheUtils;
 
+    private RedisBinaryCacheUtils binaryCacheUtils;
+
+    private ValueCodec valueCodec;
+
+    /**
+     * getOrLoad的分布式锁，为null时不使用分布式锁
+     */
+    private RedisLockClient redisLockClient;
+
+    /**
+     * 使用数据源 operations.codec 配置的编解码器
+     *
+     * @param redisCacheUtils
+     */
     public RedisBaseService(RedisCacheUtils redisCacheUtils) {
+        this(redisCacheUtils, (RedisLockClient) null);
+    }
+
+    /**
+     * 使用数据源 operations.codec 配置的编解码器
+     *
+     * @param redisCacheUtils
+     * @param redisLockClient  开启 loader.distributed-lock 时getOrLoad使用的锁
+     */
+    public RedisBaseService(RedisCacheUtils redisCacheUtils, RedisLockClient redisLockClient) {
+        this(redisCacheUtils, ValueCodecs.create(redisCacheUtils.getOperations().getCodec()), redisLockClient);
+    }
+
+    /**
+     * @param redisCacheUtils
+     * @param valueCodec  对象与byte[]之间的编解码器
+     */
+    public RedisBaseService(RedisCacheUtils redisCacheUtils, ValueCodec valueCodec) {
+        this(redisCacheUtils, valueCodec, null);
+    }
+
+    /**
+     * @param redisCacheUtils
+     * @param valueCodec  对象与byte[]之间的编解码器
+     * @param redisLockClient  开启 loader.distributed-lock 时getOrLoad使用的锁，为null时不使用分布式锁
+     */
+    public RedisBaseService(RedisCacheUtils redisCacheUtils, ValueCodec valueCodec, RedisLockClient redisLockClient) {
         this.redisCacheUtils = redisCacheUtils;
+        this.binaryCacheUtils = redisCacheUtils.getBinaryCacheUtils();
+        this.valueCodec = valueCodec;
+        this.redisLockClient = redisLockClient;
+        if (redisLockClient == null && redisCacheUtils.getOperations().getLoader().isDistributedLock()) {
+            LOGGER.warn("loader.distributed-lock is enabled but no RedisLockClient is given, getOrLoad will not lock");
+        }
     }
 
     /**
@@ -28,49 +106,187 @@ public class RedisBaseService {
     private static final Long TTL = 3L * 24 * 60 * 60;
 
     /**
-     * 字符串转换为对象
+     * getOrLoad分布式锁的key后缀
+     */
+    private static final String LOAD_LOCK_SUFFIX = ":load-lock";
+
+    /**
+     * 正在加载的key，同一个key的并发未命中共用一次加载
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> loadings = new ConcurrentHashMap<>();
+
+    /**
+     * 最多记录加载耗时的key数量，超过时清空
+     */
+    private static final int MAX_LOAD_TIMES = 10000;
+
+    /**
+     * 每个key最近一次加载的耗时  毫秒
+     */
+    private final ConcurrentHashMap<String, Long> loadTimes = new ConcurrentHashMap<>();
+
+    /**
+     * 所有key加载耗时的平均值  毫秒，没有记录的key使用该值
+     */
+    private volatile long averageLoadTime;
+
+    /**
+     * 正在后台刷新的key
+     */
+    private final Set<String> refreshings = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 后台刷新的线程池，首次刷新时创建
+     */
+    private volatile ThreadPoolExecutor refreshExecutor;
+
+    /**
+     * 并行解码时每个任务至少解码的元素数量
+     */
+    private static final int MIN_DECODE_BATCH = 256;
+
+    /**
+     * 并行解码的线程池，首次并行解码时创建
+     */
+    private volatile ForkJoinPool decodePool;
+
+    /**
+     * 获取当前使用的编解码器
+     *
+     * @return ValueCodec
+     */
+    public ValueCodec getValueCodec() {
+        return valueCodec;
+    }
+
+    /**
+     * 当前数据源的配置
+     */
+    RedisMessageProperties.Operations getOperations() {
+        return redisCacheUtils.getOperations();
+    }
+
+    /**
+     * byte[]转换为对象，值不存在或为空时按 operations.miss-value 返回
      *
-     * @param str
+     * @param bytes
      * @param target
      */
-    private <T> T strToObject(String str, Class<T> target) {
-        try {
-            return StringUtils.isEmpty(str) ? target.newInstance() : JSON.parseObject(str, target);
-        } catch (IllegalAccessException | InstantiationException e) {
-            throw new RuntimeException(e);
+    <T> T bytesToObject(byte[] bytes, Class<T> target) {
+        return bytes == null || bytes.length == 0 ? missValue(target) : valueCodec.decode(bytes, target);
+    }
+
+    /**
+     * 值不存在或为空时返回的对象
+     * 构造器通过ClassMetadata按类缓存，不再每次反射调用 newInstance
+     *
+     * @param target
+     */
+    <T> T missValue(Class<T> target) {
+        switch (redisCacheUtils.getOperations().getMissValue()) {
+            case NULL:
+                return null;
+            case SHARED_INSTANCE:
+                return ClassMetadata.of(target).emptyInstance();
+            default:
+                return ClassMetadata.of(target).newInstance();
+        }
+    }
+
+    /**
+     * byte[]转换为Optional，值不存在或为空时为Optional.empty()
+     *
+     * @param bytes
+     * @param target
+     */
+    <T> Optional<T> bytesToOptional(byte[] bytes, Class<T> target) {
+        return bytes == null || bytes.length == 0 ? Optional.empty()
+                : Optional.ofNullable(valueCodec.decode(bytes, target));
+    }
+
+    /**
+     * 从响应缓冲区直接转换为对象
+     *
+     * @param buffer
+     * @param target
+     */
+    <T> T bufferToObject(ByteBuffer buffer, Class<T> target) {
+        if (buffer == null || !buffer.hasRemaining()) {
+            return missValue(target);
         }
+        return valueCodec.decode(buffer, target);
+    }
+
+    /**
+     * 从响应缓冲区直接转换为Optional
+     *
+     * @param buffer
+     * @param target
+     */
+    <T> Optional<T> bufferToOptional(ByteBuffer buffer, Class<T> target) {
+        return buffer == null || !buffer.hasRemaining() ? Optional.empty()
+                : Optional.ofNullable(valueCodec.decode(buffer, target));
+    }
+
+    /**
+     * 从响应缓冲区直接转换为list
+     *
+     * @param buffer
+     * @param target
+     */
+    <T> List<T> bufferToList(ByteBuffer buffer, Class<T> target) {
+        return buffer == null || !buffer.hasRemaining() ? new ArrayList<>() : valueCodec.decodeList(buffer, target);
+    }
+
+    /**
+     * 对象转换为byte[]
+     *
+     * @param data
+     */
+    <T> byte[] objectToBytes(T data) {
+        return Objects.isNull(data) ? EMPTY : valueCodec.encode(data);
     }
 
     /**
-     * 字符串转换为list
+     * byte[]转换为list
      *
-     * @param str
+     * @param bytes
      * @param target
      */
-    private <T> List<T> strToList(String str, Class<T> target) {
-        return StringUtils.isEmpty(str) ? new ArrayList<>() : JSONArray.parseArray(str, target);
+    <T> List<T> bytesToList(byte[] bytes, Class<T> target) {
+        return bytes == null || bytes.length == 0 ? new ArrayList<>() : valueCodec.decodeList(bytes, target);
     }
 
     /**
-     * set转换，将字符串set集合转换为对应的对象集合
+     * set转换，将byte[]集合转换为对应的对象集合
      *
-     * @param strList
+     * @param bytesList
      * @param target
      */
-    private <T> Set<T> setStrToSet(Set<String> strList, Class<T> target) {
-        return CollectionUtils.isEmpty(strList) ? new HashSet<>()
-                : strList.stream().map(s -> strToObject(s, target)).collect(Collectors.toSet());
+    <T> Set<T> setBytesToSet(Collection<byte[]> bytesList, Class<T> target) {
+        if (CollectionUtils.isEmpty(bytesList)) {
+            return new HashSet<>();
+        }
+        if (isParallelDecode(bytesList.size())) {
+            return new HashSet<>(decodeParallel(new ArrayList<>(bytesList), target));
+        }
+        return bytesList.stream().map(bytes -> bytesToObject(bytes, target)).collect(Collectors.toSet());
     }
 
     /**
-     * list转换,将字符串list集合转换为对应的对象集合
+     * list转换,将byte[] list集合转换为对应的对象集合
      *
-     * @param strList
+     * @param bytesList
      * @param target
      */
-    private <T> List<T> listStrToList(List<String> strList, Class<T> target) {
-        return CollectionUtils.isEmpty(strList) ? new ArrayList<>()
-                : strList.stream().map(s -> strToObject(s, target)).collect(Collectors.toList());
+    <T> List<T> listBytesToList(List<byte[]> bytesList, Class<T> target) {
+        if (CollectionUtils.isEmpty(bytesList)) {
+            return new ArrayList<>();
+        }
+        if (isParallelDecode(bytesList.size())) {
+            return decodeParallel(bytesList, target);
+        }
+        return bytesList.stream().map(bytes -> bytesToObject(bytes, target)).collect(Collectors.toList());
     }
 
     /**
@@ -79,14 +295,138 @@ public class RedisBaseService {
      * @param map
      * @param target
      */
-    private <T> Map<String, T> conversionMap(Map<String, String> map, Class<T> target) {
+    <T> Map<String, T> conversionMap(Map<String, byte[]> map, Class<T> target) {
         Map<String, T> resultMap = new HashMap<>();
         if (CollectionUtils.nonEmpty(map)) {
-            map.forEach((key, value) -> resultMap.put(key, strToObject(value, target)));
+            if (isParallelDecode(map.size())) {
+                List<String> keys = new ArrayList<>(map.size());
+                List<byte[]> values = new ArrayList<>(map.size());
+                map.forEach((key, value) -> {
+                    keys.add(key);
+                    values.add(value);
+                });
+                List<T> results = decodeParallel(values, target);
+                for (int i = 0; i < keys.size(); i++) {
+                    resultMap.put(keys.get(i), results.get(i));
+                }
+                return resultMap;
+            }
+            map.forEach((key, value) -> resultMap.put(key, bytesToObject(value, target)));
         }
         return resultMap;
     }
 
+    /**
+     * 元素数量达到 operations.parallel-decode.threshold 时并行解码
+     *
+     * @param size
+     */
+    private boolean isParallelDecode(int size) {
+        int threshold = redisCacheUtils.getOperations().getParallelDecode().getThreshold();
+        return threshold > 0 && size >= threshold;
+    }
+
+    /**
+     * 在专用的ForkJoinPool中并行解码，结果与bytesList的顺序一致
+     * 线程池已关闭时在当前线程解码
+     *
+     * @param bytesList
+     * @param target
+     */
+    @SuppressWarnings("unchecked")
+    private <T> List<T> decodeParallel(List<byte[]> bytesList, Class<T> target) {
+        List<byte[]> source = bytesList instanceof RandomAccess ? bytesList : new ArrayList<>(bytesList);
+        Object[] results = new Object[source.size()];
+        Function<byte[], T> decoder = bytes -> bytesToObject(bytes, target);
+        ForkJoinPool pool = decodePool();
+        int batchSize = Math.max(MIN_DECODE_BATCH, source.size() / (pool.getParallelism() * 4));
+        try {
+            pool.invoke(new DecodeTask(source, results, decoder, 0, source.size(), batchSize));
+        } catch (RejectedExecutionException e) {
+            new DecodeTask(source, results, decoder, 0, source.size(), source.size()).compute();
+        }
+        return (List<T>) new ArrayList<>(Arrays.asList(results));
+    }
+
+    /**
+     * 并行解码的线程池，线程数为 operations.parallel-decode.parallelism
+     */
+    private ForkJoinPool decodePool() {
+        ForkJoinPool pool = decodePool;
+        if (pool == null) {
+            synchronized (this) {
+                if (decodePool == null) {
+                    int parallelism = redisCacheUtils.getOperations().getParallelDecode().getParallelism();
+                    AtomicInteger threadIndex = new AtomicInteger();
+                    decodePool = new ForkJoinPool(parallelism > 0 ? parallelism
+                            : Runtime.getRuntime().availableProcessors(), forkJoinPool -> {
+                        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory
+                                .newThread(forkJoinPool);
+                        thread.setName("redis-parallel-decode-" + threadIndex.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }, null, false);
+                }
+                pool = decodePool;
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * 将[from, to)区间的元素解码到results的对应位置，区间超过batchSize时二分
+     */
+    private static final class DecodeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<byte[]> source;
+
+        private final Object[] results;
+
+        private final Function<byte[], ?> decoder;
+
+        private final int from;
+
+        private final int to;
+
+        private final int batchSize;
+
+        DecodeTask(List<byte[]> source, Object[] results, Function<byte[], ?> decoder, int from, int to,
+                   int batchSize) {
+            this.source = source;
+            this.results = results;
+            this.decoder = decoder;
+            this.from = from;
+            this.to = to;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= batchSize) {
+                for (int i = from; i < to; i++) {
+                    results[i] = decoder.apply(source.get(i));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new DecodeTask(source, results, decoder, from, middle, batchSize),
+                    new DecodeTask(source, results, decoder, middle, to, batchSize));
+        }
+
+    }
+
+
+    /**
+     * 创建批量操作
+     * 添加的操作在execute时通过pipeline一次性发送，对象会被序列化，结果可以转换为对应对象
+     *
+     * @return RedisBaseBatch
+     */
+    public RedisBaseBatch batch() {
+        return new RedisBaseBatch(redisCacheUtils.batch(), this);
+    }
 
     /**
      * 为key设置过期时间
@@ -139,8 +479,7 @@ public class RedisBaseService {
      * @param data
      */
     public <T> void setForValue(String key, T data) {
-        String value = Objects.isNull(data) ? "" : JSON.toJSONString(data);
-        redisCacheUtils.setForValue(key, value);
+        binaryCacheUtils.setForValue(key, objectToBytes(data));
     }
 
     /**
@@ -226,7 +565,386 @@ public class RedisBaseService {
      * @param target
      */
     public <T> T getForValue(String key, Class<T> target) {
-        return strToObject(redisCacheUtils.getForValue(key), target);
+        return bytesToObject(binaryCacheUtils.getForValue(key), target);
+    }
+
+    /**
+     * 从Redis value中获取值并转换为对应对象
+     * 值不存在时返回Optional.empty()，不创建对象，不受 operations.miss-value 影响
+     *
+     * @param key
+     * @param target
+     */
+    public <T> Optional<T> findForValue(String key, Class<T> target) {
+        return bytesToOptional(binaryCacheUtils.getForValue(key), target);
+    }
+
+    /**
+     * 从Redis value中获取对象，不存在时通过loader加载并写入Redis
+     * 默认3天
+     *
+     * @param key
+     * @param target
+     * @param loader  未命中时加载数据，返回null表示数据不存在
+     */
+    public <T> T getOrLoad(String key, Class<T> target, Supplier<T> loader) {
+        return getOrLoad(key, target, loader, TTL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 从Redis value中获取对象，不存在时通过loader加载并写入Redis
+     * 当前实例中同一个key的并发未命中只执行一次loader，其他线程等待并共用结果
+     * 开启 loader.distributed-lock 后通过Redis锁保证所有实例中只有一个执行loader
+     * 配置 loader.negative-ttl 后loader返回的null同样写入Redis，过期前直接返回null
+     *
+     * @param key
+     * @param target
+     * @param loader  未命中时加载数据，返回null表示数据不存在
+     * @param timeout  过期时间
+     * @param timeUnit  时间单位
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getOrLoad(String key, Class<T> target, Supplier<T> loader, long timeout, TimeUnit timeUnit) {
+        RedisMessageProperties.Loader properties = redisCacheUtils.getOperations().getLoader();
+        byte[] value;
+        if (properties.isRefreshAhead()) {
+            RedisBatch batch = redisCacheUtils.batch();
+            RedisBatch.Response<byte[]> valueResponse = batch.getBytesForValue(key);
+            RedisBatch.Response<Long> ttlResponse = batch.getTtl(key, TimeUnit.MILLISECONDS);
+            batch.execute();
+            value = valueResponse.get();
+            if (value != null && shouldRefresh(key, ttlResponse.get(), properties.getRefreshBeta())) {
+                refresh(key, loader, timeout, timeUnit, properties);
+            }
+        } else {
+            value = binaryCacheUtils.getForValue(key);
+        }
+        if (value != null) {
+            return value.length == 0 ? null : bytesToObject(value, target);
+        }
+        CompletableFuture<Object> loading = new CompletableFuture<>();
+        CompletableFuture<Object> existing = loadings.putIfAbsent(key, loading);
+        if (existing != null) {
+            try {
+                return (T) existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        try {
+            T data = load(key, target, loader, timeout, timeUnit);
+            loading.complete(data);
+            return data;
+        } catch (RuntimeException | Error e) {
+            loading.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadings.remove(key, loading);
+        }
+    }
+
+    /**
+     * 加载数据并写入Redis，开启分布式锁时只有获取到锁的实例执行loader
+     * 其他实例等待锁的释放消息，获取锁后先读取已加载的值；等待超过 lockTimeout 仍未获取到锁时由当前实例加载
+     *
+     * @param key
+     * @param target
+     * @param loader
+     * @param timeout
+     * @param timeUnit
+     */
+    private <T> T load(String key, Class<T> target, Supplier<T> loader, long timeout, TimeUnit timeUnit) {
+        RedisMessageProperties.Loader properties = redisCacheUtils.getOperations().getLoader();
+        if (!properties.isDistributedLock() || redisLockClient == null) {
+            return loadAndSet(key, loader, timeout, timeUnit, properties);
+        }
+        RedisLock lock = redisLockClient.getLock(key + LOAD_LOCK_SUFFIX);
+        long lockTimeout = properties.getLockTimeout().toMillis();
+        try {
+            if (!lock.tryLock(lockTimeout, lockTimeout, TimeUnit.MILLISECONDS)) {
+                return loadAndSet(key, loader, timeout, timeUnit, properties);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for [" + key + "] to be loaded", e);
+        }
+        try {
+            // 获取锁之前其他实例可能已经加载完成
+            byte[] value = binaryCacheUtils.getForValue(key);
+            if (value != null) {
+                return value.length == 0 ? null : bytesToObject(value, target);
+            }
+            return loadAndSet(key, loader, timeout, timeUnit, properties);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 执行loader并写入Redis
+     * loader返回null且配置了 negativeTtl 时写入空值作为不存在的标记
+     *
+     * @param key
+     * @param loader
+     * @param timeout
+     * @param timeUnit
+     * @param properties
+     */
+    private <T> T loadAndSet(String key, Supplier<T> loader, long timeout, TimeUnit timeUnit,
+                             RedisMessageProperties.Loader properties) {
+        long startTime = System.currentTimeMillis();
+        T data = loader.get();
+        recordLoadTime(key, System.currentTimeMillis() - startTime);
+        if (data != null) {
+            binaryCacheUtils.setForValueTtl(key, objectToBytes(data), timeout, timeUnit);
+        } else if (properties.getNegativeTtl() != null) {
+            binaryCacheUtils.setForValueTtl(key, objectToBytes(null), properties.getNegativeTtl().toMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+        return data;
+    }
+
+    /**
+     * 是否提前刷新，剩余过期时间越接近加载耗时，刷新的概率越高
+     * -delta * beta * ln(random) >= ttl
+     *
+     * @param key
+     * @param ttl  剩余过期时间  毫秒
+     * @param beta
+     */
+    private boolean shouldRefresh(String key, Long ttl, double beta) {
+        if (ttl == null || ttl < 0) {
+            return false;
+        }
+        long delta = loadTimes.getOrDefault(key, averageLoadTime);
+        if (delta <= 0) {
+            return false;
+        }
+        double random = 1.0 - ThreadLocalRandom.current().nextDouble();
+        return -delta * beta * Math.log(random) >= ttl;
+    }
+
+    /**
+     * 在后台重新加载并写入Redis，同一个key同时只有一个刷新
+     * 线程池队列已满时放弃本次刷新
+     *
+     * @param key
+     * @param loader
+     * @param timeout
+     * @param timeUnit
+     * @param properties
+     */
+    private <T> void refresh(String key, Supplier<T> loader, long timeout, TimeUnit timeUnit,
+                             RedisMessageProperties.Loader properties) {
+        if (!refreshings.add(key)) {
+            return;
+        }
+        try {
+            refreshExecutor(properties).execute(() -> {
+                try {
+                    loadAndSet(key, loader, timeout, timeUnit, properties);
+                } catch (RuntimeException e) {
+                    LOGGER.warn("failed to refresh redis key [{}] ahead of expiry", key, e);
+                } finally {
+                    refreshings.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshings.remove(key);
+        }
+    }
+
+    /**
+     * 记录加载耗时
+     *
+     * @param key
+     * @param loadTime
+     */
+    private void recordLoadTime(String key, long loadTime) {
+        if (loadTimes.size() >= MAX_LOAD_TIMES) {
+            loadTimes.clear();
+        }
+        loadTimes.put(key, loadTime);
+        long average = averageLoadTime;
+        averageLoadTime = average == 0 ? loadTime : (average * 7 + loadTime) / 8;
+    }
+
+    /**
+     * 获取后台刷新的线程池
+     *
+     * @param properties
+     */
+    private ThreadPoolExecutor refreshExecutor(RedisMessageProperties.Loader properties) {
+        ThreadPoolExecutor executor = refreshExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                if (refreshExecutor == null) {
+                    int threads = Math.max(1, properties.getRefreshThreads());
+                    AtomicInteger threadIndex = new AtomicInteger();
+                    ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(1024), runnable -> {
+                                Thread thread = new Thread(runnable, "redis-refresh-" + threadIndex.incrementAndGet());
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+                    pool.allowCoreThreadTimeOut(true);
+                    refreshExecutor = pool;
+                }
+                executor = refreshExecutor;
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * 关闭后台刷新和并行解码的线程池
+     */
+    @Override
+    public void close() {
+        ThreadPoolExecutor executor = refreshExecutor;
+        if (executor != null) {
+            executor.shutdown();
+        }
+        ForkJoinPool pool = decodePool;
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 从Redis value中获取值并刷新过期时间，转换为对应对象
+     *
+     * @param key
+     * @param target
+     * @param timeout
+     * @param timeUnit
+     */
+    public <T> T getForValueAndExpire(String key, Class<T> target, long timeout, TimeUnit timeUnit) {
+        return bytesToObject(binaryCacheUtils.getForValueAndExpire(key, timeout, timeUnit), target);
+    }
+
+    /**
+     * 从Redis value中获取值并刷新过期时间，转换为对应对象
+     * 默认3天
+     *
+     * @param key
+     * @param target
+     */
+    public <T> T getForValueAndExpire(String key, Class<T> target) {
+        return getForValueAndExpire(key, target, TTL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 对Redis的key进行自增，key没有过期时间时设置过期时间
+     *
+     * @param    key  Redis key
+     * @param    delta  自增的数值
+     * @param    timeout  过期时间
+     * @param    timeUnit  时间单位
+     * @return   Long  自增后的数值
+     */
+    public Long incrementForValueTtl(String key, long delta, long timeout, TimeUnit timeUnit) {
+        return redisCacheUtils.incrementForValueTtl(key, delta, timeout, timeUnit);
+    }
+
+    /**
+     * 当key的值与对象序列化后的值一致时删除key
+     *
+     * @param key
+     * @param expected
+     * @return boolean  是否删除
+     */
+    public <T> boolean compareAndDelete(String key, T expected) {
+        return binaryCacheUtils.compareAndDelete(key, objectToBytes(expected));
+    }
+
+    /**
+     * 从Redis value中批量获取值
+     *
+     * @param keys
+     * @return List<String>  与keys顺序一致的值
+     */
+    public List<String> multiGetForValue(Collection<String> keys) {
+        return redisCacheUtils.multiGetForValue(keys);
+    }
+
+    /**
+     * 从Redis value中批量获取值并转换为对应对象
+     *
+     * @param keys
+     * @param target
+     * @return List<T>  与keys顺序一致的对象
+     */
+    public <T> List<T> multiGetForValue(Collection<String> keys, Class<T> target) {
+        return listBytesToList(binaryCacheUtils.multiGetForValue(keys), target);
+    }
+
+    /**
+     * 批量将数据存放到redis value
+     *
+     * @param valueMap
+     */
+    public void multiSetForValue(Map<String, String> valueMap) {
+        redisCacheUtils.multiSetForValue(valueMap);
+    }
+
+    /**
+     * 批量将对象存放到redis value
+     *
+     * @param dataList  需要存放的对象
+     * @param keyFunction  获取对象对应的Redis key
+     */
+    public <T> void multiSetForValue(Collection<T> dataList, Function<T, String> keyFunction) {
+        binaryCacheUtils.multiSetForValue(toValueMap(dataList, keyFunction));
+    }
+
+    /**
+     * 批量将对象存放到redis value并添加过期时间
+     * 默认3天
+     *
+     * @param dataList  需要存放的对象
+     * @param keyFunction  获取对象对应的Redis key
+     */
+    public <T> void multiSetForValueTtl(Collection<T> dataList, Function<T, String> keyFunction) {
+        multiSetForValueTtl(dataList, keyFunction, TTL);
+    }
+
+    /**
+     * 批量将对象存放到redis value并添加过期时间
+     *
+     * @param dataList  需要存放的对象
+     * @param keyFunction  获取对象对应的Redis key
+     * @param timeout  过期时间  默认单位为秒
+     */
+    public <T> void multiSetForValueTtl(Collection<T> dataList, Function<T, String> keyFunction, Long timeout) {
+        multiSetForValueTtl(dataList, keyFunction, timeout, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 批量将对象存放到redis value并添加过期时间
+     *
+     * @param dataList  需要存放的对象
+     * @param keyFunction  获取对象对应的Redis key
+     * @param timeout  过期时间
+     * @param timeUnit  时间单位
+     */
+    public <T> void multiSetForValueTtl(Collection<T> dataList, Function<T, String> keyFunction, Long timeout,
+                                        TimeUnit timeUnit) {
+        binaryCacheUtils.multiSetForValueTtl(toValueMap(dataList, keyFunction), timeout, timeUnit);
+    }
+
+    /**
+     * 将对象集合转换为key和编码后的值
+     *
+     * @param dataList
+     * @param keyFunction
+     */
+    private <T> Map<String, byte[]> toValueMap(Collection<T> dataList, Function<T, String> keyFunction) {
+        Map<String, byte[]> valueMap = new LinkedHashMap<>();
+        if (CollectionUtils.nonEmpty(dataList)) {
+            dataList.forEach(data -> valueMap.put(keyFunction.apply(data), objectToBytes(data)));
+        }
+        return valueMap;
     }
 
     /**
@@ -236,7 +954,7 @@ public class RedisBaseService {
      * @param target
      */
     public <T> List<T> listForValue(String key, Class<T> target) {
-        return strToList(redisCacheUtils.getForValue(key), target);
+        return bytesToList(binaryCacheUtils.getForValue(key), target);
     }
 
     /**
@@ -257,7 +975,44 @@ public class RedisBaseService {
      * @param target
      */
     public <T> T getForHash(String key, String hashKey, Class<T> target) {
-        return strToObject(redisCacheUtils.getForHash(key, hashKey), target);
+        return bytesToObject(binaryCacheUtils.getForHash(key, hashKey), target);
+    }
+
+    /**
+     * 从Redis hash中获取值并转换为对应对象
+     * 值不存在时返回Optional.empty()，不创建对象，不受 operations.miss-value 影响
+     *
+     * @param key
+     * @param hashKey
+     * @param target
+     */
+    public <T> Optional<T> findForHash(String key, String hashKey, Class<T> target) {
+        return bytesToOptional(binaryCacheUtils.getForHash(key, hashKey), target);
+    }
+
+    /**
+     * 将对象保存到redis hash并设置hash的过期时间
+     *
+     * @param key
+     * @param hashKey
+     * @param data
+     * @param timeout
+     * @param timeUnit
+     */
+    public <T> void putForHashTtl(String key, String hashKey, T data, long timeout, TimeUnit timeUnit) {
+        binaryCacheUtils.putForHashTtl(key, hashKey, objectToBytes(data), timeout, timeUnit);
+    }
+
+    /**
+     * 将对象保存到redis hash并设置hash的过期时间
+     * 默认3天
+     *
+     * @param key
+     * @param hashKey
+     * @param data
+     */
+    public <T> void putForHashTtl(String key, String hashKey, T data) {
+        putForHashTtl(key, hashKey, data, TTL, TimeUnit.SECONDS);
     }
 
     /**
@@ -278,7 +1033,7 @@ public class RedisBaseService {
      * @param target
      */
     public <T> List<T> multiGetForHash(String key, Set<String> hashKeySet, Class<T> target) {
-        return listStrToList(redisCacheUtils.multiGetForHash(key, hashKeySet), target);
+        return listBytesToList(binaryCacheUtils.multiGetForHash(key, hashKeySet), target);
     }
 
     /**
@@ -306,7 +1061,7 @@ public class RedisBaseService {
      * @param target
      */
     public <T> List<T> valuesForHash(String key, Class<T> target) {
-        return listStrToList(redisCacheUtils.valuesForHash(key), target);
+        return listBytesToList(binaryCacheUtils.valuesForHash(key), target);
     }
 
     /**
@@ -325,7 +1080,60 @@ public class RedisBaseService {
      * @param target
      */
     public <T> Map<String, T> entriesForHash(String key, Class<T> target) {
-        return conversionMap(redisCacheUtils.entriesForHash(key), target);
+        return conversionMap(binaryCacheUtils.entriesForHash(key), target);
+    }
+
+    /**
+     * 通过HSCAN流式遍历hash，逐个将value转换为对应对象
+     * 使用后需要关闭Stream，建议使用try-with-resources
+     *
+     * @param key
+     * @param target
+     */
+    public <T> Stream<Map.Entry<String, T>> scanForHash(String key, Class<T> target) {
+        return scanForHash(key, redisCacheUtils.getOperations().getScanCount(), target);
+    }
+
+    /**
+     * 通过HSCAN流式遍历hash，逐个将value转换为对应对象
+     * 使用后需要关闭Stream，建议使用try-with-resources
+     *
+     * @param key
+     * @param count  每次HSCAN的数量提示
+     * @param target
+     */
+    public <T> Stream<Map.Entry<String, T>> scanForHash(String key, int count, Class<T> target) {
+        return binaryCacheUtils.scanForHash(key, count).map(entry -> toEntry(entry, target));
+    }
+
+    /**
+     * 通过HSCAN遍历hash，逐个将value转换为对应对象交给consumer处理，遍历结束后自动释放cursor
+     *
+     * @param key
+     * @param target
+     * @param consumer  处理hash的key和转换后的对象
+     * @return long  遍历的键值对数量
+     */
+    public <T> long scanForHash(String key, Class<T> target, BiConsumer<String, T> consumer) {
+        long[] count = new long[1];
+        try (Stream<Map.Entry<String, byte[]>> stream = binaryCacheUtils.scanForHash(key,
+                redisCacheUtils.getOperations().getScanCount())) {
+            stream.forEach(entry -> {
+                consumer.accept(entry.getKey(), bytesToObject(entry.getValue(), target));
+                count[0]++;
+            });
+        }
+        return count[0];
+    }
+
+    /**
+     * 将键值对的value转换为对应对象
+     *
+     * @param entry
+     * @param target
+     */
+    private <T> Map.Entry<String, T> toEntry(Map.Entry<String, byte[]> entry, Class<T> target) {
+        return new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), bytesToObject(entry.getValue(), target));
     }
 
     /**
@@ -344,7 +1152,7 @@ public class RedisBaseService {
      * @param target
      */
     public <T> T leftPopForList(String key, Class<T> target) {
-        return strToObject(redisCacheUtils.leftPopForList(key), target);
+        return bytesToObject(binaryCacheUtils.leftPopForList(key), target);
     }
 
     /**
@@ -363,7 +1171,7 @@ public class RedisBaseService {
      * @param target
      */
     public <T> T rightPopForList(String key, Class<T> target) {
-        return strToObject(redisCacheUtils.rightPopForList(key), target);
+        return bytesToObject(binaryCacheUtils.rightPopForList(key), target);
     }
 
     /**
@@ -386,7 +1194,7 @@ public class RedisBaseService {
      * @param target
      */
     public <T> List<T> rangeForList(String key, long start, long end, Class<T> target) {
-        return listStrToList(redisCacheUtils.rangeForList(key, start, end), target);
+        return listBytesToList(binaryCacheUtils.rangeForList(key, start, end), target);
     }
 
     /**
@@ -405,7 +1213,7 @@ public class RedisBaseService {
      * @param target
      */
     public <T> T popForSet(String key, Class<T> target) {
-        return strToObject(redisCacheUtils.popForSet(key), target);
+        return bytesToObject(binaryCacheUtils.popForSet(key), target);
     }
 
     /**
@@ -426,7 +1234,7 @@ public class RedisBaseService {
      * @param target
      */
     public <T> List<T> popForSet(String key, long count, Class<T> target) {
-        return listStrToList(redisCacheUtils.popForSet(key, count), target);
+        return listBytesToList(binaryCacheUtils.popForSet(key, count), target);
     }
 
     /**
@@ -445,7 +1253,62 @@ public class RedisBaseService {
      * @param target
      */
     public <T> Set<T> membersForSet(String key, Class<T> target) {
-        return setStrToSet(redisCacheUtils.membersForSet(key), target);
+        return setBytesToSet(binaryCacheUtils.membersForSet(key), target);
+    }
+
+    /**
+     * 通过SSCAN流式遍历set，逐个将元素转换为对应对象
+     * 使用后需要关闭Stream，建议使用try-with-resources
+     *
+     * @param key
+     * @param target
+     */
+    public <T> Stream<T> scanForSet(String key, Class<T> target) {
+        return scanForSet(key, redisCacheUtils.getOperations().getScanCount(), target);
+    }
+
+    /**
+     * 通过SSCAN流式遍历set，逐个将元素转换为对应对象
+     * 使用后需要关闭Stream，建议使用try-with-resources
+     *
+     * @param key
+     * @param count  每次SSCAN的数量提示
+     * @param target
+     */
+    public <T> Stream<T> scanForSet(String key, int count, Class<T> target) {
+        return binaryCacheUtils.scanForSet(key, count).map(value -> bytesToObject(value, target));
+    }
+
+    /**
+     * 通过SSCAN遍历set，逐个将元素转换为对应对象交给consumer处理，遍历结束后自动释放cursor
+     *
+     * @param key
+     * @param target
+     * @param consumer
+     * @return long  遍历的元素数量
+     */
+    public <T> long scanForSet(String key, Class<T> target, Consumer<T> consumer) {
+        long[] count = new long[1];
+        try (Stream<byte[]> stream = binaryCacheUtils.scanForSet(key,
+                redisCacheUtils.getOperations().getScanCount())) {
+            stream.forEach(value -> {
+                consumer.accept(bytesToObject(value, target));
+                count[0]++;
+            });
+        }
+        return count[0];
+    }
+
+    /**
+     * 通过ZSCAN流式遍历sort set，逐个将元素转换为对应对象
+     * 使用后需要关闭Stream，建议使用try-with-resources
+     *
+     * @param key
+     * @param target
+     */
+    public <T> Stream<ZSetOperations.TypedTuple<T>> scanForZSet(String key, Class<T> target) {
+        return binaryCacheUtils.scanForZSet(key, redisCacheUtils.getOperations().getScanCount()).map(tuple ->
+                new DefaultTypedTuple<>(bytesToObject(tuple.getValue(), target), tuple.getScore()));
     }
 
 }
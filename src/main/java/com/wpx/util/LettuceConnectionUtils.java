@@ -0,0 +1,54 @@
+package com.wpx.util;
+
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.codec.RedisCodec;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+/**
+ * @Author: 不会飞的小鹏
+ * @Description: 通过LettuceConnectionFactory的原生客户端创建连接
+ * 连接使用与连接工厂相同的ClientResources、地址、认证和超时配置，但不经过RedisTemplate
+ */
+public class LettuceConnectionUtils {
+
+    private LettuceConnectionUtils() {
+    }
+
+    /**
+     * 创建原生连接
+     * 集群模式下使用连接工厂配置的 read-from 策略
+     *
+     * @param connectionFactory
+     * @param codec  连接使用的编解码器
+     * @return StatefulConnection<K, V>  调用方负责关闭
+     */
+    public static <K, V> StatefulConnection<K, V> connect(LettuceConnectionFactory connectionFactory,
+                                                          RedisCodec<K, V> codec) {
+        AbstractRedisClient client = connectionFactory.getRequiredNativeClient();
+        if (client instanceof RedisClusterClient) {
+            StatefulRedisClusterConnection<K, V> connection = ((RedisClusterClient) client).connect(codec);
+            connectionFactory.getClientConfiguration().getReadFrom().ifPresent(connection::setReadFrom);
+            return connection;
+        }
+        return ((RedisClient) client).connect(codec);
+    }
+
+    /**
+     * 获取连接的异步命令
+     *
+     * @param connection
+     */
+    public static <K, V> RedisClusterAsyncCommands<K, V> async(StatefulConnection<K, V> connection) {
+        if (connection instanceof StatefulRedisClusterConnection) {
+            return ((StatefulRedisClusterConnection<K, V>) connection).async();
+        }
+        return ((StatefulRedisConnection<K, V>) connection).async();
+    }
+
+}
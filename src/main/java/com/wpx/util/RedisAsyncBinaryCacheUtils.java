@@ -0,0 +1,464 @@
+package com.wpx.util;
+
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.output.CommandOutput;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.CommandType;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * @Author: 不会飞的小鹏
+ * @Description: 基于Lettuce异步API读写byte[]的值，key和hash的key为字符串
+ * 使用单独的原生连接，连接在首次使用时建立，随RedisAsyncCacheUtils一起关闭
+ * 带decoder参数的方法在Lettuce的I/O线程上直接从响应缓冲区解码，不复制为byte[]；decoder应足够快，且不能保留缓冲区的引用
+ */
+public class RedisAsyncBinaryCacheUtils implements AutoCloseable {
+
+    private static final RedisCodec<String, byte[]> CODEC = RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE);
+
+    private final LettuceConnectionFactory connectionFactory;
+
+    private volatile StatefulConnection<String, byte[]> connection;
+
+    private volatile RedisClusterAsyncCommands<String, byte[]> commands;
+
+    /**
+     * 过期时间抖动的百分比
+     */
+    private final int ttlJitter;
+
+    RedisAsyncBinaryCacheUtils(LettuceConnectionFactory connectionFactory, int ttlJitter) {
+        this.connectionFactory = connectionFactory;
+        this.ttlJitter = ttlJitter;
+    }
+
+    /**
+     * 获取异步命令，首次使用时建立连接
+     */
+    private RedisClusterAsyncCommands<String, byte[]> commands() {
+        RedisClusterAsyncCommands<String, byte[]> asyncCommands = commands;
+        if (asyncCommands == null) {
+            synchronized (this) {
+                if (commands == null) {
+                    connection = LettuceConnectionUtils.connect(connectionFactory, CODEC);
+                    commands = LettuceConnectionUtils.async(connection);
+                }
+                asyncCommands = commands;
+            }
+        }
+        return asyncCommands;
+    }
+
+    private static <T> CompletableFuture<T> toFuture(RedisFuture<T> future) {
+        return future.toCompletableFuture();
+    }
+
+    private static CommandArgs<String, byte[]> args(String key) {
+        return new CommandArgs<>(CODEC).addKey(key);
+    }
+
+    /**
+     * 发送命令，结果由output在I/O线程上解码；解码时的异常在命令完成后抛出
+     *
+     * @param type  命令
+     * @param output  解码结果的output
+     * @param args  命令参数
+     */
+    private <R> CompletableFuture<R> dispatch(CommandType type, DecodingOutput<?, R> output,
+                                              CommandArgs<String, byte[]> args) {
+        return toFuture(commands().dispatch(type, output, args)).thenApply(result -> {
+            if (output.failure != null) {
+                throw output.failure;
+            }
+            return result;
+        });
+    }
+
+    /**
+     * 获取redis value中的值
+     *
+     * @param    key  Redis Key
+     * @return   CompletableFuture<byte[]>
+     */
+    public CompletableFuture<byte[]> getForValue(String key) {
+        return toFuture(commands().get(key));
+    }
+
+    /**
+     * 获取redis value中的值并直接从响应缓冲区解码
+     *
+     * @param    key  Redis Key
+     * @param    decoder  key不存在时参数为null
+     */
+    public <T> CompletableFuture<T> getForValue(String key, Function<ByteBuffer, T> decoder) {
+        return dispatch(CommandType.GET, new ValueDecodingOutput<>(decoder), args(key));
+    }
+
+    /**
+     * 批量获取redis value中的值
+     * 集群模式下由Lettuce按hash slot拆分
+     *
+     * @param    keys  Redis key集合
+     * @return   CompletableFuture<List<byte[]>>  与keys顺序一致的值，不存在的key对应null
+     */
+    public CompletableFuture<List<byte[]>> multiGetForValue(Collection<String> keys) {
+        if (CollectionUtils.isEmpty(keys)) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        return toFuture(commands().mget(keys.toArray(new String[0])))
+                .thenApply(keyValues -> CollectionUtils.conversionList(keyValues,
+                        keyValue -> keyValue.getValueOrElse(null)));
+    }
+
+    /**
+     * 将数据存放到redis value
+     *
+     * @param    key  Redis key
+     * @param    value  需要存放的数值
+     */
+    public CompletableFuture<Void> setForValue(String key, byte[] value) {
+        return toFuture(commands().set(key, value)).thenApply(reply -> null);
+    }
+
+    /**
+     * redis value 赋值并添加过期时间
+     *
+     * @param    key  Redis key
+     * @param    value  需要存放的值
+     * @param    timeout  过期时间
+     * @param    timeUnit  时间单位
+     */
+    public CompletableFuture<Void> setForValueTtl(String key, byte[] value, long timeout, TimeUnit timeUnit) {
+        return toFuture(commands().psetex(key, TtlUtils.jitter(timeout, timeUnit, ttlJitter), value))
+                .thenApply(reply -> null);
+    }
+
+    /**
+     * 从redis hash中获取信息
+     *
+     * @param    key  Redis key
+     * @param    hashKey  hash中的 键值对key
+     */
+    public CompletableFuture<byte[]> getForHash(String key, String hashKey) {
+        return toFuture(commands().hget(key, hashKey));
+    }
+
+    /**
+     * 从redis hash中获取信息并直接从响应缓冲区解码
+     *
+     * @param    key  Redis key
+     * @param    hashKey  hash中的 键值对key
+     * @param    decoder  hashKey不存在时参数为null
+     */
+    public <T> CompletableFuture<T> getForHash(String key, String hashKey, Function<ByteBuffer, T> decoder) {
+        return dispatch(CommandType.HGET, new ValueDecodingOutput<>(decoder), args(key).add(hashKey));
+    }
+
+    /**
+     * 将数据保存到redis hash
+     *
+     * @param    key  Redis key
+     * @param    hashKey  hash中的 键值对key
+     * @param    value  hash中的 键值对value
+     * @return   CompletableFuture<Boolean>  是否为新增的键值对
+     */
+    public CompletableFuture<Boolean> putForHash(String key, String hashKey, byte[] value) {
+        return toFuture(commands().hset(key, hashKey, value));
+    }
+
+    /**
+     * 从redis hash中获取多个信息
+     *
+     * @param    key  Redis key
+     * @param    hashKeys
+     * @return   CompletableFuture<List<byte[]>>  与hashKeys顺序一致的值
+     */
+    public CompletableFuture<List<byte[]>> multiGetForHash(String key, Collection<String> hashKeys) {
+        if (CollectionUtils.isEmpty(hashKeys)) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        return toFuture(commands().hmget(key, hashKeys.toArray(new String[0])))
+                .thenApply(keyValues -> CollectionUtils.conversionList(keyValues,
+                        keyValue -> keyValue.getValueOrElse(null)));
+    }
+
+    /**
+     * 从redis hash 获取对应key下的所有value
+     *
+     * @param    key  Redis key
+     */
+    public CompletableFuture<List<byte[]>> valuesForHash(String key) {
+        return toFuture(commands().hvals(key));
+    }
+
+    /**
+     * 从redis hash中获取多个信息并直接从响应缓冲区解码
+     *
+     * @param    key  Redis key
+     * @param    hashKeys
+     * @param    decoder  hashKey不存在时参数为null
+     * @return   CompletableFuture<List<T>>  与hashKeys顺序一致的值
+     */
+    public <T> CompletableFuture<List<T>> multiGetForHash(String key, Collection<String> hashKeys,
+                                                          Function<ByteBuffer, T> decoder) {
+        if (CollectionUtils.isEmpty(hashKeys)) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        CommandArgs<String, byte[]> args = args(key);
+        hashKeys.forEach(args::add);
+        return dispatch(CommandType.HMGET, new ListDecodingOutput<>(decoder), args);
+    }
+
+    /**
+     * 从redis hash 获取对应key下的所有value并直接从响应缓冲区解码
+     *
+     * @param    key  Redis key
+     * @param    decoder
+     */
+    public <T> CompletableFuture<List<T>> valuesForHash(String key, Function<ByteBuffer, T> decoder) {
+        return dispatch(CommandType.HVALS, new ListDecodingOutput<>(decoder), args(key));
+    }
+
+    /**
+     * 从redis hash 获取对应key下的所有键值对
+     *
+     * @param    key  Redis key
+     */
+    public CompletableFuture<Map<String, byte[]>> entriesForHash(String key) {
+        return toFuture(commands().hgetall(key));
+    }
+
+    /**
+     * 从redis hash 获取对应key下的所有键值对并直接从响应缓冲区解码value
+     *
+     * @param    key  Redis key
+     * @param    decoder
+     */
+    public <T> CompletableFuture<Map<String, T>> entriesForHash(String key, Function<ByteBuffer, T> decoder) {
+        return dispatch(CommandType.HGETALL, new MapDecodingOutput<>(decoder), args(key));
+    }
+
+    /**
+     * 从Redis list左端pop数据
+     *
+     * @param    key  Redis Key
+     */
+    public CompletableFuture<byte[]> leftPopForList(String key) {
+        return toFuture(commands().lpop(key));
+    }
+
+    /**
+     * 从Redis list右端pop数据
+     *
+     * @param    key  Redis Key
+     */
+    public CompletableFuture<byte[]> rightPopForList(String key) {
+        return toFuture(commands().rpop(key));
+    }
+
+    /**
+     * 从Redis list左端pop数据并直接从响应缓冲区解码
+     *
+     * @param    key  Redis Key
+     * @param    decoder  list为空时参数为null
+     */
+    public <T> CompletableFuture<T> leftPopForList(String key, Function<ByteBuffer, T> decoder) {
+        return dispatch(CommandType.LPOP, new ValueDecodingOutput<>(decoder), args(key));
+    }
+
+    /**
+     * 从Redis list右端pop数据并直接从响应缓冲区解码
+     *
+     * @param    key  Redis Key
+     * @param    decoder  list为空时参数为null
+     */
+    public <T> CompletableFuture<T> rightPopForList(String key, Function<ByteBuffer, T> decoder) {
+        return dispatch(CommandType.RPOP, new ValueDecodingOutput<>(decoder), args(key));
+    }
+
+    /**
+     * 从Redis list右端push数据
+     *
+     * @param    key  Redis key
+     * @param    values  存入list中的值
+     * @return   CompletableFuture<Long>  push后list的size
+     */
+    public CompletableFuture<Long> rightPushForList(String key, byte[]... values) {
+        return toFuture(commands().rpush(key, values));
+    }
+
+    /**
+     * 从redis list中range区间数据
+     *
+     * @param    key  Redis key
+     * @param    start  区间的开始
+     * @param    end  区间的结束
+     */
+    public CompletableFuture<List<byte[]>> rangeForList(String key, long start, long end) {
+        return toFuture(commands().lrange(key, start, end));
+    }
+
+    /**
+     * 从redis list中range区间数据并直接从响应缓冲区解码
+     *
+     * @param    key  Redis key
+     * @param    start  区间的开始
+     * @param    end  区间的结束
+     * @param    decoder
+     */
+    public <T> CompletableFuture<List<T>> rangeForList(String key, long start, long end,
+                                                       Function<ByteBuffer, T> decoder) {
+        return dispatch(CommandType.LRANGE, new ListDecodingOutput<>(decoder), args(key).add(start).add(end));
+    }
+
+    /**
+     * 向Redis Set中添加元素
+     *
+     * @param    key
+     * @param    values
+     * @return   CompletableFuture<Long>  新增的元素数量
+     */
+    public CompletableFuture<Long> addForSet(String key, byte[]... values) {
+        return toFuture(commands().sadd(key, values));
+    }
+
+    /**
+     * 从 Redis Set 中pop元素
+     *
+     * @param    key
+     */
+    public CompletableFuture<byte[]> popForSet(String key) {
+        return toFuture(commands().spop(key));
+    }
+
+    /**
+     * 从 Redis Set 中pop元素并直接从响应缓冲区解码
+     *
+     * @param    key
+     * @param    decoder  set为空时参数为null
+     */
+    public <T> CompletableFuture<T> popForSet(String key, Function<ByteBuffer, T> decoder) {
+        return dispatch(CommandType.SPOP, new ValueDecodingOutput<>(decoder), args(key));
+    }
+
+    /**
+     * 获取Redis Set中的所有元素
+     * byte[]没有按内容实现equals，返回List
+     *
+     * @param    key
+     */
+    public CompletableFuture<List<byte[]>> membersForSet(String key) {
+        return toFuture(commands().smembers(key)).thenApply(ArrayList::new);
+    }
+
+    /**
+     * 获取Redis Set中的所有元素并直接从响应缓冲区解码
+     *
+     * @param    key
+     * @param    decoder
+     */
+    public <T> CompletableFuture<List<T>> membersForSet(String key, Function<ByteBuffer, T> decoder) {
+        return dispatch(CommandType.SMEMBERS, new ListDecodingOutput<>(decoder), args(key));
+    }
+
+    /**
+     * 在I/O线程上解码响应的output，解码异常记录下来，剩余的响应照常读取，避免破坏连接上的协议状态
+     */
+    private abstract static class DecodingOutput<T, R> extends CommandOutput<String, byte[], R> {
+
+        private final Function<ByteBuffer, T> decoder;
+
+        private RuntimeException failure;
+
+        DecodingOutput(Function<ByteBuffer, T> decoder, R output) {
+            super(CODEC, output);
+            this.decoder = decoder;
+        }
+
+        T decode(ByteBuffer bytes) {
+            if (failure != null) {
+                return null;
+            }
+            try {
+                return decoder.apply(bytes);
+            } catch (RuntimeException e) {
+                failure = e;
+                return null;
+            }
+        }
+
+    }
+
+    private static class ValueDecodingOutput<T> extends DecodingOutput<T, T> {
+
+        ValueDecodingOutput(Function<ByteBuffer, T> decoder) {
+            super(decoder, null);
+        }
+
+        @Override
+        public void set(ByteBuffer bytes) {
+            output = decode(bytes);
+        }
+
+    }
+
+    private static class ListDecodingOutput<T> extends DecodingOutput<T, List<T>> {
+
+        ListDecodingOutput(Function<ByteBuffer, T> decoder) {
+            super(decoder, new ArrayList<>());
+        }
+
+        @Override
+        public void set(ByteBuffer bytes) {
+            output.add(decode(bytes));
+        }
+
+    }
+
+    private static class MapDecodingOutput<T> extends DecodingOutput<T, Map<String, T>> {
+
+        private String field;
+
+        MapDecodingOutput(Function<ByteBuffer, T> decoder) {
+            super(decoder, new HashMap<>());
+        }
+
+        @Override
+        public void set(ByteBuffer bytes) {
+            if (field == null) {
+                field = codec.decodeKey(bytes);
+                return;
+            }
+            output.put(field, decode(bytes));
+            field = null;
+        }
+
+    }
+
+    /**
+     * 关闭连接
+     */
+    @Override
+    public void close() {
+        StatefulConnection<String, byte[]> current = connection;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+}
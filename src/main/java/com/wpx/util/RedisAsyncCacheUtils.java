@@ -0,0 +1,498 @@
+package com.wpx.util;
+
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScoredValue;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.codec.StringCodec;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * @Author: 不会飞的小鹏
+ * @Description: 基于Lettuce异步API的RedisCacheUtils，所有方法立即返回CompletableFuture，不阻塞调用线程
+ * 所有命令复用同一个线程安全的原生连接，连接在首次使用时建立
+ */
+public class RedisAsyncCacheUtils implements AutoCloseable {
+
+    private final LettuceConnectionFactory connectionFactory;
+
+    private volatile StatefulConnection<String, String> connection;
+
+    private volatile RedisClusterAsyncCommands<String, String> commands;
+
+    /**
+     * 过期时间抖动的百分比
+     */
+    private final int ttlJitter;
+
+    /**
+     * 读写byte[]的值，使用单独的连接
+     */
+    private final RedisAsyncBinaryCacheUtils binaryCacheUtils;
+
+    public RedisAsyncCacheUtils(LettuceConnectionFactory connectionFactory) {
+        this(connectionFactory, 0);
+    }
+
+    /**
+     * @param connectionFactory
+     * @param ttlJitter  过期时间抖动的百分比，小于等于0时不抖动
+     */
+    public RedisAsyncCacheUtils(LettuceConnectionFactory connectionFactory, int ttlJitter) {
+        this.connectionFactory = connectionFactory;
+        this.ttlJitter = ttlJitter;
+        this.binaryCacheUtils = new RedisAsyncBinaryCacheUtils(connectionFactory, ttlJitter);
+    }
+
+    /**
+     * 获取通过byte[]读写值的异步操作，RedisAsyncBaseService的对象方法通过它保存编码后的值
+     *
+     * @return RedisAsyncBinaryCacheUtils
+     */
+    public RedisAsyncBinaryCacheUtils getBinaryCacheUtils() {
+        return binaryCacheUtils;
+    }
+
+    /**
+     *  缓存3天
+     */
+    private static final Long TTL = 3L * 24 * 60 * 60;
+
+    /**
+     * 获取异步命令，首次使用时建立连接
+     */
+    private RedisClusterAsyncCommands<String, String> commands() {
+        RedisClusterAsyncCommands<String, String> asyncCommands = commands;
+        if (asyncCommands == null) {
+            synchronized (this) {
+                if (commands == null) {
+                    connection = LettuceConnectionUtils.connect(connectionFactory, StringCodec.UTF8);
+                    commands = LettuceConnectionUtils.async(connection);
+                }
+                asyncCommands = commands;
+            }
+        }
+        return asyncCommands;
+    }
+
+    /**
+     * RedisFuture转换为CompletableFuture
+     *
+     * @param future
+     */
+    private static <T> CompletableFuture<T> toFuture(RedisFuture<T> future) {
+        return future.toCompletableFuture();
+    }
+
+    /**
+     * 获取缓存的过期时间   单位为秒
+     *
+     * @param key
+     * @return CompletableFuture<Long>
+     */
+    public CompletableFuture<Long> getTtl(String key) {
+        return toFuture(commands().ttl(key));
+    }
+
+    /**
+     * 为key设置过期时间
+     * 默认3天
+     *
+     * @param    key
+     */
+    public CompletableFuture<Boolean> expire(String key) {
+        return expire(key, TTL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 为key设置过期时间
+     *
+     * @param    key
+     * @param    timeout
+     * @param    timeUnit
+     */
+    public CompletableFuture<Boolean> expire(String key, long timeout, TimeUnit timeUnit) {
+        return toFuture(commands().pexpire(key, TtlUtils.jitter(timeout, timeUnit, ttlJitter)));
+    }
+
+    /**
+     * 获取redis value中的值
+     *
+     * @param    key  Redis Key
+     * @return   CompletableFuture<String>  从value中获取的数据
+     */
+    public CompletableFuture<String> getForValue(String key) {
+        return toFuture(commands().get(key));
+    }
+
+    /**
+     * 批量获取redis value中的值
+     * 集群模式下由Lettuce按hash slot拆分
+     *
+     * @param    keys  Redis key集合
+     * @return   CompletableFuture<List<String>>  与keys顺序一致的值，不存在的key对应null
+     */
+    public CompletableFuture<List<String>> multiGetForValue(Collection<String> keys) {
+        if (CollectionUtils.isEmpty(keys)) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        return toFuture(commands().mget(keys.toArray(new String[0])))
+                .thenApply(keyValues -> CollectionUtils.conversionList(keyValues,
+                        keyValue -> keyValue.getValueOrElse(null)));
+    }
+
+    /**
+     * 将数据存放到redis value
+     *
+     * @param    key  Redis key
+     * @param    value  需要存放的数值
+     */
+    public CompletableFuture<Void> setForValue(String key, String value) {
+        return toFuture(commands().set(key, value)).thenApply(reply -> null);
+    }
+
+    /**
+     * redis value 赋值并添加过期时间
+     *
+     * @param key  Redis key
+     * @param value  需要存放的值
+     * @param timeout  过期时间
+     * @param timeUnit  时间单位
+     */
+    public CompletableFuture<Void> setForValueTtl(String key, String value, Long timeout, TimeUnit timeUnit) {
+        return toFuture(commands().psetex(key, TtlUtils.jitter(timeout, timeUnit, ttlJitter), value))
+                .thenApply(reply -> null);
+    }
+
+    /**
+     * 对Redis的key进行自增
+     *
+     * @param    key  Redis key
+     * @param    delta  自增的数值
+     * @return   CompletableFuture<Long>  自增后的数值
+     */
+    public CompletableFuture<Long> incrementForValue(String key, long delta) {
+        return toFuture(commands().incrby(key, delta));
+    }
+
+    /**
+     * 从redis hash中获取信息
+     *
+     * @param    key  Redis key
+     * @param    hashKey  hash中的 键值对key
+     */
+    public CompletableFuture<String> getForHash(String key, String hashKey) {
+        return toFuture(commands().hget(key, hashKey));
+    }
+
+    /**
+     * 将数据保存到redis hash
+     *
+     * @param    key  Redis key
+     * @param    hashKey  hash中的 键值对key
+     * @param    value  hash中的 键值对value
+     */
+    public CompletableFuture<Boolean> putForHash(String key, String hashKey, String value) {
+        return toFuture(commands().hset(key, hashKey, value));
+    }
+
+    /**
+     * redis hash 累加
+     *
+     * @param    key  Redis key
+     * @param    hashKey  hash中的 要对value累加的键值对key
+     * @param    delta  累加的数值
+     * @return   CompletableFuture<Long>  对应的键值对累加后的value
+     */
+    public CompletableFuture<Long> incrementForHash(String key, String hashKey, long delta) {
+        return toFuture(commands().hincrby(key, hashKey, delta));
+    }
+
+    /**
+     * 从redis hash中获取多个信息
+     *
+     * @param key
+     * @param hashKeys
+     * @return CompletableFuture<List<String>>  与hashKeys顺序一致的值
+     */
+    public CompletableFuture<List<String>> multiGetForHash(String key, Collection<String> hashKeys) {
+        if (CollectionUtils.isEmpty(hashKeys)) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        return toFuture(commands().hmget(key, hashKeys.toArray(new String[0])))
+                .thenApply(keyValues -> CollectionUtils.conversionList(keyValues,
+                        keyValue -> keyValue.getValueOrElse(null)));
+    }
+
+    /**
+     * 将多个键值对数据保存到redis hash
+     *
+     * @param key      Redis key
+     * @param valueMap hash 键值, value
+     */
+    public CompletableFuture<Void> multiPutForHash(String key, Map<String, String> valueMap) {
+        return toFuture(commands().hmset(key, valueMap)).thenApply(reply -> null);
+    }
+
+    /**
+     * 从Redis hash 获取对应key下的所有key
+     *
+     * @param    key Redis key
+     */
+    public CompletableFuture<Set<String>> keysForHash(String key) {
+        return toFuture(commands().hkeys(key)).thenApply(LinkedHashSet::new);
+    }
+
+    /**
+     * 从redis hash 获取对应key下的所有value
+     *
+     * @param    key  Redis key
+     */
+    public CompletableFuture<List<String>> valuesForHash(String key) {
+        return toFuture(commands().hvals(key));
+    }
+
+    /**
+     * 从redis hash 获取对应key下的所有键值对
+     *
+     * @param    key  Redis key
+     */
+    public CompletableFuture<Map<String, String>> entriesForHash(String key) {
+        return toFuture(commands().hgetall(key));
+    }
+
+    /**
+     * 从redis hash 中删除元素
+     *
+     * @param    key  Redis key
+     * @param    hashKeys  hash中的 键值对key
+     */
+    public CompletableFuture<Long> deleteForHash(String key, String... hashKeys) {
+        return toFuture(commands().hdel(key, hashKeys));
+    }
+
+    /**
+     * 从Redis list左端pop数据
+     *
+     * @param    key  Redis Key
+     */
+    public CompletableFuture<String> leftPopForList(String key) {
+        return toFuture(commands().lpop(key));
+    }
+
+    /**
+     * 从Redis list右端pop数据
+     *
+     * @param    key  Redis Key
+     */
+    public CompletableFuture<String> rightPopForList(String key) {
+        return toFuture(commands().rpop(key));
+    }
+
+    /**
+     * 从Redis list左端push数据
+     *
+     * @param    key  Redis key
+     * @param    values  存入list中的值
+     * @return   CompletableFuture<Long>  push后list的size
+     */
+    public CompletableFuture<Long> leftPushForList(String key, String... values) {
+        return toFuture(commands().lpush(key, values));
+    }
+
+    /**
+     * 从Redis list右端push数据
+     *
+     * @param    key  Redis key
+     * @param    values  存入list中的值
+     * @return   CompletableFuture<Long>  push后list的size
+     */
+    public CompletableFuture<Long> rightPushForList(String key, String... values) {
+        return toFuture(commands().rpush(key, values));
+    }
+
+    /**
+     * 获取redis list的size
+     *
+     * @param    key  Redis key
+     */
+    public CompletableFuture<Long> sizeForList(String key) {
+        return toFuture(commands().llen(key));
+    }
+
+    /**
+     * 从redis list中range区间数据
+     *
+     * @param    key  Redis key
+     * @param    start  区间的开始
+     * @param    end  区间的结束
+     */
+    public CompletableFuture<List<String>> rangeForList(String key, long start, long end) {
+        return toFuture(commands().lrange(key, start, end));
+    }
+
+    /**
+     * 向Redis Set中添加元素
+     *
+     * @param    key
+     * @param    values
+     * @return   CompletableFuture<Long>  新增的元素数量
+     */
+    public CompletableFuture<Long> addForSet(String key, String... values) {
+        return toFuture(commands().sadd(key, values));
+    }
+
+    /**
+     * 从 Redis Set 中pop元素
+     *
+     * @param    key
+     */
+    public CompletableFuture<String> popForSet(String key) {
+        return toFuture(commands().spop(key));
+    }
+
+    /**
+     * 获取Redis Set中的所有元素
+     *
+     * @param key
+     */
+    public CompletableFuture<Set<String>> membersForSet(String key) {
+        return toFuture(commands().smembers(key));
+    }
+
+    /**
+     * set中是否存在对应的成员
+     *
+     * @param key
+     * @param value
+     */
+    public CompletableFuture<Boolean> existMemberInSet(String key, String value) {
+        return toFuture(commands().sismember(key, value));
+    }
+
+    /**
+     * 从 Redis set 中移除元素
+     *
+     * @param key
+     * @param values
+     */
+    public CompletableFuture<Long> removeForSet(String key, String... values) {
+        return toFuture(commands().srem(key, values));
+    }
+
+    /**
+     * 获取set成员数量
+     *
+     * @param key
+     */
+    public CompletableFuture<Long> sizeForSet(String key) {
+        return toFuture(commands().scard(key));
+    }
+
+    /**
+     * 累加redis sort set 的数值
+     *
+     * @param    key  Redis key
+     * @param    value  需要累加的value -- 累加项
+     * @param    score  累加的数值 -- 分数
+     * @return   CompletableFuture<Double>  累加后的分数
+     */
+    public CompletableFuture<Double> incrementScoreForZSet(String key, String value, double score) {
+        return toFuture(commands().zincrby(key, score, value));
+    }
+
+    /**
+     *  获取redis sort set的分值
+     *
+     * @param    key  Redis key
+     * @param    value  需要获取分数的value
+     */
+    public CompletableFuture<Double> getScoreForZSet(String key, String value) {
+        return toFuture(commands().zscore(key, value));
+    }
+
+    /**
+     *  获取ZSet的 降序排名 -- 从大到小
+     *
+     * @param    key  Redis
+     * @param    value
+     */
+    public CompletableFuture<Long> getRankForZSet(String key, String value) {
+        return toFuture(commands().zrevrank(key, value));
+    }
+
+    /**
+     * 从 Redis ZSet 中获取 start -- end
+     *
+     * @param    key  Redis key
+     * @param    start  区间开始  0开始
+     * @param    end  区间结束
+     * @return   CompletableFuture<Set<TypedTuple<String>>> value和score，按分数降序
+     */
+    public CompletableFuture<Set<ZSetOperations.TypedTuple<String>>> reverseRangeWithScoresForZSet(String key,
+                                                                                                  long start,
+                                                                                                  long end) {
+        return toFuture(commands().zrevrangeWithScores(key, start, end))
+                .thenApply(scoredValues -> scoredValues.stream().map(RedisAsyncCacheUtils::toTypedTuple)
+                        .collect(Collectors.toCollection(LinkedHashSet::new)));
+    }
+
+    /**
+     * 获取一定排名的value
+     *
+     * @param key  Redis key
+     * @param start  区间开始 0开始
+     * @param end  区间结束
+     */
+    public CompletableFuture<List<String>> reverseRangeForZSet(String key, long start, long end) {
+        return toFuture(commands().zrevrange(key, start, end));
+    }
+
+    /**
+     * 从 Redis ZSet 中获取集合元素个数
+     *
+     * @param key
+     */
+    public CompletableFuture<Long> sizeForZSet(String key) {
+        return toFuture(commands().zcard(key));
+    }
+
+    /**
+     * 从Redis 中删除key
+     *
+     * @param    keys  删除的Redis key
+     * @return   CompletableFuture<Long>  删除的key的数量
+     */
+    public CompletableFuture<Long> delete(String... keys) {
+        return toFuture(commands().del(keys));
+    }
+
+    /**
+     * ScoredValue转换为TypedTuple
+     *
+     * @param scoredValue
+     */
+    private static ZSetOperations.TypedTuple<String> toTypedTuple(ScoredValue<String> scoredValue) {
+        return new DefaultTypedTuple<>(scoredValue.getValue(), scoredValue.getScore());
+    }
+
+    /**
+     * 关闭连接
+     */
+    @Override
+    public void close() {
+        StatefulConnection<String, String> current = connection;
+        if (current != null) {
+            current.close();
+        }
+        binaryCacheUtils.close();
+    }
+
+}
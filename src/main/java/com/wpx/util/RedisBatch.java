@@ -0,0 +1,569 @@
+package com.wpx.util;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * @Author: 不会飞的小鹏
+ * @Description: Redis批量操作，添加的操作在execute时通过pipeline发送
+ * 每个操作返回一个Response，execute之后通过Response获取对应操作的结果
+ * 值可以是String或byte[]，byte[]的值不经过String转换
+ * 开启本地缓存时，execute之后删除value和hash写操作涉及的key的本地缓存
+ * 非线程安全，每次批量操作单独创建
+ */
+public class RedisBatch {
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 单个pipeline的最大命令数
+     */
+    private final int pipelineSize;
+
+    /**
+     * 过期时间抖动的百分比
+     */
+    private final int ttlJitter;
+
+    /**
+     * 本地缓存，未开启时为null
+     */
+    private final RedisNearCache nearCache;
+
+    private final List<Command<?>> commands = new ArrayList<>();
+
+    public RedisBatch(StringRedisTemplate stringRedisTemplate, int pipelineSize) {
+        this(stringRedisTemplate, pipelineSize, 0);
+    }
+
+    /**
+     * @param stringRedisTemplate
+     * @param pipelineSize  单个pipeline的最大命令数
+     * @param ttlJitter  过期时间抖动的百分比，小于等于0时不抖动
+     */
+    public RedisBatch(StringRedisTemplate stringRedisTemplate, int pipelineSize, int ttlJitter) {
+        this(stringRedisTemplate, pipelineSize, ttlJitter, null);
+    }
+
+    /**
+     * @param stringRedisTemplate
+     * @param pipelineSize  单个pipeline的最大命令数
+     * @param ttlJitter  过期时间抖动的百分比，小于等于0时不抖动
+     * @param nearCache  本地缓存，为null时不删除本地缓存
+     */
+    RedisBatch(StringRedisTemplate stringRedisTemplate, int pipelineSize, int ttlJitter, RedisNearCache nearCache) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.pipelineSize = pipelineSize > 0 ? pipelineSize : Integer.MAX_VALUE;
+        this.ttlJitter = ttlJitter;
+        this.nearCache = nearCache;
+    }
+
+    /**
+     * 为key设置过期时间
+     *
+     * @param    key
+     * @param    timeout
+     * @param    timeUnit
+     * @return   Response<Boolean>  是否设置成功
+     */
+    public Response<Boolean> expire(String key, long timeout, TimeUnit timeUnit) {
+        long ttl = TtlUtils.jitter(timeout, timeUnit, ttlJitter);
+        return add(operations -> operations.expire(key, ttl, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * 为key设置过期时间
+     * 单位默认为秒
+     *
+     * @param    key
+     * @param    timeout
+     * @return   Response<Boolean>  是否设置成功
+     */
+    public Response<Boolean> expire(String key, long timeout) {
+        return expire(key, timeout, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 获取key的剩余过期时间
+     *
+     * @param    key
+     * @param    timeUnit
+     * @return   Response<Long>  剩余过期时间，没有过期时间时为-1，key不存在时为-2
+     */
+    public Response<Long> getTtl(String key, TimeUnit timeUnit) {
+        return add(operations -> operations.getExpire(key, timeUnit));
+    }
+
+    /**
+     * 从Redis 中删除某个key
+     *
+     * @param    key
+     * @return   Response<Long>  删除的key的数量
+     */
+    public Response<Long> delete(String key) {
+        return write(key, operations -> operations.delete(key));
+    }
+
+    /**
+     * 获取redis value中的值
+     *
+     * @param    key  Redis Key
+     * @return   Response<String>
+     */
+    public Response<String> getForValue(String key) {
+        return add(operations -> operations.opsForValue().get(key), RedisBatch::toStr);
+    }
+
+    /**
+     * 获取redis value中的值，不转换为String
+     *
+     * @param    key  Redis Key
+     * @return   Response<byte[]>
+     */
+    public Response<byte[]> getBytesForValue(String key) {
+        return add(operations -> operations.execute((RedisCallback<Object>) connection ->
+                connection.get(rawKey(key))));
+    }
+
+    /**
+     * 将数据存放到redis value
+     *
+     * @param    key  Redis key
+     * @param    value  需要存放的数值
+     * @return   Response<Boolean>
+     */
+    public Response<Boolean> setForValue(String key, String value) {
+        return write(key, operations -> operations.opsForValue().set(key, value));
+    }
+
+    /**
+     * redis value 赋值并添加过期时间
+     *
+     * @param key  Redis key
+     * @param value  需要存放的值
+     * @param timeout  过期时间
+     * @param timeUnit  时间单位
+     * @return   Response<Boolean>
+     */
+    public Response<Boolean> setForValueTtl(String key, String value, long timeout, TimeUnit timeUnit) {
+        long ttl = TtlUtils.jitter(timeout, timeUnit, ttlJitter);
+        return write(key, operations -> operations.opsForValue().set(key, value, ttl, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * 将byte[]存放到redis value
+     *
+     * @param    key  Redis key
+     * @param    value  需要存放的数值
+     * @return   Response<Boolean>
+     */
+    public Response<Boolean> setForValue(String key, byte[] value) {
+        return write(key, operations -> operations.execute((RedisCallback<Object>) connection ->
+                connection.set(rawKey(key), value)));
+    }
+
+    /**
+     * redis value 赋值byte[]并添加过期时间
+     *
+     * @param key  Redis key
+     * @param value  需要存放的值
+     * @param timeout  过期时间
+     * @param timeUnit  时间单位
+     * @return   Response<Boolean>
+     */
+    public Response<Boolean> setForValueTtl(String key, byte[] value, long timeout, TimeUnit timeUnit) {
+        long ttl = TtlUtils.jitter(timeout, timeUnit, ttlJitter);
+        return write(key, operations -> operations.execute((RedisCallback<Object>) connection ->
+                connection.set(rawKey(key), value, Expiration.milliseconds(ttl),
+                        RedisStringCommands.SetOption.upsert())));
+    }
+
+    /**
+     * 对Redis的key进行自增
+     *
+     * @param    key  Redis key
+     * @param    delta  自增的数值
+     * @return   Response<Long>  自增后的数值
+     */
+    public Response<Long> incrementForValue(String key, long delta) {
+        return write(key, operations -> operations.opsForValue().increment(key, delta));
+    }
+
+    /**
+     * 从redis hash中获取信息
+     *
+     * @param    key  Redis key
+     * @param    hashKey  hash中的 键值对key
+     * @return   Response<String>
+     */
+    public Response<String> getForHash(String key, String hashKey) {
+        return add(operations -> operations.opsForHash().get(key, hashKey), RedisBatch::toStr);
+    }
+
+    /**
+     * 从redis hash中获取信息，不转换为String
+     *
+     * @param    key  Redis key
+     * @param    hashKey  hash中的 键值对key
+     * @return   Response<byte[]>
+     */
+    public Response<byte[]> getBytesForHash(String key, String hashKey) {
+        return add(operations -> operations.execute((RedisCallback<Object>) connection ->
+                connection.hGet(rawKey(key), rawKey(hashKey))));
+    }
+
+    /**
+     * 将数据保存到redis hash
+     *
+     * @param    key  Redis key
+     * @param    hashKey  hash中的 键值对key
+     * @param    value  hash中的 键值对value
+     * @return   Response<Boolean>  是否为新增的键值对
+     */
+    public Response<Boolean> putForHash(String key, String hashKey, String value) {
+        return write(key, operations -> operations.opsForHash().put(key, hashKey, value));
+    }
+
+    /**
+     * 将byte[]保存到redis hash
+     *
+     * @param    key  Redis key
+     * @param    hashKey  hash中的 键值对key
+     * @param    value  hash中的 键值对value
+     * @return   Response<Boolean>  是否为新增的键值对
+     */
+    public Response<Boolean> putForHash(String key, String hashKey, byte[] value) {
+        return write(key, operations -> operations.execute((RedisCallback<Object>) connection ->
+                connection.hSet(rawKey(key), rawKey(hashKey), value)));
+    }
+
+    /**
+     * redis hash 累加
+     *
+     * @param    key  Redis key
+     * @param    hashKey  hash中的 要对value累加的键值对key
+     * @param    delta  累加的数值
+     * @return   Response<Long>  对应的键值对累加后的value
+     */
+    public Response<Long> incrementForHash(String key, String hashKey, long delta) {
+        return write(key, operations -> operations.opsForHash().increment(key, hashKey, delta));
+    }
+
+    /**
+     * 从redis hash 中删除元素
+     *
+     * @param    key  Redis key
+     * @param    hashKey  hash中的 键值对key
+     * @return   Response<Long>  删除的元素数量
+     */
+    public Response<Long> deleteForHash(String key, String hashKey) {
+        return write(key, operations -> operations.opsForHash().delete(key, hashKey));
+    }
+
+    /**
+     * 从Redis list左端push数据
+     *
+     * @param    key  Redis key
+     * @param    value  存入list中的值
+     * @return   Response<Long>  push后list的size
+     */
+    public Response<Long> leftPushForList(String key, String value) {
+        return add(operations -> operations.opsForList().leftPush(key, value));
+    }
+
+    /**
+     * 从Redis list左端push byte[]
+     *
+     * @param    key  Redis key
+     * @param    value  存入list中的值
+     * @return   Response<Long>  push后list的size
+     */
+    public Response<Long> leftPushForList(String key, byte[] value) {
+        return add(operations -> operations.execute((RedisCallback<Object>) connection ->
+                connection.lPush(rawKey(key), value)));
+    }
+
+    /**
+     * 从Redis list右端push数据
+     *
+     * @param    key  Redis key
+     * @param    value  存入list中的值
+     * @return   Response<Long>  push后list的size
+     */
+    public Response<Long> rightPushForList(String key, String value) {
+        return add(operations -> operations.opsForList().rightPush(key, value));
+    }
+
+    /**
+     * 从Redis list右端push byte[]
+     *
+     * @param    key  Redis key
+     * @param    value  存入list中的值
+     * @return   Response<Long>  push后list的size
+     */
+    public Response<Long> rightPushForList(String key, byte[] value) {
+        return add(operations -> operations.execute((RedisCallback<Object>) connection ->
+                connection.rPush(rawKey(key), value)));
+    }
+
+    /**
+     * 向Redis Set中添加元素
+     *
+     * @param    key
+     * @param    value
+     * @return   Response<Long>  新增的元素数量
+     */
+    public Response<Long> addForSet(String key, String value) {
+        return add(operations -> operations.opsForSet().add(key, value));
+    }
+
+    /**
+     * 向Redis Set中添加byte[]元素
+     *
+     * @param    key
+     * @param    value
+     * @return   Response<Long>  新增的元素数量
+     */
+    public Response<Long> addForSet(String key, byte[] value) {
+        return add(operations -> operations.execute((RedisCallback<Object>) connection ->
+                connection.sAdd(rawKey(key), value)));
+    }
+
+    /**
+     * 从 Redis set 中移除元素
+     *
+     * @param    key
+     * @param    value
+     * @return   Response<Long>  移除的元素数量
+     */
+    public Response<Long> removeForSet(String key, String value) {
+        return add(operations -> operations.opsForSet().remove(key, value));
+    }
+
+    /**
+     * 累加redis sort set 的数值
+     *
+     * @param    key  Redis key
+     * @param    value  需要累加的value -- 累加项
+     * @param    score  累加的数值 -- 分数
+     * @return   Response<Double>  累加后的分数
+     */
+    public Response<Double> incrementScoreForZSet(String key, String value, double score) {
+        return add(operations -> operations.opsForZSet().incrementScore(key, value, score));
+    }
+
+    /**
+     * 已添加的操作数量
+     */
+    public int size() {
+        return commands.size();
+    }
+
+    /**
+     * 通过pipeline执行所有已添加的操作，超过 pipelineSize 时拆分为多个pipeline依次执行
+     * 执行后清空已添加的操作，批量对象可以继续使用
+     * 某个pipeline执行失败时，之前已经执行的操作被移除，再次execute只发送失败及之后的操作
+     *
+     * @return   List<Object>  按添加顺序返回所有操作的结果
+     */
+    public List<Object> execute() {
+        List<Object> results = new ArrayList<>(commands.size());
+        int from = 0;
+        int sent = 0;
+        try {
+            for (; from < commands.size(); from += pipelineSize) {
+                sent = Math.min(from + pipelineSize, commands.size());
+                List<Command<?>> chunk = commands.subList(from, Math.min(from + pipelineSize, commands.size()));
+                List<Object> chunkResults = executePipelined(chunk);
+                for (int i = 0; i < chunk.size(); i++) {
+                    Command<?> command = chunk.get(i);
+                    Object result = command.converter.apply(i < chunkResults.size() ? chunkResults.get(i) : null);
+                    command.response.complete(result);
+                    results.add(result);
+                }
+            }
+        } finally {
+            invalidate(commands.subList(0, sent));
+            commands.subList(0, Math.min(from, commands.size())).clear();
+        }
+        return results;
+    }
+
+    /**
+     * 删除已发送的写操作涉及的key的本地缓存，执行失败的pipeline中的命令也可能已经执行
+     *
+     * @param sent
+     */
+    private void invalidate(List<Command<?>> sent) {
+        if (nearCache == null) {
+            return;
+        }
+        for (Command<?> command : sent) {
+            if (command.key != null) {
+                nearCache.invalidate(command.key);
+            }
+        }
+    }
+
+    /**
+     * 通过一个pipeline执行命令，结果不经过反序列化，由每个命令的converter转换
+     *
+     * @param chunk
+     */
+    private List<Object> executePipelined(List<Command<?>> chunk) {
+        return stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> stringOperations = (RedisOperations<String, String>) operations;
+                chunk.forEach(command -> command.operation.accept(stringOperations));
+                return null;
+            }
+        }, null);
+    }
+
+    /**
+     * 添加操作，结果不转换
+     *
+     * @param operation
+     */
+    private <T> Response<T> add(Consumer<RedisOperations<String, String>> operation) {
+        return add(operation, Function.identity());
+    }
+
+    /**
+     * 添加操作
+     *
+     * @param operation
+     * @param converter  转换pipeline返回的原始结果
+     */
+    private <T> Response<T> add(Consumer<RedisOperations<String, String>> operation,
+                                Function<Object, Object> converter) {
+        return add(null, operation, converter);
+    }
+
+    /**
+     * 添加修改value或hash的操作，execute之后删除key的本地缓存
+     *
+     * @param key  被修改的key
+     * @param operation
+     */
+    private <T> Response<T> write(String key, Consumer<RedisOperations<String, String>> operation) {
+        return add(key, operation, Function.identity());
+    }
+
+    private <T> Response<T> add(String key, Consumer<RedisOperations<String, String>> operation,
+                                Function<Object, Object> converter) {
+        Response<T> response = new Response<>();
+        commands.add(new Command<>(key, operation, converter, response));
+        return response;
+    }
+
+    private static byte[] rawKey(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 原始结果byte[]转换为String
+     *
+     * @param result
+     */
+    private static Object toStr(Object result) {
+        return result instanceof byte[] ? new String((byte[]) result, StandardCharsets.UTF_8) : result;
+    }
+
+    /**
+     * 批量操作中的单个命令
+     */
+    private static class Command<T> {
+
+        /**
+         * 修改value或hash时为被修改的key，其他操作为null
+         */
+        private final String key;
+
+        private final Consumer<RedisOperations<String, String>> operation;
+
+        private final Function<Object, Object> converter;
+
+        private final Response<T> response;
+
+        Command(String key, Consumer<RedisOperations<String, String>> operation, Function<Object, Object> converter,
+                Response<T> response) {
+            this.key = key;
+            this.operation = operation;
+            this.converter = converter;
+            this.response = response;
+        }
+
+    }
+
+    /**
+     * 批量操作中单个操作的结果
+     */
+    public static class Response<T> {
+
+        private T result;
+
+        private boolean executed;
+
+        @SuppressWarnings("unchecked")
+        void complete(Object result) {
+            this.result = (T) result;
+            this.executed = true;
+        }
+
+        /**
+         * 批量操作是否已经执行
+         */
+        public boolean isExecuted() {
+            return executed;
+        }
+
+        /**
+         * 获取操作的结果，需要在批量操作execute之后调用
+         */
+        public T get() {
+            if (!executed) {
+                throw new IllegalStateException("batch has not been executed");
+            }
+            return result;
+        }
+
+        /**
+         * 将结果转换为其他类型，转换在get时进行
+         *
+         * @param mapper
+         */
+        public <R> Response<R> map(Function<? super T, ? extends R> mapper) {
+            Response<T> source = this;
+            return new Response<R>() {
+
+                @Override
+                public boolean isExecuted() {
+                    return source.isExecuted();
+                }
+
+                @Override
+                public R get() {
+                    return mapper.apply(source.get());
+                }
+
+            };
+        }
+
+    }
+
+}
@@ -0,0 +1,423 @@
+package com.wpx.util;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.*;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * @Author: 不会飞的小鹏
+ * @Description: 通过value为byte[]的RedisTemplate操作Redis，值不经过String转换
+ * key和hash的key仍为字符串，与RedisCacheUtils共用本地缓存、Lua脚本、过期时间抖动和批量拆分的配置
+ */
+public class RedisBinaryCacheUtils {
+
+    private final RedisTemplate<String, byte[]> binaryTemplate;
+
+    private final RedisCacheUtils redisCacheUtils;
+
+    /**
+     * 返回byte[]的 GET_AND_EXPIRE 脚本
+     */
+    private final RedisScript<byte[]> getAndExpireScript;
+
+    RedisBinaryCacheUtils(RedisTemplate<String, byte[]> binaryTemplate, RedisCacheUtils redisCacheUtils) {
+        this.binaryTemplate = binaryTemplate;
+        this.redisCacheUtils = redisCacheUtils;
+        this.getAndExpireScript = RedisScript.of(redisCacheUtils.getScriptRegistry()
+                .getScript(RedisScriptRegistry.GET_AND_EXPIRE).getScriptAsString(), byte[].class);
+    }
+
+    /**
+     * 创建key为字符串、value为byte[]的RedisTemplate
+     *
+     * @param connectionFactory
+     * @return RedisTemplate<String, byte[]>
+     */
+    public static RedisTemplate<String, byte[]> createTemplate(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(RedisSerializer.string());
+        template.setHashKeySerializer(RedisSerializer.string());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        template.setHashValueSerializer(RedisSerializer.byteArray());
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    /**
+     * 获取value为byte[]的RedisTemplate
+     *
+     * @return RedisTemplate<String, byte[]>
+     */
+    public RedisTemplate<String, byte[]> getBinaryTemplate() {
+        return binaryTemplate;
+    }
+
+    private static byte[] toBytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 获取redis value中的值
+     *
+     * @param    key  Redis Key
+     * @return   byte[]  从value中获取的数据
+     */
+    public byte[] getForValue(String key) {
+        RedisNearCache nearCache = redisCacheUtils.getNearCache();
+        if (nearCache != null) {
+            return nearCache.get(key, null, byte[].class, () -> binaryTemplate.opsForValue().get(key));
+        }
+        return binaryTemplate.opsForValue().get(key);
+    }
+
+    /**
+     * 将数据存放到redis value
+     *
+     * @param    key  Redis key
+     * @param    value  需要存放的数值
+     */
+    public void setForValue(String key, byte[] value) {
+        binaryTemplate.opsForValue().set(key, value);
+        redisCacheUtils.invalidate(key);
+    }
+
+    /**
+     * redis value 赋值并添加过期时间
+     *
+     * @param key  Redis key
+     * @param value  需要存放的值
+     * @param timeout  过期时间
+     * @param timeUnit  时间单位
+     */
+    public void setForValueTtl(String key, byte[] value, long timeout, TimeUnit timeUnit) {
+        binaryTemplate.opsForValue().set(key, value, redisCacheUtils.ttl(timeout, timeUnit), TimeUnit.MILLISECONDS);
+        redisCacheUtils.invalidate(key);
+    }
+
+    /**
+     * 获取redis value中的值并刷新过期时间
+     * 通过Lua脚本原子执行，key不存在时不设置过期时间
+     *
+     * @param    key  Redis Key
+     * @param    timeout  过期时间
+     * @param    timeUnit  时间单位
+     * @return   byte[]  从value中获取的数据
+     */
+    public byte[] getForValueAndExpire(String key, long timeout, TimeUnit timeUnit) {
+        return binaryTemplate.execute(getAndExpireScript, Collections.singletonList(key),
+                toBytes(String.valueOf(redisCacheUtils.ttl(timeout, timeUnit))));
+    }
+
+    /**
+     * 当key的值与期望值一致时删除key
+     * 通过Lua脚本原子执行
+     *
+     * @param    key  Redis Key
+     * @param    expectedValue  期望的值
+     * @return   boolean  是否删除
+     */
+    public boolean compareAndDelete(String key, byte[] expectedValue) {
+        Long deleted = redisCacheUtils.getScriptRegistry().execute(binaryTemplate,
+                RedisScriptRegistry.COMPARE_AND_DELETE, Collections.singletonList(key), (Object) expectedValue);
+        redisCacheUtils.invalidate(key);
+        return deleted != null && deleted > 0;
+    }
+
+    /**
+     * 批量获取redis value中的值
+     * 按 multiKeySize 拆分为多个MGET，集群模式下按hash slot分组，所有MGET通过一个pipeline发送
+     *
+     * @param    keys  Redis key集合
+     * @return   List<byte[]>  与keys顺序一致的值，不存在的key对应null
+     */
+    public List<byte[]> multiGetForValue(Collection<String> keys) {
+        if (CollectionUtils.isEmpty(keys)) {
+            return new ArrayList<>();
+        }
+        List<String> keyList = new ArrayList<>(keys);
+        List<List<String>> keyChunks = redisCacheUtils.chunkKeys(keyList);
+        List<Object> chunkValues = binaryTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                ValueOperations<String, byte[]> valueOperations =
+                        (ValueOperations<String, byte[]>) operations.opsForValue();
+                keyChunks.forEach(valueOperations::multiGet);
+                return null;
+            }
+        });
+        Map<String, byte[]> valueMap = new HashMap<>(keyList.size() * 2);
+        for (int i = 0; i < keyChunks.size(); i++) {
+            List<String> chunk = keyChunks.get(i);
+            @SuppressWarnings("unchecked")
+            List<byte[]> values = (List<byte[]>) chunkValues.get(i);
+            for (int j = 0; j < chunk.size(); j++) {
+                valueMap.put(chunk.get(j), values == null ? null : values.get(j));
+            }
+        }
+        return CollectionUtils.conversionList(keyList, valueMap::get);
+    }
+
+    /**
+     * 批量将数据存放到redis value
+     * 按 multiKeySize 拆分为多个MSET，集群模式下按hash slot分组，所有MSET通过一个pipeline发送
+     *
+     * @param    valueMap  key和对应的值
+     */
+    public void multiSetForValue(Map<String, byte[]> valueMap) {
+        if (CollectionUtils.isEmpty(valueMap)) {
+            return;
+        }
+        List<List<String>> keyChunks = redisCacheUtils.chunkKeys(new ArrayList<>(valueMap.keySet()));
+        binaryTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                ValueOperations<String, byte[]> valueOperations =
+                        (ValueOperations<String, byte[]>) operations.opsForValue();
+                for (List<String> chunk : keyChunks) {
+                    Map<String, byte[]> chunkMap = new LinkedHashMap<>(chunk.size() * 2);
+                    chunk.forEach(key -> chunkMap.put(key, valueMap.get(key)));
+                    valueOperations.multiSet(chunkMap);
+                }
+                return null;
+            }
+        });
+        valueMap.keySet().forEach(redisCacheUtils::invalidate);
+    }
+
+    /**
+     * 批量将数据存放到redis value并添加过期时间
+     * 每个key使用一个SET PX命令，按 pipelineSize 拆分pipeline发送
+     *
+     * @param    valueMap  key和对应的值
+     * @param    timeout  过期时间
+     * @param    timeUnit  时间单位
+     */
+    public void multiSetForValueTtl(Map<String, byte[]> valueMap, long timeout, TimeUnit timeUnit) {
+        if (CollectionUtils.isEmpty(valueMap)) {
+            return;
+        }
+        RedisBatch batch = redisCacheUtils.batch();
+        valueMap.forEach((key, value) -> batch.setForValueTtl(key, value, timeout, timeUnit));
+        batch.execute();
+    }
+
+    /**
+     * 从redis hash中获取信息
+     *
+     * @param    key  Redis key
+     * @param    hashKey  hash中的 键值对key
+     * @return   byte[]
+     */
+    public byte[] getForHash(String key, String hashKey) {
+        HashOperations<String, String, byte[]> ops = binaryTemplate.opsForHash();
+        RedisNearCache nearCache = redisCacheUtils.getNearCache();
+        if (nearCache != null) {
+            return nearCache.get(key, hashKey, byte[].class, () -> ops.get(key, hashKey));
+        }
+        return ops.get(key, hashKey);
+    }
+
+    /**
+     * 将数据保存到redis hash
+     *
+     * @param    key  Redis key
+     * @param    hashKey  hash中的 键值对key
+     * @param    value  hash中的 键值对value
+     */
+    public void putForHash(String key, String hashKey, byte[] value) {
+        binaryTemplate.opsForHash().put(key, hashKey, value);
+        redisCacheUtils.invalidate(key);
+    }
+
+    /**
+     * 将数据保存到redis hash并设置hash的过期时间
+     * 通过Lua脚本原子执行
+     *
+     * @param    key  Redis key
+     * @param    hashKey  hash中的 键值对key
+     * @param    value  hash中的 键值对value
+     * @param    timeout  过期时间
+     * @param    timeUnit  时间单位
+     */
+    public void putForHashTtl(String key, String hashKey, byte[] value, long timeout, TimeUnit timeUnit) {
+        redisCacheUtils.getScriptRegistry().execute(binaryTemplate, RedisScriptRegistry.HASH_PUT_TTL,
+                Collections.singletonList(key), toBytes(hashKey), value,
+                toBytes(String.valueOf(redisCacheUtils.ttl(timeout, timeUnit))));
+        redisCacheUtils.invalidate(key);
+    }
+
+    /**
+     * 从redis hash中获取多个信息
+     *
+     * @param key
+     * @param hashKeys
+     * @return List<byte[]>  与hashKeys顺序一致的值
+     */
+    public List<byte[]> multiGetForHash(String key, Collection<String> hashKeys) {
+        HashOperations<String, String, byte[]> ops = binaryTemplate.opsForHash();
+        return ops.multiGet(key, hashKeys);
+    }
+
+    /**
+     * 从redis hash 获取对应key下的所有value
+     *
+     * @param    key  Redis key
+     * @return   List<byte[]>
+     */
+    public List<byte[]> valuesForHash(String key) {
+        HashOperations<String, String, byte[]> ops = binaryTemplate.opsForHash();
+        return ops.values(key);
+    }
+
+    /**
+     * 从redis hash 获取对应key下的所有键值对
+     *
+     * @param    key  Redis key
+     * @return   Map<String, byte[]>
+     */
+    public Map<String, byte[]> entriesForHash(String key) {
+        HashOperations<String, String, byte[]> ops = binaryTemplate.opsForHash();
+        return ops.entries(key);
+    }
+
+    /**
+     * 通过HSCAN流式遍历hash的所有键值对
+     * 使用后需要关闭Stream以释放cursor，建议使用try-with-resources
+     *
+     * @param    key  Redis key
+     * @param    count  每次HSCAN的数量提示
+     * @return   Stream<Map.Entry<String, byte[]>>  hash的键值对
+     */
+    public Stream<Map.Entry<String, byte[]>> scanForHash(String key, int count) {
+        HashOperations<String, String, byte[]> ops = binaryTemplate.opsForHash();
+        return redisCacheUtils.cursorStream(ops.scan(key, redisCacheUtils.scanOptions(count)));
+    }
+
+    /**
+     * 从Redis list中pop数据
+     *
+     * @param    key  Redis Key
+     * @return   byte[]  从list左端pop
+     */
+    public byte[] leftPopForList(String key) {
+        return binaryTemplate.opsForList().leftPop(key);
+    }
+
+    /**
+     * 从Redis list中pop数据
+     *
+     * @param    key  Redis Key
+     * @return   byte[]  从list右端pop
+     */
+    public byte[] rightPopForList(String key) {
+        return binaryTemplate.opsForList().rightPop(key);
+    }
+
+    /**
+     * 从Redis list中push数据
+     *
+     * @param    key  Redis key
+     * @param    value  存入list中的值  从list左端push
+     */
+    public void leftPushForList(String key, byte[] value) {
+        binaryTemplate.opsForList().leftPush(key, value);
+    }
+
+    /**
+     * 从Redis list中push数据
+     *
+     * @param    key  Redis key
+     * @param    value  存入list中的值  从list右端push
+     */
+    public void rightPushForList(String key, byte[] value) {
+        binaryTemplate.opsForList().rightPush(key, value);
+    }
+
+    /**
+     * 从redis list中range区间数据
+     *
+     * @param    key  Redis key
+     * @param    start  区间的开始
+     * @param    end  区间的结束
+     * @return   List<byte[]>  从区间获取的数据集合
+     */
+    public List<byte[]> rangeForList(String key, long start, long end) {
+        return binaryTemplate.opsForList().range(key, start, end);
+    }
+
+    /**
+     * 向Redis Set中添加元素
+     *
+     * @param    key
+     * @param    value
+     */
+    public void addForSet(String key, byte[] value) {
+        binaryTemplate.opsForSet().add(key, value);
+    }
+
+    /**
+     * 从 Redis Set 中pop元素
+     *
+     * @param    key
+     */
+    public byte[] popForSet(String key) {
+        return binaryTemplate.opsForSet().pop(key);
+    }
+
+    /**
+     * 从 Redis Set 中pop元素
+     *
+     * @param    key
+     * @param    count
+     */
+    public List<byte[]> popForSet(String key, long count) {
+        return binaryTemplate.opsForSet().pop(key, count);
+    }
+
+    /**
+     * 获取Redis Set中的所有元素
+     * byte[]没有按内容实现equals，返回List
+     *
+     * @param key
+     */
+    public List<byte[]> membersForSet(String key) {
+        Set<byte[]> members = binaryTemplate.opsForSet().members(key);
+        return members == null ? null : new ArrayList<>(members);
+    }
+
+    /**
+     * 通过SSCAN流式遍历set的所有元素
+     * 使用后需要关闭Stream以释放cursor，建议使用try-with-resources
+     *
+     * @param key
+     * @param count  每次SSCAN的数量提示
+     * @return Stream<byte[]>  set的元素
+     */
+    public Stream<byte[]> scanForSet(String key, int count) {
+        return redisCacheUtils.cursorStream(binaryTemplate.opsForSet().scan(key, redisCacheUtils.scanOptions(count)));
+    }
+
+    /**
+     * 通过ZSCAN流式遍历sort set的所有元素和分数
+     * 使用后需要关闭Stream以释放cursor，建议使用try-with-resources
+     *
+     * @param key
+     * @param count  每次ZSCAN的数量提示
+     * @return Stream<TypedTuple<byte[]>>  value和score
+     */
+    public Stream<ZSetOperations.TypedTuple<byte[]>> scanForZSet(String key, int count) {
+        return redisCacheUtils.cursorStream(binaryTemplate.opsForZSet().scan(key,
+                redisCacheUtils.scanOptions(count)));
+    }
+
+}
@@ -1,22 +1,70 @@
 package com.wpx.util;
 
+import com.wpx.property.RedisMessageProperties;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.*;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @Author: 不会飞的小鹏
  */
-public class RedisCacheUtils {
+public class RedisCacheUtils implements AutoCloseable {
 
     private StringRedisTemplate stringRedisTemplate;
 
+    private RedisMessageProperties.Operations operations;
+
+    private RedisScriptRegistry scriptRegistry;
+
+    /**
+     * 本地缓存，未开启时为null
+     */
+    private RedisNearCache nearCache;
+
+    /**
+     * 通过byte[]类型的RedisTemplate操作Redis
+     */
+    private RedisBinaryCacheUtils binaryCacheUtils;
+
     public RedisCacheUtils(StringRedisTemplate stringRedisTemplate) {
+        this(stringRedisTemplate, new RedisMessageProperties.Operations());
+    }
+
+    public RedisCacheUtils(StringRedisTemplate stringRedisTemplate, RedisMessageProperties.Operations operations) {
+        this(stringRedisTemplate,
+                RedisBinaryCacheUtils.createTemplate(stringRedisTemplate.getRequiredConnectionFactory()), operations);
+    }
+
+    /**
+     * @param stringRedisTemplate
+     * @param binaryTemplate  value为byte[]的RedisTemplate，与stringRedisTemplate使用同一个连接工厂
+     * @param operations
+     */
+    public RedisCacheUtils(StringRedisTemplate stringRedisTemplate, RedisTemplate<String, byte[]> binaryTemplate,
+                           RedisMessageProperties.Operations operations) {
         this.stringRedisTemplate = stringRedisTemplate;
+        this.operations = operations;
+        this.scriptRegistry = new RedisScriptRegistry(stringRedisTemplate);
+        this.binaryCacheUtils = new RedisBinaryCacheUtils(binaryTemplate, this);
+        RedisConnectionFactory connectionFactory = stringRedisTemplate.getConnectionFactory();
+        if (operations.getNearCache().isEnabled() && connectionFactory instanceof LettuceConnectionFactory) {
+            this.nearCache = new RedisNearCache((LettuceConnectionFactory) connectionFactory,
+                    operations.getNearCache());
+        }
     }
 
     /**
@@ -34,6 +82,85 @@ public class RedisCacheUtils {
         return stringRedisTemplate.getExpire(key, TimeUnit.SECONDS);
     }
 
+    /**
+     * 创建批量操作
+     * 添加的操作在execute时通过pipeline一次性发送，超过 pipelineSize 时自动拆分为多个pipeline
+     *
+     * @return RedisBatch
+     */
+    public RedisBatch batch() {
+        return new RedisBatch(stringRedisTemplate, operations.getPipelineSize(), operations.getTtlJitter(), nearCache);
+    }
+
+    /**
+     * 获取当前数据源的操作选项
+     *
+     * @return RedisMessageProperties.Operations
+     */
+    public RedisMessageProperties.Operations getOperations() {
+        return operations;
+    }
+
+    /**
+     * 获取当前数据源的Lua脚本注册表，可以注册自定义脚本
+     *
+     * @return RedisScriptRegistry
+     */
+    public RedisScriptRegistry getScriptRegistry() {
+        return scriptRegistry;
+    }
+
+    /**
+     * 获取本地缓存，可以查看命中率等统计信息
+     *
+     * @return RedisNearCache  未开启时为null
+     */
+    public RedisNearCache getNearCache() {
+        return nearCache;
+    }
+
+    /**
+     * 获取通过byte[]读写值的操作，RedisBaseService的对象方法通过它保存编码后的值
+     *
+     * @return RedisBinaryCacheUtils
+     */
+    public RedisBinaryCacheUtils getBinaryCacheUtils() {
+        return binaryCacheUtils;
+    }
+
+    /**
+     * 关闭本地缓存的失效连接
+     */
+    @Override
+    public void close() {
+        if (nearCache != null) {
+            nearCache.close();
+        }
+    }
+
+    /**
+     * 计算过期时间，配置了 ttlJitter 时增加随机的抖动
+     *
+     * @param timeout
+     * @param timeUnit
+     * @return long  过期时间  单位为毫秒
+     */
+    long ttl(long timeout, TimeUnit timeUnit) {
+        return TtlUtils.jitter(timeout, timeUnit, operations.getTtlJitter());
+    }
+
+    /**
+     * key被修改后删除本地缓存
+     * 其他客户端的修改通过失效通知删除
+     *
+     * @param key
+     */
+    void invalidate(String key) {
+        if (nearCache != null) {
+            nearCache.invalidate(key);
+        }
+    }
+
     /** =======================================  通过StringRedisTemplate操作Redis  ===================================== */
 
     /**
@@ -66,7 +193,7 @@ public class RedisCacheUtils {
      * @param    timeout
      */
     public void expire(String key, long timeout, TimeUnit timeUnit) {
-        stringRedisTemplate.expire(key, timeout, timeUnit);
+        stringRedisTemplate.expire(key, ttl(timeout, timeUnit), TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -76,6 +203,9 @@ public class RedisCacheUtils {
      * @return   String  从value中获取的数据
      */
     public String getForValue(String key) {
+        if (nearCache != null) {
+            return nearCache.get(key, null, String.class, () -> stringRedisTemplate.opsForValue().get(key));
+        }
         return stringRedisTemplate.opsForValue().get(key);
     }
 
@@ -87,6 +217,7 @@ public class RedisCacheUtils {
      */
     public void setForValue(String key, String value) {
         stringRedisTemplate.opsForValue().set(key, value);
+        invalidate(key);
     }
 
     /**
@@ -120,7 +251,147 @@ public class RedisCacheUtils {
      * @param timeUnit  时间单位
      */
     public void setForValueTtl(String key, String value, Long timeout, TimeUnit timeUnit) {
-        stringRedisTemplate.opsForValue().set(key, value, timeout, timeUnit);
+        stringRedisTemplate.opsForValue().set(key, value, ttl(timeout, timeUnit), TimeUnit.MILLISECONDS);
+        invalidate(key);
+    }
+
+    /**
+     * key不存在时赋值并添加过期时间
+     *
+     * @param key  Redis key
+     * @param value  需要存放的值
+     * @param timeout  过期时间
+     * @param timeUnit  时间单位
+     * @return Boolean  是否赋值成功
+     */
+    public Boolean setIfAbsentForValue(String key, String value, long timeout, TimeUnit timeUnit) {
+        Boolean set = stringRedisTemplate.opsForValue().setIfAbsent(key, value, timeout, timeUnit);
+        invalidate(key);
+        return set;
+    }
+
+    /**
+     * 批量获取redis value中的值
+     * 按 multiKeySize 拆分为多个MGET，集群模式下按hash slot分组，所有MGET通过一个pipeline发送
+     *
+     * @param    keys  Redis key集合
+     * @return   List<String>  与keys顺序一致的值，不存在的key对应null
+     */
+    public List<String> multiGetForValue(Collection<String> keys) {
+        if (CollectionUtils.isEmpty(keys)) {
+            return new ArrayList<>();
+        }
+        List<String> keyList = new ArrayList<>(keys);
+        List<List<String>> keyChunks = chunkKeys(keyList);
+        List<Object> chunkValues = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                ValueOperations<String, String> valueOperations =
+                        (ValueOperations<String, String>) operations.opsForValue();
+                keyChunks.forEach(valueOperations::multiGet);
+                return null;
+            }
+        });
+        Map<String, String> valueMap = new HashMap<>(keyList.size() * 2);
+        for (int i = 0; i < keyChunks.size(); i++) {
+            List<String> chunk = keyChunks.get(i);
+            @SuppressWarnings("unchecked")
+            List<String> values = (List<String>) chunkValues.get(i);
+            for (int j = 0; j < chunk.size(); j++) {
+                valueMap.put(chunk.get(j), values == null ? null : values.get(j));
+            }
+        }
+        return CollectionUtils.conversionList(keyList, valueMap::get);
+    }
+
+    /**
+     * 批量将数据存放到redis value
+     * 按 multiKeySize 拆分为多个MSET，集群模式下按hash slot分组，所有MSET通过一个pipeline发送
+     *
+     * @param    valueMap  key和对应的值
+     */
+    public void multiSetForValue(Map<String, String> valueMap) {
+        if (CollectionUtils.isEmpty(valueMap)) {
+            return;
+        }
+        List<List<String>> keyChunks = chunkKeys(new ArrayList<>(valueMap.keySet()));
+        stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                ValueOperations<String, String> valueOperations =
+                        (ValueOperations<String, String>) operations.opsForValue();
+                for (List<String> chunk : keyChunks) {
+                    Map<String, String> chunkMap = new LinkedHashMap<>(chunk.size() * 2);
+                    chunk.forEach(key -> chunkMap.put(key, valueMap.get(key)));
+                    valueOperations.multiSet(chunkMap);
+                }
+                return null;
+            }
+        });
+        valueMap.keySet().forEach(this::invalidate);
+    }
+
+    /**
+     * 批量将数据存放到redis value并添加过期时间
+     * MSET不支持过期时间，每个key使用一个SET EX命令，按 pipelineSize 拆分pipeline发送
+     *
+     * @param    valueMap  key和对应的值
+     * @param    timeout  过期时间
+     * @param    timeUnit  时间单位
+     */
+    public void multiSetForValueTtl(Map<String, String> valueMap, Long timeout, TimeUnit timeUnit) {
+        if (CollectionUtils.isEmpty(valueMap)) {
+            return;
+        }
+        RedisBatch batch = batch();
+        valueMap.forEach((key, value) -> batch.setForValueTtl(key, value, timeout, timeUnit));
+        batch.execute();
+    }
+
+    /**
+     * 批量将数据存放到redis value并添加过期时间
+     * 默认3天
+     *
+     * @param    valueMap  key和对应的值
+     */
+    public void multiSetForValueTtl(Map<String, String> valueMap) {
+        multiSetForValueTtl(valueMap, TTL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 将key拆分为多个批次
+     * 集群模式下先按hash slot分组，保证同一批次的key在同一个slot
+     *
+     * @param    keys
+     * @return   List<List<String>>  每个批次最多 multiKeySize 个key
+     */
+    List<List<String>> chunkKeys(List<String> keys) {
+        Collection<List<String>> groups;
+        if (isCluster()) {
+            groups = keys.stream().collect(Collectors.groupingBy(ClusterSlotHashUtil::calculateSlot,
+                    LinkedHashMap::new, Collectors.toList())).values();
+        } else {
+            groups = Collections.singletonList(keys);
+        }
+        int chunkSize = operations.getMultiKeySize() > 0 ? operations.getMultiKeySize() : Integer.MAX_VALUE;
+        List<List<String>> chunks = new ArrayList<>();
+        for (List<String> group : groups) {
+            for (int from = 0; from < group.size(); from += chunkSize) {
+                chunks.add(group.subList(from, Math.min(from + chunkSize, group.size())));
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * 是否为集群模式
+     */
+    private boolean isCluster() {
+        RedisConnectionFactory connectionFactory = stringRedisTemplate.getRequiredConnectionFactory();
+        return connectionFactory instanceof LettuceConnectionFactory
+                && ((LettuceConnectionFactory) connectionFactory).isClusterAware();
     }
 
     /**
@@ -131,7 +402,9 @@ public class RedisCacheUtils {
      * @return   Long  自增后的数值
      */
     public Long incrementForValue(String key, Long delta){
-        return stringRedisTemplate.opsForValue().increment(key, delta);
+        Long value = stringRedisTemplate.opsForValue().increment(key, delta);
+        invalidate(key);
+        return value;
     }
 
     /**
@@ -153,7 +426,55 @@ public class RedisCacheUtils {
      * @return   Long  自增后的值
      */
     public Long incrementForValue(String key, Integer delta){
-        return stringRedisTemplate.opsForValue().increment(key, delta);
+        Long value = stringRedisTemplate.opsForValue().increment(key, delta);
+        invalidate(key);
+        return value;
+    }
+
+    /**
+     * 对Redis的key进行自增，key没有过期时间时设置过期时间
+     * 通过Lua脚本原子执行，适用于固定窗口的计数
+     *
+     * @param    key  Redis key
+     * @param    delta  自增的数值
+     * @param    timeout  过期时间
+     * @param    timeUnit  时间单位
+     * @return   Long  自增后的数值
+     */
+    public Long incrementForValueTtl(String key, long delta, long timeout, TimeUnit timeUnit) {
+        Long value = scriptRegistry.execute(RedisScriptRegistry.INCREMENT_TTL, Collections.singletonList(key),
+                String.valueOf(delta), String.valueOf(ttl(timeout, timeUnit)));
+        invalidate(key);
+        return value;
+    }
+
+    /**
+     * 获取redis value中的值并刷新过期时间
+     * 通过Lua脚本原子执行，key不存在时不设置过期时间
+     *
+     * @param    key  Redis Key
+     * @param    timeout  过期时间
+     * @param    timeUnit  时间单位
+     * @return   String  从value中获取的数据
+     */
+    public String getForValueAndExpire(String key, long timeout, TimeUnit timeUnit) {
+        return scriptRegistry.execute(RedisScriptRegistry.GET_AND_EXPIRE, Collections.singletonList(key),
+                String.valueOf(ttl(timeout, timeUnit)));
+    }
+
+    /**
+     * 当key的值与期望值一致时删除key
+     * 通过Lua脚本原子执行
+     *
+     * @param    key  Redis Key
+     * @param    expectedValue  期望的值
+     * @return   boolean  是否删除
+     */
+    public boolean compareAndDelete(String key, String expectedValue) {
+        Long deleted = scriptRegistry.execute(RedisScriptRegistry.COMPARE_AND_DELETE,
+                Collections.singletonList(key), expectedValue);
+        invalidate(key);
+        return deleted != null && deleted > 0;
     }
 
     /**
@@ -164,6 +485,10 @@ public class RedisCacheUtils {
      * @return   String
      */
     public String getForHash(String key, String hashKey) {
+        if (nearCache != null) {
+            return nearCache.get(key, hashKey, String.class,
+                    () -> (String) stringRedisTemplate.opsForHash().get(key, hashKey));
+        }
         return (String) stringRedisTemplate.opsForHash().get(key, hashKey);
     }
 
@@ -176,6 +501,23 @@ public class RedisCacheUtils {
      */
     public void putForHash(String key, String hashKey, String value){
         stringRedisTemplate.opsForHash().put(key, hashKey, value);
+        invalidate(key);
+    }
+
+    /**
+     * 将数据保存到redis hash并设置hash的过期时间
+     * 通过Lua脚本原子执行
+     *
+     * @param    key  Redis key
+     * @param    hashKey  hash中的 键值对key
+     * @param    value  hash中的 键值对value
+     * @param    timeout  过期时间
+     * @param    timeUnit  时间单位
+     */
+    public void putForHashTtl(String key, String hashKey, String value, long timeout, TimeUnit timeUnit) {
+        scriptRegistry.execute(RedisScriptRegistry.HASH_PUT_TTL, Collections.singletonList(key), hashKey, value,
+                String.valueOf(ttl(timeout, timeUnit)));
+        invalidate(key);
     }
 
     /**
@@ -198,7 +540,9 @@ public class RedisCacheUtils {
      * @return   Long  对应的键值对累加后的value
      */
     public Long incrementForHash(String key, String hashKey, Integer delta){
-        return stringRedisTemplate.opsForHash().increment(key, hashKey, delta);
+        Long value = stringRedisTemplate.opsForHash().increment(key, hashKey, delta);
+        invalidate(key);
+        return value;
     }
 
     /**
@@ -210,7 +554,9 @@ public class RedisCacheUtils {
      * @return   Long  对应的键值对累加后的value
      */
     public Long incrementForHash(String key, String hashKey, Long delta){
-        return stringRedisTemplate.opsForHash().increment(key, hashKey, delta);
+        Long value = stringRedisTemplate.opsForHash().increment(key, hashKey, delta);
+        invalidate(key);
+        return value;
     }
 
     /**
@@ -232,6 +578,7 @@ public class RedisCacheUtils {
      */
     public void multiPutForHash(String key, Map<String, String> valueMap) {
         stringRedisTemplate.opsForHash().putAll(key, valueMap);
+        invalidate(key);
     }
 
     /**
@@ -269,13 +616,41 @@ public class RedisCacheUtils {
 
     /**
      * 从redis hash 获取对应key下的所有键值对
+     * 通过HSCAN分批获取，遍历结束后释放cursor
      *
      * @param    key  Redis key
-     * @return Cursor<Map.Entry < String, String>>  对应的redis key下的所有键值对  链式结构
+     * @return Map<String, String>  对应的redis key下的所有键值对
+     */
+    public Map<String, String> getAllForHash(String key) {
+        Map<String, String> entries = new HashMap<>();
+        try (Stream<Map.Entry<String, String>> stream = scanForHash(key)) {
+            stream.forEach(entry -> entries.put(entry.getKey(), entry.getValue()));
+        }
+        return entries;
+    }
+
+    /**
+     * 通过HSCAN流式遍历hash的所有键值对，每次HSCAN的数量由 scanCount 提示
+     * 使用后需要关闭Stream以释放cursor，建议使用try-with-resources
+     *
+     * @param    key  Redis key
+     * @return   Stream<Map.Entry<String, String>>  hash的键值对
+     */
+    public Stream<Map.Entry<String, String>> scanForHash(String key) {
+        return scanForHash(key, operations.getScanCount());
+    }
+
+    /**
+     * 通过HSCAN流式遍历hash的所有键值对
+     * 使用后需要关闭Stream以释放cursor，建议使用try-with-resources
+     *
+     * @param    key  Redis key
+     * @param    count  每次HSCAN的数量提示
+     * @return   Stream<Map.Entry<String, String>>  hash的键值对
      */
-    public Cursor<Map.Entry<String, String>> getAllForHash(String key) {
+    public Stream<Map.Entry<String, String>> scanForHash(String key, int count) {
         HashOperations<String, String, String> ops = stringRedisTemplate.opsForHash();
-        return ops.scan(key, ScanOptions.NONE);
+        return cursorStream(ops.scan(key, scanOptions(count)));
     }
 
     /**
@@ -286,6 +661,7 @@ public class RedisCacheUtils {
      */
     public void deleteForHash(String key, String hashKey){
         stringRedisTemplate.opsForHash().delete(key, hashKey);
+        invalidate(key);
     }
 
     /**
@@ -296,6 +672,7 @@ public class RedisCacheUtils {
      */
     public void deleteForHash(String key, Object[] hashKeys){
         stringRedisTemplate.opsForHash().delete(key, hashKeys);
+        invalidate(key);
     }
 
     /**
@@ -430,6 +807,29 @@ public class RedisCacheUtils {
         return stringRedisTemplate.opsForSet().members(key);
     }
 
+    /**
+     * 通过SSCAN流式遍历set的所有元素，每次SSCAN的数量由 scanCount 提示
+     * 使用后需要关闭Stream以释放cursor，建议使用try-with-resources
+     *
+     * @param key
+     * @return Stream<String>  set的元素
+     */
+    public Stream<String> scanForSet(String key) {
+        return scanForSet(key, operations.getScanCount());
+    }
+
+    /**
+     * 通过SSCAN流式遍历set的所有元素
+     * 使用后需要关闭Stream以释放cursor，建议使用try-with-resources
+     *
+     * @param key
+     * @param count  每次SSCAN的数量提示
+     * @return Stream<String>  set的元素
+     */
+    public Stream<String> scanForSet(String key, int count) {
+        return cursorStream(stringRedisTemplate.opsForSet().scan(key, scanOptions(count)));
+    }
+
     /**
      * set中是否存在对应的成员
      *
@@ -581,6 +981,29 @@ public class RedisCacheUtils {
         return stringRedisTemplate.opsForZSet().reverseRange(key, start, end);
     }
 
+    /**
+     * 通过ZSCAN流式遍历sort set的所有元素和分数，每次ZSCAN的数量由 scanCount 提示
+     * 使用后需要关闭Stream以释放cursor，建议使用try-with-resources
+     *
+     * @param key
+     * @return Stream<TypedTuple<String>>  value和score
+     */
+    public Stream<ZSetOperations.TypedTuple<String>> scanForZSet(String key) {
+        return scanForZSet(key, operations.getScanCount());
+    }
+
+    /**
+     * 通过ZSCAN流式遍历sort set的所有元素和分数
+     * 使用后需要关闭Stream以释放cursor，建议使用try-with-resources
+     *
+     * @param key
+     * @param count  每次ZSCAN的数量提示
+     * @return Stream<TypedTuple<String>>  value和score
+     */
+    public Stream<ZSetOperations.TypedTuple<String>> scanForZSet(String key, int count) {
+        return cursorStream(stringRedisTemplate.opsForZSet().scan(key, scanOptions(count)));
+    }
+
     /**
      * 从 Redis ZSet 中获取集合元素个数
      *
@@ -592,12 +1015,208 @@ public class RedisCacheUtils {
 
     /**
      * 匹配按照规则指定的前缀的key
+     * 通过SCAN分批遍历，不会像KEYS一样阻塞Redis；匹配的key很多时请使用 scanKeys 流式处理
      *
      * @param    key  需要匹配的key
      * @return   Set<String>  匹配的key集合
      */
     public Set<String> getKeys(String key) {
-        return stringRedisTemplate.keys(key);
+        try (Stream<String> keys = scanKeys(key)) {
+            return keys.collect(Collectors.toSet());
+        }
+    }
+
+    /**
+     * 通过SCAN流式遍历匹配的key，每次SCAN的数量由 scanCount 提示
+     * 使用后需要关闭Stream以释放连接，建议使用try-with-resources
+     * SCAN可能返回重复的key，集群模式下依次遍历所有master节点
+     *
+     * @param    pattern  需要匹配的key
+     * @return   Stream<String>  匹配的key
+     */
+    public Stream<String> scanKeys(String pattern) {
+        return scanKeys(pattern, operations.getScanCount());
+    }
+
+    /**
+     * 通过SCAN流式遍历匹配的key
+     * 使用后需要关闭Stream以释放连接，建议使用try-with-resources
+     *
+     * @param    pattern  需要匹配的key
+     * @param    count  每次SCAN的数量提示
+     * @return   Stream<String>  匹配的key
+     */
+    public Stream<String> scanKeys(String pattern, int count) {
+        ScanOptions.ScanOptionsBuilder builder = ScanOptions.scanOptions().match(pattern);
+        if (count > 0) {
+            builder.count(count);
+        }
+        ScanOptions options = builder.build();
+        RedisSerializer<String> serializer = stringRedisTemplate.getStringSerializer();
+        Iterator<byte[]> cursor;
+        Runnable closer;
+        if (isCluster()) {
+            RedisClusterConnection connection = stringRedisTemplate.getRequiredConnectionFactory()
+                    .getClusterConnection();
+            ClusterScanIterator iterator = new ClusterScanIterator(connection, options);
+            cursor = iterator;
+            closer = iterator::close;
+        } else {
+            Cursor<byte[]> scanCursor = stringRedisTemplate.executeWithStickyConnection(
+                    connection -> connection.scan(options));
+            cursor = scanCursor;
+            closer = scanCursor::close;
+        }
+        Spliterator<byte[]> spliterator = Spliterators.spliteratorUnknownSize(cursor,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).map(serializer::deserialize).onClose(closer);
+    }
+
+    /**
+     * 获取HSCAN、SSCAN、ZSCAN的选项
+     *
+     * @param    count  每次SCAN的数量提示，小于等于0时使用Redis默认值
+     */
+    ScanOptions scanOptions(int count) {
+        ScanOptions.ScanOptionsBuilder builder = ScanOptions.scanOptions();
+        if (count > 0) {
+            builder.count(count);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 将cursor转换为Stream，关闭Stream时关闭cursor
+     *
+     * @param    cursor
+     */
+    <T> Stream<T> cursorStream(Cursor<T> cursor) {
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED);
+        return StreamSupport.stream(spliterator, false).onClose(cursor::close);
+    }
+
+    /**
+     * 通过SCAN遍历匹配的key，按批次交给consumer处理，遍历结束后自动释放连接
+     * 每批最多 scanCount 个key，内存占用与批次大小有关，与匹配的key总数无关
+     *
+     * @param    pattern  需要匹配的key
+     * @param    consumer  处理每批key
+     * @return   long  遍历的key总数
+     */
+    public long scanKeys(String pattern, Consumer<List<String>> consumer) {
+        return scanKeys(pattern, operations.getScanCount(), consumer);
+    }
+
+    /**
+     * 通过SCAN遍历匹配的key，按批次交给consumer处理，遍历结束后自动释放连接
+     *
+     * @param    pattern  需要匹配的key
+     * @param    count  每次SCAN的数量提示，同时为每批的最大数量
+     * @param    consumer  处理每批key
+     * @return   long  遍历的key总数
+     */
+    public long scanKeys(String pattern, int count, Consumer<List<String>> consumer) {
+        int batchSize = count > 0 ? count : 1000;
+        long total = 0;
+        try (Stream<String> keys = scanKeys(pattern, count)) {
+            List<String> batch = new ArrayList<>(batchSize);
+            Iterator<String> iterator = keys.iterator();
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() >= batchSize) {
+                    consumer.accept(batch);
+                    total += batch.size();
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                consumer.accept(batch);
+                total += batch.size();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 删除匹配的所有key
+     * 通过SCAN分批遍历，每批使用非阻塞的UNLINK通过pipeline删除，速率由 unlinkRateLimit 限制
+     *
+     * @param    pattern  需要匹配的key
+     * @return   long  删除的key总数
+     */
+    public long unlinkByPattern(String pattern) {
+        return unlinkByPattern(pattern, operations.getScanCount(), operations.getUnlinkRateLimit(), null);
+    }
+
+    /**
+     * 删除匹配的所有key
+     * 通过SCAN分批遍历，每批使用非阻塞的UNLINK通过pipeline删除，值的内存在Redis后台线程释放
+     *
+     * @param    pattern  需要匹配的key
+     * @param    chunkSize  每批删除的key数量，同时为SCAN的数量提示
+     * @param    maxKeysPerSecond  每秒最多删除的key数量，小于等于0时不限制
+     * @param    progress  每批删除后回调已删除的key总数，可以为null
+     * @return   long  删除的key总数，线程被中断时返回中断前已删除的数量
+     */
+    public long unlinkByPattern(String pattern, int chunkSize, int maxKeysPerSecond, LongConsumer progress) {
+        long startTime = System.nanoTime();
+        long[] total = new long[1];
+        long[] scanned = new long[1];
+        try {
+            scanKeys(pattern, chunkSize, keys -> {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException();
+                }
+                total[0] += unlink(keys);
+                scanned[0] += keys.size();
+                if (progress != null) {
+                    progress.accept(total[0]);
+                }
+                if (maxKeysPerSecond > 0) {
+                    long expectedNanos = scanned[0] * TimeUnit.SECONDS.toNanos(1) / maxKeysPerSecond;
+                    long waitNanos = expectedNanos - (System.nanoTime() - startTime);
+                    if (waitNanos > 0) {
+                        try {
+                            TimeUnit.NANOSECONDS.sleep(waitNanos);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new CancellationException();
+                        }
+                    }
+                }
+            });
+        } catch (CancellationException e) {
+            // 线程被中断，停止删除并返回已删除的数量
+        }
+        return total[0];
+    }
+
+    /**
+     * 通过pipeline使用UNLINK删除key
+     * 按 multiKeySize 拆分为多个UNLINK，集群模式下按hash slot分组
+     *
+     * @param    keys
+     * @return   long  删除的key数量
+     */
+    private long unlink(List<String> keys) {
+        List<List<String>> keyChunks = chunkKeys(keys);
+        List<Object> results = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> stringOperations = (RedisOperations<String, String>) operations;
+                keyChunks.forEach(stringOperations::unlink);
+                return null;
+            }
+        });
+        keys.forEach(this::invalidate);
+        long count = 0;
+        for (Object result : results) {
+            if (result instanceof Long) {
+                count += (Long) result;
+            }
+        }
+        return count;
     }
 
     /**
@@ -607,6 +1226,7 @@ public class RedisCacheUtils {
      */
     public void delete(String key) {
         stringRedisTemplate.delete(key);
+        invalidate(key);
     }
 
     /**
@@ -616,6 +1236,64 @@ public class RedisCacheUtils {
      */
     public void deleteForAll(Set<String> keys) {
         stringRedisTemplate.delete(keys);
+        keys.forEach(this::invalidate);
+    }
+
+    /**
+     * 集群模式下依次SCAN所有master节点
+     * 节点的cursor不持有连接，遍历结束或关闭时统一释放集群连接
+     */
+    private static class ClusterScanIterator implements Iterator<byte[]> {
+
+        private final RedisClusterConnection connection;
+
+        private final ScanOptions options;
+
+        private final Iterator<RedisClusterNode> nodes;
+
+        private Cursor<byte[]> cursor;
+
+        private boolean closed;
+
+        ClusterScanIterator(RedisClusterConnection connection, ScanOptions options) {
+            this.connection = connection;
+            this.options = options;
+            List<RedisClusterNode> masters = new ArrayList<>();
+            connection.clusterGetNodes().forEach(node -> {
+                if (node.isMaster()) {
+                    masters.add(node);
+                }
+            });
+            this.nodes = masters.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!closed && (cursor == null || !cursor.hasNext())) {
+                if (!nodes.hasNext()) {
+                    close();
+                    return false;
+                }
+                cursor = connection.scan(nodes.next(), options);
+            }
+            return !closed;
+        }
+
+        @Override
+        public byte[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return cursor.next();
+        }
+
+        void close() {
+            if (!closed) {
+                closed = true;
+                connection.close();
+            }
+        }
+
     }
 
 }
@@ -0,0 +1,400 @@
+package com.wpx.util;
+
+import com.wpx.property.RedisMessageProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Author: 不会飞的小鹏
+ * @Description: 计数聚合，累加先记录在本地，按 flushInterval 定时或待写入的计数达到 flushThreshold 时
+ * 通过pipeline批量执行INCRBY、HINCRBY、ZINCRBY
+ * 累加不访问Redis，本地计数在写入前对其他读取不可见；关闭时写入所有剩余的累加值，关闭后的累加立即同步写入
+ * 写入失败时未执行的累加值保留到下一次写入，已经成功执行的pipeline中的累加值不会重复写入；
+ * 失败的pipeline中可能有部分命令已经在服务端执行；失败后的 flushInterval 内只由定时任务重试
+ */
+public class RedisCounterAggregator implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedisCounterAggregator.class);
+
+    private final RedisCacheUtils redisCacheUtils;
+
+    private final RedisMessageProperties.Counter properties;
+
+    /**
+     * 当前接收累加的一代计数，写入时替换为新的一代
+     */
+    private final AtomicReference<Generation> current = new AtomicReference<>(new Generation());
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private final LongAdder flushCount = new LongAdder();
+
+    private final LongAdder failedFlushCount = new LongAdder();
+
+    private final LongAdder flushedCommandCount = new LongAdder();
+
+    private volatile ScheduledExecutorService scheduler;
+
+    private volatile boolean closed;
+
+    /**
+     * 写入失败后，在该时间之前不再因 flushThreshold 或关闭后的累加触发写入  毫秒
+     * 失败的累加值等待定时写入，避免Redis不可用时连续重试
+     */
+    private volatile long retryAfter;
+
+    public RedisCounterAggregator(RedisCacheUtils redisCacheUtils) {
+        this(redisCacheUtils, redisCacheUtils.getOperations().getCounter());
+    }
+
+    public RedisCounterAggregator(RedisCacheUtils redisCacheUtils, RedisMessageProperties.Counter properties) {
+        this.redisCacheUtils = redisCacheUtils;
+        this.properties = properties;
+    }
+
+    /**
+     * 累加redis value，对应INCRBY
+     *
+     * @param    key  Redis key
+     * @param    delta  累加的数值
+     */
+    public void incrementForValue(String key, long delta) {
+        addLong(new CounterKey(CounterType.VALUE, key, null), delta);
+    }
+
+    /**
+     * 累加redis hash，对应HINCRBY
+     *
+     * @param    key  Redis key
+     * @param    hashKey  hash中的 要对value累加的键值对key
+     * @param    delta  累加的数值
+     */
+    public void incrementForHash(String key, String hashKey, long delta) {
+        addLong(new CounterKey(CounterType.HASH, key, hashKey), delta);
+    }
+
+    /**
+     * 累加redis sort set 的分数，对应ZINCRBY
+     *
+     * @param    key  Redis key
+     * @param    value  需要累加的value -- 累加项
+     * @param    score  累加的数值 -- 分数
+     */
+    public void incrementScoreForZSet(String key, String value, double score) {
+        addDouble(new CounterKey(CounterType.ZSET, key, value), score);
+    }
+
+    /**
+     * 将当前所有的累加值写入Redis
+     * 写入失败时只把未执行的累加值合并到下一代，等待下一次写入
+     */
+    public synchronized void flush() {
+        Generation generation = current.getAndSet(new Generation());
+        // 等待已经获取旧一代的累加完成
+        while (generation.writers.get() > 0) {
+            Thread.yield();
+        }
+        if (generation.isEmpty()) {
+            return;
+        }
+        RedisBatch batch = redisCacheUtils.batch();
+        Map<CounterKey, RedisBatch.Response<?>> responses = new HashMap<>();
+        generation.longCells.forEach((counterKey, adder) -> {
+            long delta = adder.sum();
+            if (delta == 0) {
+                return;
+            }
+            if (counterKey.type == CounterType.HASH) {
+                responses.put(counterKey, batch.incrementForHash(counterKey.key, counterKey.field, delta));
+            } else {
+                responses.put(counterKey, batch.incrementForValue(counterKey.key, delta));
+            }
+        });
+        generation.doubleCells.forEach((counterKey, adder) -> {
+            double score = adder.sum();
+            if (score != 0) {
+                responses.put(counterKey, batch.incrementScoreForZSet(counterKey.key, counterKey.field, score));
+            }
+        });
+        int commands = batch.size();
+        try {
+            batch.execute();
+            retryAfter = 0;
+            flushCount.increment();
+            flushedCommandCount.add(commands);
+        } catch (RuntimeException e) {
+            failedFlushCount.increment();
+            retryAfter = System.currentTimeMillis() + properties.getFlushInterval().toMillis();
+            LOGGER.warn("failed to flush {} redis counters, they will be retried on the next flush", commands, e);
+            // 拆分后已经成功执行的pipeline不再重试，避免重复累加
+            // 直接合并到当前一代，不触发写入，否则关闭后会在当前线程中无限重试
+            generation.longCells.forEach((counterKey, adder) -> {
+                RedisBatch.Response<?> response = responses.get(counterKey);
+                if (response != null && !response.isExecuted()) {
+                    mergeLong(counterKey, adder.sum());
+                }
+            });
+            generation.doubleCells.forEach((counterKey, adder) -> {
+                RedisBatch.Response<?> response = responses.get(counterKey);
+                if (response != null && !response.isExecuted()) {
+                    mergeDouble(counterKey, adder.sum());
+                }
+            });
+        }
+    }
+
+    /**
+     * 等待写入的计数数量
+     */
+    public int getPendingCount() {
+        Generation generation = current.get();
+        return generation.longCells.size() + generation.doubleCells.size();
+    }
+
+    /**
+     * 等待写入的累加值之和，不包含sort set的分数
+     */
+    public long getPendingDelta() {
+        return current.get().longCells.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    /**
+     * 成功写入的次数
+     */
+    public long getFlushCount() {
+        return flushCount.sum();
+    }
+
+    /**
+     * 写入失败的次数
+     */
+    public long getFailedFlushCount() {
+        return failedFlushCount.sum();
+    }
+
+    /**
+     * 成功写入的命令数量
+     */
+    public long getFlushedCommandCount() {
+        return flushedCommandCount.sum();
+    }
+
+    /**
+     * 停止定时写入并写入所有剩余的累加值
+     * 只尝试写入一次，失败时记录日志，未写入的累加值保留在本地，可以通过 flush 重试
+     */
+    @Override
+    public void close() {
+        closed = true;
+        ScheduledExecutorService executor = scheduler;
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(properties.getFlushInterval().toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        int pending = getPendingCount();
+        if (pending > 0) {
+            LOGGER.warn("{} redis counters were not flushed before close", pending);
+        }
+    }
+
+    private void addLong(CounterKey counterKey, long delta) {
+        afterAdd(mergeLong(counterKey, delta));
+    }
+
+    private void addDouble(CounterKey counterKey, double delta) {
+        afterAdd(mergeDouble(counterKey, delta));
+    }
+
+    /**
+     * 累加到当前一代，不检查是否需要写入
+     *
+     * @param counterKey
+     * @param delta
+     * @return Generation  累加到的一代
+     */
+    private Generation mergeLong(CounterKey counterKey, long delta) {
+        Generation generation = acquire();
+        try {
+            generation.longCells.computeIfAbsent(counterKey, k -> new LongAdder()).add(delta);
+        } finally {
+            generation.writers.decrementAndGet();
+        }
+        return generation;
+    }
+
+    private Generation mergeDouble(CounterKey counterKey, double delta) {
+        Generation generation = acquire();
+        try {
+            generation.doubleCells.computeIfAbsent(counterKey, k -> new DoubleAdder()).add(delta);
+        } finally {
+            generation.writers.decrementAndGet();
+        }
+        return generation;
+    }
+
+    /**
+     * 获取当前一代并登记为写入者，获取后被替换时重新获取
+     */
+    private Generation acquire() {
+        if (scheduler == null && !closed) {
+            startScheduler();
+        }
+        while (true) {
+            Generation generation = current.get();
+            generation.writers.incrementAndGet();
+            if (current.get() == generation) {
+                return generation;
+            }
+            generation.writers.decrementAndGet();
+        }
+    }
+
+    /**
+     * 关闭后没有定时写入，累加值立即同步写入；否则检查是否达到 flushThreshold
+     * 先累加再检查closed，关闭前完成的累加由close中的flush写入
+     * 写入失败后的 flushInterval 内不立即写入，关闭后的累加保留到退避结束后的下一次累加
+     *
+     * @param generation
+     */
+    private void afterAdd(Generation generation) {
+        if (closed) {
+            if (!isBackingOff()) {
+                flush();
+            }
+        } else {
+            checkThreshold(generation);
+        }
+    }
+
+    /**
+     * 上一次写入失败后是否仍在退避
+     */
+    private boolean isBackingOff() {
+        return System.currentTimeMillis() < retryAfter;
+    }
+
+    /**
+     * 待写入的计数达到 flushThreshold 时提前写入
+     * 与close并发时写入任务可能被拒绝，此时在当前线程写入；写入失败后的退避期间不提前写入
+     *
+     * @param generation
+     */
+    private void checkThreshold(Generation generation) {
+        int threshold = properties.getFlushThreshold();
+        if (threshold > 0 && generation.longCells.size() + generation.doubleCells.size() >= threshold
+                && !isBackingOff() && flushScheduled.compareAndSet(false, true)) {
+            try {
+                scheduler.execute(() -> {
+                    flushScheduled.set(false);
+                    flush();
+                });
+            } catch (RejectedExecutionException e) {
+                flushScheduled.set(false);
+                flush();
+            }
+        }
+    }
+
+    private synchronized void startScheduler() {
+        if (scheduler != null) {
+            return;
+        }
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "redis-counter-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getFlushInterval().toMillis();
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                LOGGER.warn("failed to flush redis counters", e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        scheduler = executor;
+    }
+
+    private enum CounterType {
+
+        VALUE,
+
+        HASH,
+
+        ZSET
+
+    }
+
+    /**
+     * 一代计数，写入时整体替换，writers为正在累加的线程数
+     */
+    private static class Generation {
+
+        private final Map<CounterKey, LongAdder> longCells = new ConcurrentHashMap<>();
+
+        private final Map<CounterKey, DoubleAdder> doubleCells = new ConcurrentHashMap<>();
+
+        private final AtomicInteger writers = new AtomicInteger();
+
+        boolean isEmpty() {
+            return longCells.isEmpty() && doubleCells.isEmpty();
+        }
+
+    }
+
+    /**
+     * 计数的key，value类型的field为null
+     */
+    private static class CounterKey {
+
+        private final CounterType type;
+
+        private final String key;
+
+        private final String field;
+
+        CounterKey(CounterType type, String key, String field) {
+            this.type = type;
+            this.key = key;
+            this.field = field;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CounterKey)) {
+                return false;
+            }
+            CounterKey other = (CounterKey) o;
+            return type == other.type && key.equals(other.key) && Objects.equals(field, other.field);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, key, field);
+        }
+
+    }
+
+}
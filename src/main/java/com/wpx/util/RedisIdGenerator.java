@@ -0,0 +1,187 @@
+package com.wpx.util;
+
+import com.wpx.property.RedisMessageProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @Author: 不会飞的小鹏
+ * @Description: 基于号段的ID生成器，每次通过一个INCRBY预留 segmentSize 个ID，号段内的ID在本地无锁分配
+ * 当前号段剩余 prefetchPercent% 时在后台线程预取下一个号段，只有切换号段时加锁
+ * ID在所有实例中唯一且递增，但不连续：实例重启时当前号段未分配的ID会被跳过
+ */
+public class RedisIdGenerator implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedisIdGenerator.class);
+
+    private final RedisCacheUtils redisCacheUtils;
+
+    private final RedisMessageProperties.IdGenerator properties;
+
+    private final ConcurrentHashMap<String, IdBuffer> buffers = new ConcurrentHashMap<>();
+
+    private volatile ExecutorService prefetchExecutor;
+
+    private volatile boolean closed;
+
+    public RedisIdGenerator(RedisCacheUtils redisCacheUtils) {
+        this(redisCacheUtils, redisCacheUtils.getOperations().getIdGenerator());
+    }
+
+    public RedisIdGenerator(RedisCacheUtils redisCacheUtils, RedisMessageProperties.IdGenerator properties) {
+        this.redisCacheUtils = redisCacheUtils;
+        this.properties = properties;
+    }
+
+    /**
+     * 获取下一个ID
+     *
+     * @param    key  保存号段的Redis key
+     * @return   long  ID
+     */
+    public long nextId(String key) {
+        IdBuffer buffer = buffers.computeIfAbsent(key, k -> new IdBuffer());
+        while (true) {
+            Segment segment = buffer.current;
+            if (segment == null) {
+                segment = switchSegment(key, buffer, null);
+            }
+            long id = segment.cursor.getAndIncrement();
+            if (id <= segment.max) {
+                if (id == segment.prefetchAt) {
+                    prefetch(key, buffer);
+                }
+                return id;
+            }
+            switchSegment(key, buffer, segment);
+        }
+    }
+
+    /**
+     * 停止预取号段的线程
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (prefetchExecutor != null) {
+            prefetchExecutor.shutdown();
+        }
+    }
+
+    /**
+     * 切换到下一个号段，优先使用预取的号段，预取未完成时等待，预取失败时同步获取
+     *
+     * @param key
+     * @param buffer
+     * @param exhausted  已经用完的号段
+     */
+    private Segment switchSegment(String key, IdBuffer buffer, Segment exhausted) {
+        synchronized (buffer) {
+            if (buffer.current != exhausted) {
+                // 其他线程已经切换
+                return buffer.current;
+            }
+            CompletableFuture<Segment> next = buffer.next;
+            buffer.next = null;
+            Segment segment = null;
+            if (next != null) {
+                try {
+                    segment = next.join();
+                } catch (RuntimeException e) {
+                    LOGGER.warn("failed to prefetch id segment of [{}], fetching it synchronously", key, e);
+                }
+            }
+            buffer.current = segment != null ? segment : fetchSegment(key);
+            return buffer.current;
+        }
+    }
+
+    /**
+     * 在后台线程预取下一个号段，关闭后不再预取，切换号段时同步获取
+     *
+     * @param key
+     * @param buffer
+     */
+    private void prefetch(String key, IdBuffer buffer) {
+        synchronized (buffer) {
+            if (buffer.next == null) {
+                try {
+                    buffer.next = CompletableFuture.supplyAsync(() -> fetchSegment(key), prefetchExecutor());
+                } catch (RejectedExecutionException e) {
+                    LOGGER.debug("id generator is closed, the next segment of [{}] will be fetched synchronously", key);
+                }
+            }
+        }
+    }
+
+    /**
+     * 通过INCRBY预留一个号段
+     *
+     * @param key
+     */
+    private Segment fetchSegment(String key) {
+        int segmentSize = Math.max(1, properties.getSegmentSize());
+        long max = redisCacheUtils.incrementForValue(key, (long) segmentSize);
+        long remaining = (long) segmentSize * Math.max(0, Math.min(100, properties.getPrefetchPercent())) / 100;
+        long min = max - segmentSize + 1;
+        return new Segment(min, max, Math.max(min, max - remaining));
+    }
+
+    private ExecutorService prefetchExecutor() {
+        ExecutorService executor = prefetchExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                if (closed) {
+                    throw new RejectedExecutionException("id generator is closed");
+                }
+                if (prefetchExecutor == null) {
+                    prefetchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                        Thread thread = new Thread(runnable, "redis-id-prefetch");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+                executor = prefetchExecutor;
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * 一个key的当前号段和预取的下一个号段
+     */
+    private static class IdBuffer {
+
+        private volatile Segment current;
+
+        private CompletableFuture<Segment> next;
+
+    }
+
+    /**
+     * 号段 [cursor, max]，分配到 prefetchAt 时开始预取
+     */
+    private static class Segment {
+
+        private final AtomicLong cursor;
+
+        private final long max;
+
+        private final long prefetchAt;
+
+        Segment(long min, long max, long prefetchAt) {
+            this.cursor = new AtomicLong(min);
+            this.max = max;
+            this.prefetchAt = prefetchAt;
+        }
+
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.wpx.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * @Author: 不会飞的小鹏
+ * @Description: 基于Redis的可重入分布式锁，由 RedisLockClient.getLock 创建
+ * 必须由加锁的线程释放，不支持Condition
+ */
+public class RedisLock implements Lock {
+
+    private final RedisLockClient client;
+
+    private final String key;
+
+    RedisLock(RedisLockClient client, String key) {
+        this.client = client;
+        this.key = key;
+    }
+
+    /**
+     * 加锁，一直等待到加锁成功，等待期间的中断在加锁后恢复
+     * 锁由看门狗续期直到释放
+     */
+    @Override
+    public void lock() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                client.lock(key, -1, -1);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 加锁，一直等待到加锁成功或线程被中断
+     * 锁由看门狗续期直到释放
+     */
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        client.lock(key, -1, -1);
+    }
+
+    /**
+     * 尝试加锁一次，不等待
+     * 锁由看门狗续期直到释放
+     */
+    @Override
+    public boolean tryLock() {
+        try {
+            return client.lock(key, 0, -1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 尝试加锁，最多等待 time
+     * 锁由看门狗续期直到释放
+     *
+     * @param time  最长等待时间
+     * @param unit  时间单位
+     */
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        return client.lock(key, Math.max(unit.toMillis(time), 0), -1);
+    }
+
+    /**
+     * 尝试加锁，最多等待 waitTime，锁在 leaseTime 后自动过期，不续期
+     *
+     * @param waitTime  最长等待时间
+     * @param leaseTime  锁的过期时间
+     * @param unit  时间单位
+     */
+    public boolean tryLock(long waitTime, long leaseTime, TimeUnit unit) throws InterruptedException {
+        if (leaseTime <= 0) {
+            throw new IllegalArgumentException("leaseTime must be positive");
+        }
+        return client.lock(key, Math.max(unit.toMillis(waitTime), 0), unit.toMillis(leaseTime));
+    }
+
+    /**
+     * 释放锁
+     *
+     * @throws IllegalMonitorStateException  当前线程没有持有锁
+     */
+    @Override
+    public void unlock() {
+        client.unlock(key);
+    }
+
+    /**
+     * 当前线程是否持有锁
+     */
+    public boolean isHeldByCurrentThread() {
+        return client.isHeldByCurrentThread(key);
+    }
+
+    /**
+     * 锁的Redis key
+     */
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public Condition newCondition() {
+        throw new UnsupportedOperationException("redis lock does not support conditions");
+    }
+
+}
@@ -0,0 +1,360 @@
+package com.wpx.util;
+
+import com.wpx.property.RedisMessageProperties;
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @Author: 不会飞的小鹏
+ * @Description: 分布式锁客户端，通过 getLock 获取锁
+ * 加锁为 SET NX PX，释放为Lua比较并删除，释放时发布消息唤醒等待的实例，等待时不轮询Redis
+ * 同一个实例内的线程先竞争本地的公平锁，只有获得本地锁的线程访问Redis，本地锁同时提供可重入
+ * 没有指定过期时间时由看门狗每 leaseTime/3 续期，持有锁的实例宕机后锁在 leaseTime 后过期
+ */
+public class RedisLockClient implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedisLockClient.class);
+
+    /**
+     * 没有订阅释放消息时，等待锁的最长间隔  单位为毫秒
+     */
+    private static final long POLL_INTERVAL = 100;
+
+    private final RedisScriptRegistry scriptRegistry;
+
+    private final LettuceConnectionFactory connectionFactory;
+
+    private final RedisMessageProperties.Lock properties;
+
+    /**
+     * 锁的值为 clientId:线程id，区分不同实例和线程
+     */
+    private final String clientId = UUID.randomUUID().toString();
+
+    /**
+     * 正在使用的锁，没有线程持有或等待时删除
+     */
+    private final ConcurrentHashMap<String, LockEntry> entries = new ConcurrentHashMap<>();
+
+    private volatile StatefulRedisPubSubConnection<String, String> pubSubConnection;
+
+    private volatile ScheduledExecutorService watchdog;
+
+    private volatile boolean closed;
+
+    public RedisLockClient(RedisCacheUtils redisCacheUtils, LettuceConnectionFactory connectionFactory) {
+        this(redisCacheUtils, connectionFactory, redisCacheUtils.getOperations().getLock());
+    }
+
+    public RedisLockClient(RedisCacheUtils redisCacheUtils, LettuceConnectionFactory connectionFactory,
+                           RedisMessageProperties.Lock properties) {
+        this.scriptRegistry = redisCacheUtils.getScriptRegistry();
+        this.connectionFactory = connectionFactory;
+        this.properties = properties;
+    }
+
+    /**
+     * 获取锁，不访问Redis
+     *
+     * @param    key  锁的Redis key
+     * @return   RedisLock
+     */
+    public RedisLock getLock(String key) {
+        return new RedisLock(this, key);
+    }
+
+    /**
+     * 关闭释放消息的订阅和看门狗，已持有的锁不再续期
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (pubSubConnection != null) {
+            pubSubConnection.close();
+            pubSubConnection = null;
+        }
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+        }
+    }
+
+    /**
+     * 加锁
+     *
+     * @param key  锁的Redis key
+     * @param waitMillis  最长等待时间，小于0时一直等待
+     * @param leaseMillis  锁的过期时间，小于等于0时使用 leaseTime 并由看门狗续期
+     * @return boolean  是否加锁成功
+     * @throws InterruptedException  等待期间线程被中断
+     */
+    boolean lock(String key, long waitMillis, long leaseMillis) throws InterruptedException {
+        long deadline = waitMillis < 0 ? Long.MAX_VALUE : System.currentTimeMillis() + waitMillis;
+        LockEntry entry = retain(key);
+        boolean acquired = false;
+        try {
+            if (waitMillis < 0) {
+                entry.lock.lockInterruptibly();
+            } else if (!entry.lock.tryLock(waitMillis, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+            if (entry.lock.getHoldCount() > 1) {
+                // 重入
+                acquired = true;
+                return true;
+            }
+            try {
+                acquired = acquire(key, entry, deadline, leaseMillis);
+            } finally {
+                if (!acquired) {
+                    entry.lock.unlock();
+                }
+            }
+            return acquired;
+        } finally {
+            if (!acquired) {
+                release(key);
+            }
+        }
+    }
+
+    /**
+     * 释放锁，重入的锁在最后一次释放时删除Redis中的锁
+     *
+     * @param key  锁的Redis key
+     */
+    void unlock(String key) {
+        LockEntry entry = entries.get(key);
+        if (entry == null || !entry.lock.isHeldByCurrentThread()) {
+            throw new IllegalMonitorStateException("redis lock [" + key + "] is not held by the current thread");
+        }
+        try {
+            if (entry.lock.getHoldCount() == 1) {
+                if (entry.renewal != null) {
+                    entry.renewal.cancel(false);
+                    entry.renewal = null;
+                }
+                Long released = scriptRegistry.execute(RedisScriptRegistry.UNLOCK, Collections.singletonList(key),
+                        entry.value, channel(key));
+                if (released == null || released == 0) {
+                    LOGGER.warn("redis lock [{}] had already expired or been taken over before it was released", key);
+                }
+            }
+        } finally {
+            entry.lock.unlock();
+            release(key);
+        }
+    }
+
+    /**
+     * 当前线程是否持有锁
+     *
+     * @param key  锁的Redis key
+     */
+    boolean isHeldByCurrentThread(String key) {
+        LockEntry entry = entries.get(key);
+        return entry != null && entry.lock.isHeldByCurrentThread();
+    }
+
+    /**
+     * 在Redis中加锁，锁被其他实例持有时等待释放消息，最多等待到锁过期
+     *
+     * @param key
+     * @param entry
+     * @param deadline  等待的截止时间
+     * @param leaseMillis
+     */
+    private boolean acquire(String key, LockEntry entry, long deadline, long leaseMillis)
+            throws InterruptedException {
+        boolean renew = leaseMillis <= 0;
+        long lease = renew ? properties.getLeaseTime().toMillis() : leaseMillis;
+        String value = clientId + ":" + Thread.currentThread().getId();
+        boolean subscribing = true;
+        boolean subscribed = false;
+        while (true) {
+            // 之后发布的释放消息才需要唤醒
+            entry.signal.drainPermits();
+            Long ttl = scriptRegistry.execute(RedisScriptRegistry.LOCK, Collections.singletonList(key),
+                    value, String.valueOf(lease));
+            if (ttl == null) {
+                entry.value = value;
+                if (renew) {
+                    entry.renewal = scheduleRenewal(key, value, lease);
+                }
+                return true;
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            if (subscribing) {
+                // 订阅后重新加锁，避免错过订阅之前的释放消息
+                subscribing = false;
+                subscribed = subscribe();
+                if (subscribed) {
+                    continue;
+                }
+            }
+            long wait = ttl >= 0 ? Math.min(ttl, remaining) : remaining;
+            if (!subscribed) {
+                wait = Math.min(wait, POLL_INTERVAL);
+            }
+            entry.signal.tryAcquire(Math.max(wait, 1), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 每 lease/3 续期一次，锁已经不属于当前线程时停止续期
+     *
+     * @param key
+     * @param value  锁的值
+     * @param lease  过期时间  单位为毫秒
+     */
+    private ScheduledFuture<?> scheduleRenewal(String key, String value, long lease) {
+        long period = Math.max(lease / 3, 1);
+        ScheduledFuture<?>[] renewal = new ScheduledFuture<?>[1];
+        renewal[0] = watchdog().scheduleAtFixedRate(() -> {
+            try {
+                Long renewed = scriptRegistry.execute(RedisScriptRegistry.RENEW_LOCK,
+                        Collections.singletonList(key), value, String.valueOf(lease));
+                if (renewed == null || renewed == 0) {
+                    LOGGER.warn("redis lock [{}] was lost while being held, stopping its renewal", key);
+                    if (renewal[0] != null) {
+                        renewal[0].cancel(false);
+                    }
+                }
+            } catch (RuntimeException e) {
+                LOGGER.warn("failed to renew redis lock [{}], retrying in {} ms", key, period, e);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+        return renewal[0];
+    }
+
+    /**
+     * 订阅锁的释放消息，失败时等待改为按 POLL_INTERVAL 轮询
+     * 断线重连后由Lettuce自动重新订阅，断开期间错过的消息由锁的过期时间兜底
+     */
+    private boolean subscribe() {
+        if (pubSubConnection != null) {
+            return true;
+        }
+        synchronized (this) {
+            if (pubSubConnection != null) {
+                return true;
+            }
+            if (closed) {
+                return false;
+            }
+            StatefulRedisPubSubConnection<String, String> connection = null;
+            try {
+                AbstractRedisClient client = connectionFactory.getRequiredNativeClient();
+                connection = client instanceof RedisClusterClient
+                        ? ((RedisClusterClient) client).connectPubSub(StringCodec.UTF8)
+                        : ((RedisClient) client).connectPubSub(StringCodec.UTF8);
+                connection.addListener(new UnlockListener());
+                connection.sync().psubscribe(properties.getChannelPrefix() + "*");
+                pubSubConnection = connection;
+                return true;
+            } catch (RuntimeException e) {
+                LOGGER.warn("failed to subscribe to redis lock releases, waiting lock acquirers will poll", e);
+                if (connection != null) {
+                    connection.close();
+                }
+                return false;
+            }
+        }
+    }
+
+    private ScheduledExecutorService watchdog() {
+        ScheduledExecutorService executor = watchdog;
+        if (executor == null) {
+            synchronized (this) {
+                if (watchdog == null) {
+                    watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        Thread thread = new Thread(runnable, "redis-lock-watchdog");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+                executor = watchdog;
+            }
+        }
+        return executor;
+    }
+
+    private String channel(String key) {
+        return properties.getChannelPrefix() + key;
+    }
+
+    private LockEntry retain(String key) {
+        return entries.compute(key, (k, entry) -> {
+            if (entry == null) {
+                entry = new LockEntry();
+            }
+            entry.references++;
+            return entry;
+        });
+    }
+
+    private void release(String key) {
+        entries.computeIfPresent(key, (k, entry) -> --entry.references == 0 ? null : entry);
+    }
+
+    /**
+     * 释放消息的内容为锁的key，唤醒本实例中等待该锁的线程
+     */
+    private class UnlockListener extends RedisPubSubAdapter<String, String> {
+
+        @Override
+        public void message(String pattern, String channel, String message) {
+            LockEntry entry = entries.get(message);
+            if (entry != null) {
+                entry.signal.release();
+            }
+        }
+
+    }
+
+    /**
+     * 一个锁在本实例中的状态，references为持有和等待的次数
+     */
+    private static class LockEntry {
+
+        /**
+         * 本地公平锁，同一个实例内的线程按等待顺序获得锁
+         */
+        private final ReentrantLock lock = new ReentrantLock(true);
+
+        /**
+         * 收到释放消息时释放一个许可
+         */
+        private final Semaphore signal = new Semaphore(0);
+
+        private int references;
+
+        /**
+         * 以下字段只由持有本地锁的线程访问
+         */
+        private String value;
+
+        private ScheduledFuture<?> renewal;
+
+    }
+
+}
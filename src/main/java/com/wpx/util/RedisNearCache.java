@@ -0,0 +1,501 @@
+package com.wpx.util;
+
+import com.wpx.property.RedisMessageProperties;
+import io.lettuce.core.ReadFrom;
+import io.lettuce.core.RedisChannelHandler;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionStateAdapter;
+import io.lettuce.core.TrackingArgs;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.push.PushMessage;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+import java.net.SocketAddress;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * @Author: 不会飞的小鹏
+ * @Description: RedisCacheUtils读取value和hash时使用的本地缓存
+ * 通过Redis 6的客户端缓存（CLIENT TRACKING BCAST）或keyspace通知接收key的变更，收到变更后删除本地缓存
+ * 失效连接断开期间不使用缓存，重连后清空缓存并重新开启失效通知；集群模式不支持
+ * 命中时不加锁；超过 maximumSize 时由一个线程批量淘汰最久未访问的缓存
+ * read-from 不是master时不开启，从节点复制延迟期间读到的旧值会被缓存，且之后的失效通知已经发出，旧值会一直保留到过期
+ */
+public class RedisNearCache implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedisNearCache.class);
+
+    /**
+     * 失效版本的分段数，为2的幂
+     */
+    private static final int STAMP_STRIPES = 1024;
+
+    /**
+     * 访问时间的更新间隔  纳秒，热点key的每次命中不都写入访问时间
+     */
+    private static final long ACCESS_GRANULARITY = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final LettuceConnectionFactory connectionFactory;
+
+    private final RedisMessageProperties.NearCache properties;
+
+    private final String[] prefixes;
+
+    private final long timeToLiveNanos;
+
+    private final int maximumSize;
+
+    /**
+     * 缓存，超过 maximumSize 时淘汰最久未访问的缓存
+     */
+    private final ConcurrentHashMap<CacheKey, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Redis key对应的所有缓存，用于按key删除hash的缓存；集合只在compute中修改
+     */
+    private final ConcurrentHashMap<String, Set<CacheKey>> keyIndex = new ConcurrentHashMap<>();
+
+    /**
+     * 按key分段的失效版本，key失效时递增所在分段；读取Redis期间分段版本变化时不写入缓存，避免写入过期的值
+     */
+    private final AtomicLongArray invalidationStamps = new AtomicLongArray(STAMP_STRIPES);
+
+    /**
+     * 清空缓存时递增，读取Redis期间清空过缓存时不写入缓存
+     */
+    private final AtomicLong clearStamp = new AtomicLong();
+
+    /**
+     * 是否有线程正在淘汰缓存
+     */
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    private final LongAdder invalidationCount = new LongAdder();
+
+    private final ConnectionStateListener connectionStateListener = new ConnectionStateListener();
+
+    private volatile boolean started;
+
+    private volatile boolean active;
+
+    private volatile boolean closed;
+
+    private volatile StatefulConnection<String, String> connection;
+
+    public RedisNearCache(LettuceConnectionFactory connectionFactory, RedisMessageProperties.NearCache properties) {
+        this.connectionFactory = connectionFactory;
+        this.properties = properties;
+        this.prefixes = CollectionUtils.isEmpty(properties.getPrefixes()) ? new String[0]
+                : properties.getPrefixes().toArray(new String[0]);
+        this.timeToLiveNanos = properties.getTimeToLive() != null ? properties.getTimeToLive().toNanos()
+                : Long.MAX_VALUE;
+        this.maximumSize = Math.max(properties.getMaximumSize(), 0);
+    }
+
+    /**
+     * 从缓存获取，未命中时通过loader从Redis获取并写入缓存
+     *
+     * @param key  Redis key
+     * @param field  hash中的 键值对key，value类型为null
+     * @param type  值的类型，String或byte[]，缓存的值类型不一致时视为未命中
+     * @param loader  从Redis获取
+     */
+    <V> V get(String key, String field, Class<V> type, Supplier<V> loader) {
+        if (!started) {
+            start();
+        }
+        if (!active || !isCacheable(key)) {
+            return loader.get();
+        }
+        CacheKey cacheKey = new CacheKey(key, field);
+        Entry entry = entries.get(cacheKey);
+        if (entry != null) {
+            long now = System.nanoTime();
+            if (now - entry.createTime < timeToLiveNanos && (entry.value == null || type.isInstance(entry.value))) {
+                if (now - entry.accessTime > ACCESS_GRANULARITY) {
+                    entry.accessTime = now;
+                }
+                hitCount.increment();
+                return type.cast(entry.value);
+            }
+            remove(cacheKey, entry);
+        }
+        missCount.increment();
+        int stripe = stripe(key);
+        long stamp = invalidationStamps.get(stripe);
+        long cleared = clearStamp.get();
+        V value = loader.get();
+        if (active && stamp == invalidationStamps.get(stripe) && cleared == clearStamp.get()) {
+            Entry loaded = new Entry(value, System.nanoTime());
+            entries.put(cacheKey, loaded);
+            keyIndex.compute(key, (k, cacheKeys) -> {
+                Set<CacheKey> indexed = cacheKeys != null ? cacheKeys : new HashSet<>();
+                indexed.add(cacheKey);
+                return indexed;
+            });
+            // 写入期间发生失效时，失效可能早于写入完成，由当前线程删除
+            if (stamp != invalidationStamps.get(stripe) || cleared != clearStamp.get()) {
+                remove(cacheKey, loaded);
+            } else if (entries.size() > maximumSize) {
+                evict();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 删除key对应的所有缓存，写操作之后调用
+     *
+     * @param key  Redis key
+     */
+    void invalidate(String key) {
+        invalidationStamps.incrementAndGet(stripe(key));
+        Set<CacheKey> cacheKeys = keyIndex.remove(key);
+        if (cacheKeys != null) {
+            cacheKeys.forEach(entries::remove);
+            invalidationCount.add(cacheKeys.size());
+        }
+    }
+
+    /**
+     * 清空所有缓存
+     */
+    public void clear() {
+        clearStamp.incrementAndGet();
+        invalidationCount.add(entries.size());
+        entries.clear();
+        keyIndex.clear();
+    }
+
+    /**
+     * 缓存是否可用，失效连接未建立或断开时不可用
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * 当前缓存的数量
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 命中次数
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * 未命中次数
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * 命中率，没有请求时为0
+     */
+    public double getHitRate() {
+        long hits = hitCount.sum();
+        long total = hits + missCount.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * 超过 maximumSize 被淘汰的数量
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * 因key变更被删除的数量
+     */
+    public long getInvalidationCount() {
+        return invalidationCount.sum();
+    }
+
+    /**
+     * 关闭失效连接并清空缓存
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        active = false;
+        if (connection != null) {
+            ((RedisClient) connectionFactory.getRequiredNativeClient()).removeListener(connectionStateListener);
+            connection.close();
+            connection = null;
+        }
+        clear();
+    }
+
+    /**
+     * 建立失效连接，首次读取时调用
+     * 失败时记录日志，之后的读取直接访问Redis
+     */
+    private synchronized void start() {
+        if (started || closed) {
+            return;
+        }
+        started = true;
+        if (connectionFactory.isClusterAware()) {
+            LOGGER.warn("redis near cache is not supported in cluster mode and has been disabled");
+            return;
+        }
+        ReadFrom readFrom = connectionFactory.getClientConfiguration().getReadFrom().orElse(ReadFrom.MASTER);
+        if (readFrom != ReadFrom.MASTER) {
+            LOGGER.warn("redis near cache requires lettuce read-from master and has been disabled, read-from: {}",
+                    readFrom);
+            return;
+        }
+        RedisClient client = (RedisClient) connectionFactory.getRequiredNativeClient();
+        try {
+            if (properties.getInvalidation() == RedisMessageProperties.InvalidationMode.KEYSPACE_NOTIFICATION) {
+                StatefulRedisPubSubConnection<String, String> pubSubConnection = client.connectPubSub(StringCodec.UTF8);
+                pubSubConnection.addListener(new KeyspaceListener());
+                pubSubConnection.sync().psubscribe(keyspacePatterns());
+                connection = pubSubConnection;
+            } else {
+                StatefulRedisConnection<String, String> trackingConnection = client.connect(StringCodec.UTF8);
+                trackingConnection.addListener(this::onPushMessage);
+                connection = trackingConnection;
+                trackingConnection.sync().clientTracking(trackingArgs());
+            }
+            client.addListener(connectionStateListener);
+            active = true;
+        } catch (RuntimeException e) {
+            LOGGER.warn("redis near cache has been disabled, failed to subscribe to invalidation messages", e);
+            if (connection != null) {
+                connection.close();
+                connection = null;
+            }
+        }
+    }
+
+    /**
+     * 处理客户端缓存的失效消息，消息中的key为null时表示执行了FLUSHALL或FLUSHDB
+     *
+     * @param message
+     */
+    private void onPushMessage(PushMessage message) {
+        if (!"invalidate".equals(message.getType())) {
+            return;
+        }
+        List<Object> content = message.getContent(StringCodec.UTF8::decodeKey);
+        Object keys = content.size() > 1 ? content.get(1) : null;
+        if (keys instanceof List) {
+            ((List<?>) keys).forEach(key -> invalidate(String.valueOf(key)));
+        } else {
+            clear();
+        }
+    }
+
+    private TrackingArgs trackingArgs() {
+        return TrackingArgs.Builder.enabled().bcast().prefixes(prefixes);
+    }
+
+    private String[] keyspacePatterns() {
+        String channelPrefix = "__keyspace@" + connectionFactory.getDatabase() + "__:";
+        if (prefixes.length == 0) {
+            return new String[]{channelPrefix + "*"};
+        }
+        return Arrays.stream(prefixes).map(prefix -> channelPrefix + prefix + "*").toArray(String[]::new);
+    }
+
+    private boolean isCacheable(String key) {
+        if (prefixes.length == 0) {
+            return true;
+        }
+        for (String prefix : prefixes) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int stripe(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (STAMP_STRIPES - 1);
+    }
+
+    /**
+     * 删除一个缓存，缓存已被替换时不删除
+     *
+     * @param cacheKey
+     * @param entry
+     * @return boolean  是否删除
+     */
+    private boolean remove(CacheKey cacheKey, Entry entry) {
+        if (!entries.remove(cacheKey, entry)) {
+            return false;
+        }
+        keyIndex.computeIfPresent(cacheKey.key, (k, cacheKeys) -> {
+            cacheKeys.remove(cacheKey);
+            return cacheKeys.isEmpty() ? null : cacheKeys;
+        });
+        return true;
+    }
+
+    /**
+     * 淘汰最久未访问的缓存，一次淘汰到 maximumSize 的90%，分摊遍历的开销
+     * 同一时间只有一个线程淘汰，其他线程直接返回
+     */
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long[] accessTimes = entries.values().stream().mapToLong(entry -> entry.accessTime).toArray();
+            int excess = accessTimes.length - (maximumSize - maximumSize / 10);
+            if (accessTimes.length <= maximumSize || excess <= 0) {
+                return;
+            }
+            Arrays.sort(accessTimes);
+            long threshold = accessTimes[excess - 1];
+            int evicted = 0;
+            for (Map.Entry<CacheKey, Entry> candidate : entries.entrySet()) {
+                if (evicted >= excess) {
+                    break;
+                }
+                if (candidate.getValue().accessTime - threshold <= 0 && remove(candidate.getKey(), candidate.getValue())) {
+                    evicted++;
+                }
+            }
+            evictionCount.add(evicted);
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * 失效连接断开时停用缓存，重连后重新开启失效通知并清空断开期间可能过期的缓存
+     * 回调在Lettuce的I/O线程执行，不能阻塞
+     */
+    private class ConnectionStateListener extends RedisConnectionStateAdapter {
+
+        @Override
+        public void onRedisConnected(RedisChannelHandler<?, ?> handler, SocketAddress socketAddress) {
+            if (handler != connection || closed) {
+                return;
+            }
+            if (handler instanceof StatefulRedisPubSubConnection) {
+                // pub/sub连接重连后由Lettuce自动重新订阅
+                clear();
+                active = true;
+                return;
+            }
+            @SuppressWarnings("unchecked")
+            StatefulRedisConnection<String, String> trackingConnection =
+                    (StatefulRedisConnection<String, String>) handler;
+            trackingConnection.async().clientTracking(trackingArgs()).whenComplete((result, e) -> {
+                if (e != null) {
+                    LOGGER.warn("redis near cache failed to re-enable client tracking after reconnect", e);
+                    return;
+                }
+                clear();
+                active = !closed;
+            });
+        }
+
+        @Override
+        public void onRedisDisconnected(RedisChannelHandler<?, ?> handler) {
+            if (handler == connection) {
+                active = false;
+                clear();
+            }
+        }
+
+    }
+
+    /**
+     * keyspace通知的channel为 __keyspace@db__:key
+     */
+    private class KeyspaceListener extends RedisPubSubAdapter<String, String> {
+
+        @Override
+        public void message(String pattern, String channel, String message) {
+            invalidate(channel.substring(channel.indexOf("__:") + 3));
+        }
+
+    }
+
+    /**
+     * 缓存的key，value类型的field为null
+     */
+    private static class CacheKey {
+
+        private final String key;
+
+        private final String field;
+
+        CacheKey(String key, String field) {
+            this.key = key;
+            this.field = field;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return key.equals(other.key) && Objects.equals(field, other.field);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * key.hashCode() + Objects.hashCode(field);
+        }
+
+    }
+
+    /**
+     * 缓存的值，Redis中不存在的key同样缓存，value为null
+     */
+    private static class Entry {
+
+        private final Object value;
+
+        private final long createTime;
+
+        /**
+         * 最近一次访问的时间，按 ACCESS_GRANULARITY 更新
+         */
+        private volatile long accessTime;
+
+        Entry(Object value, long createTime) {
+            this.value = value;
+            this.createTime = createTime;
+            this.accessTime = createTime;
+        }
+
+    }
+
+}
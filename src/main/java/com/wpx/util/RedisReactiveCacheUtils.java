@@ -0,0 +1,492 @@
+package com.wpx.util;
+
+import com.wpx.property.RedisMessageProperties;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.core.ReactiveHashOperations;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.ZSetOperations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author: 不会飞的小鹏
+ * @Description: 基于ReactiveStringRedisTemplate的RedisCacheUtils，返回Mono和Flux，不阻塞调用线程
+ * 集合类的结果以Flux流式返回，scan类方法按下游的请求量逐批拉取，支持背压
+ */
+public class RedisReactiveCacheUtils {
+
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+
+    private final RedisMessageProperties.Operations operations;
+
+    public RedisReactiveCacheUtils(ReactiveStringRedisTemplate reactiveStringRedisTemplate) {
+        this(reactiveStringRedisTemplate, new RedisMessageProperties.Operations());
+    }
+
+    public RedisReactiveCacheUtils(ReactiveStringRedisTemplate reactiveStringRedisTemplate,
+                                   RedisMessageProperties.Operations operations) {
+        this.reactiveStringRedisTemplate = reactiveStringRedisTemplate;
+        this.operations = operations;
+    }
+
+    /**
+     *  缓存3天
+     */
+    private static final Long TTL = 3L * 24 * 60 * 60;
+
+    /**
+     * 获取缓存的过期时间
+     *
+     * @param key
+     * @return Mono<Duration>
+     */
+    public Mono<Duration> getTtl(String key) {
+        return reactiveStringRedisTemplate.getExpire(key);
+    }
+
+    /**
+     * 为key设置过期时间
+     * 默认3天
+     *
+     * @param    key
+     */
+    public Mono<Boolean> expire(String key) {
+        return expire(key, TTL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 为key设置过期时间
+     *
+     * @param    key
+     * @param    timeout
+     * @param    timeUnit
+     */
+    public Mono<Boolean> expire(String key, long timeout, TimeUnit timeUnit) {
+        return reactiveStringRedisTemplate.expire(key, ttl(timeout, timeUnit));
+    }
+
+    /**
+     * 获取redis value中的值
+     *
+     * @param    key  Redis Key
+     */
+    public Mono<String> getForValue(String key) {
+        return reactiveStringRedisTemplate.opsForValue().get(key);
+    }
+
+    /**
+     * 批量获取redis value中的值
+     *
+     * @param    keys  Redis key集合
+     * @return   Mono<List<String>>  与keys顺序一致的值，不存在的key对应null
+     */
+    public Mono<List<String>> multiGetForValue(Collection<String> keys) {
+        return reactiveStringRedisTemplate.opsForValue().multiGet(keys);
+    }
+
+    /**
+     * 将数据存放到redis value
+     *
+     * @param    key  Redis key
+     * @param    value  需要存放的数值
+     */
+    public Mono<Boolean> setForValue(String key, String value) {
+        return reactiveStringRedisTemplate.opsForValue().set(key, value);
+    }
+
+    /**
+     * redis value 赋值并添加过期时间
+     *
+     * @param key  Redis key
+     * @param value  需要存放的值
+     * @param timeout  过期时间
+     * @param timeUnit  时间单位
+     */
+    public Mono<Boolean> setForValueTtl(String key, String value, Long timeout, TimeUnit timeUnit) {
+        return reactiveStringRedisTemplate.opsForValue().set(key, value, ttl(timeout, timeUnit));
+    }
+
+    /**
+     * 对Redis的key进行自增
+     *
+     * @param    key  Redis key
+     * @param    delta  自增的数值
+     */
+    public Mono<Long> incrementForValue(String key, long delta) {
+        return reactiveStringRedisTemplate.opsForValue().increment(key, delta);
+    }
+
+    /**
+     * 从redis hash中获取信息
+     *
+     * @param    key  Redis key
+     * @param    hashKey  hash中的 键值对key
+     */
+    public Mono<String> getForHash(String key, String hashKey) {
+        return hashOperations().get(key, hashKey);
+    }
+
+    /**
+     * 将数据保存到redis hash
+     *
+     * @param    key  Redis key
+     * @param    hashKey  hash中的 键值对key
+     * @param    value  hash中的 键值对value
+     */
+    public Mono<Boolean> putForHash(String key, String hashKey, String value) {
+        return hashOperations().put(key, hashKey, value);
+    }
+
+    /**
+     * redis hash 累加
+     *
+     * @param    key  Redis key
+     * @param    hashKey  hash中的 要对value累加的键值对key
+     * @param    delta  累加的数值
+     */
+    public Mono<Long> incrementForHash(String key, String hashKey, long delta) {
+        return hashOperations().increment(key, hashKey, delta);
+    }
+
+    /**
+     * 从redis hash中获取多个信息
+     *
+     * @param key
+     * @param hashKeys
+     */
+    public Mono<List<String>> multiGetForHash(String key, Collection<String> hashKeys) {
+        return hashOperations().multiGet(key, hashKeys);
+    }
+
+    /**
+     * 将多个键值对数据保存到redis hash
+     *
+     * @param key      Redis key
+     * @param valueMap hash 键值, value
+     */
+    public Mono<Boolean> multiPutForHash(String key, Map<String, String> valueMap) {
+        return hashOperations().putAll(key, valueMap);
+    }
+
+    /**
+     * 从Redis hash 获取对应key下的所有key
+     *
+     * @param    key Redis key
+     */
+    public Flux<String> keysForHash(String key) {
+        return hashOperations().keys(key);
+    }
+
+    /**
+     * 从redis hash 获取对应key下的所有value
+     *
+     * @param    key  Redis key
+     */
+    public Flux<String> valuesForHash(String key) {
+        return hashOperations().values(key);
+    }
+
+    /**
+     * 从redis hash 获取对应key下的所有键值对
+     * 一次性读取所有键值对，大hash请使用 scanForHash
+     *
+     * @param    key  Redis key
+     */
+    public Flux<Map.Entry<String, String>> entriesForHash(String key) {
+        return hashOperations().entries(key);
+    }
+
+    /**
+     * 通过HSCAN流式获取hash的所有键值对
+     * 按下游的请求量逐批拉取，每批数量由 scanCount 提示
+     *
+     * @param    key  Redis key
+     */
+    public Flux<Map.Entry<String, String>> scanForHash(String key) {
+        return hashOperations().scan(key, scanOptions(null));
+    }
+
+    /**
+     * 从redis hash 中删除元素
+     *
+     * @param    key  Redis key
+     * @param    hashKeys  hash中的 键值对key
+     */
+    public Mono<Long> deleteForHash(String key, Object... hashKeys) {
+        return hashOperations().remove(key, hashKeys);
+    }
+
+    /**
+     * 从Redis list左端pop数据
+     *
+     * @param    key  Redis Key
+     */
+    public Mono<String> leftPopForList(String key) {
+        return reactiveStringRedisTemplate.opsForList().leftPop(key);
+    }
+
+    /**
+     * 从Redis list右端pop数据
+     *
+     * @param    key  Redis Key
+     */
+    public Mono<String> rightPopForList(String key) {
+        return reactiveStringRedisTemplate.opsForList().rightPop(key);
+    }
+
+    /**
+     * 从Redis list左端push数据
+     *
+     * @param    key  Redis key
+     * @param    value  存入list中的值
+     */
+    public Mono<Long> leftPushForList(String key, String value) {
+        return reactiveStringRedisTemplate.opsForList().leftPush(key, value);
+    }
+
+    /**
+     * 从Redis list右端push数据
+     *
+     * @param    key  Redis key
+     * @param    value  存入list中的值
+     */
+    public Mono<Long> rightPushForList(String key, String value) {
+        return reactiveStringRedisTemplate.opsForList().rightPush(key, value);
+    }
+
+    /**
+     * 将集合导入redis list 从右端传入
+     *
+     * @param    key  Redis Key
+     * @param    values  传入的数据集合
+     */
+    public Mono<Long> rightPushAllForList(String key, Collection<String> values) {
+        return reactiveStringRedisTemplate.opsForList().rightPushAll(key, values);
+    }
+
+    /**
+     * 获取redis list的size
+     *
+     * @param    key  Redis key
+     */
+    public Mono<Long> sizeForList(String key) {
+        return reactiveStringRedisTemplate.opsForList().size(key);
+    }
+
+    /**
+     * 从redis list中range区间数据
+     *
+     * @param    key  Redis key
+     * @param    start  区间的开始
+     * @param    end  区间的结束
+     */
+    public Flux<String> rangeForList(String key, long start, long end) {
+        return reactiveStringRedisTemplate.opsForList().range(key, start, end);
+    }
+
+    /**
+     * 向Redis Set中添加元素
+     *
+     * @param    key
+     * @param    values
+     */
+    public Mono<Long> addForSet(String key, String... values) {
+        return reactiveStringRedisTemplate.opsForSet().add(key, values);
+    }
+
+    /**
+     * 从 Redis Set 中pop元素
+     *
+     * @param    key
+     */
+    public Mono<String> popForSet(String key) {
+        return reactiveStringRedisTemplate.opsForSet().pop(key);
+    }
+
+    /**
+     * 从 Redis Set 中pop元素
+     *
+     * @param    key
+     * @param    count
+     */
+    public Flux<String> popForSet(String key, long count) {
+        return reactiveStringRedisTemplate.opsForSet().pop(key, count);
+    }
+
+    /**
+     * 获取Redis Set中的所有元素
+     * 一次性读取所有元素，大set请使用 scanForSet
+     *
+     * @param key
+     */
+    public Flux<String> membersForSet(String key) {
+        return reactiveStringRedisTemplate.opsForSet().members(key);
+    }
+
+    /**
+     * 通过SSCAN流式获取set的所有元素
+     *
+     * @param key
+     */
+    public Flux<String> scanForSet(String key) {
+        return reactiveStringRedisTemplate.opsForSet().scan(key, scanOptions(null));
+    }
+
+    /**
+     * set中是否存在对应的成员
+     *
+     * @param key
+     * @param value
+     */
+    public Mono<Boolean> existMemberInSet(String key, String value) {
+        return reactiveStringRedisTemplate.opsForSet().isMember(key, value);
+    }
+
+    /**
+     * 从 Redis set 中移除元素
+     *
+     * @param key
+     * @param values
+     */
+    public Mono<Long> removeForSet(String key, Object... values) {
+        return reactiveStringRedisTemplate.opsForSet().remove(key, values);
+    }
+
+    /**
+     * 获取set成员数量
+     *
+     * @param key
+     */
+    public Mono<Long> sizeForSet(String key) {
+        return reactiveStringRedisTemplate.opsForSet().size(key);
+    }
+
+    /**
+     * 累加redis sort set 的数值
+     *
+     * @param    key  Redis key
+     * @param    value  需要累加的value -- 累加项
+     * @param    score  累加的数值 -- 分数
+     */
+    public Mono<Double> incrementScoreForZSet(String key, String value, double score) {
+        return reactiveStringRedisTemplate.opsForZSet().incrementScore(key, value, score);
+    }
+
+    /**
+     *  获取redis sort set的分值
+     *
+     * @param    key  Redis key
+     * @param    value  需要获取分数的value
+     */
+    public Mono<Double> getScoreForZSet(String key, String value) {
+        return reactiveStringRedisTemplate.opsForZSet().score(key, value);
+    }
+
+    /**
+     *  获取ZSet的 降序排名 -- 从大到小
+     *
+     * @param    key  Redis
+     * @param    value
+     */
+    public Mono<Long> getRankForZSet(String key, String value) {
+        return reactiveStringRedisTemplate.opsForZSet().reverseRank(key, value);
+    }
+
+    /**
+     * 从 Redis ZSet 中获取 start -- end
+     *
+     * @param    key  Redis key
+     * @param    start  区间开始  0开始
+     * @param    end  区间结束
+     * @return   Flux<TypedTuple<String>> value和score，按分数降序
+     */
+    public Flux<ZSetOperations.TypedTuple<String>> reverseRangeWithScoresForZSet(String key, long start, long end) {
+        return reactiveStringRedisTemplate.opsForZSet().reverseRangeWithScores(key, Range.closed(start, end));
+    }
+
+    /**
+     * 获取一定排名的value
+     *
+     * @param key  Redis key
+     * @param start  区间开始 0开始
+     * @param end  区间结束
+     */
+    public Flux<String> reverseRangeForZSet(String key, long start, long end) {
+        return reactiveStringRedisTemplate.opsForZSet().reverseRange(key, Range.closed(start, end));
+    }
+
+    /**
+     * 通过ZSCAN流式获取sort set的所有元素和分数
+     *
+     * @param key
+     */
+    public Flux<ZSetOperations.TypedTuple<String>> scanForZSet(String key) {
+        return reactiveStringRedisTemplate.opsForZSet().scan(key, scanOptions(null));
+    }
+
+    /**
+     * 从 Redis ZSet 中获取集合元素个数
+     *
+     * @param key
+     */
+    public Mono<Long> sizeForZSet(String key) {
+        return reactiveStringRedisTemplate.opsForZSet().size(key);
+    }
+
+    /**
+     * 通过SCAN流式获取匹配的key
+     * 按下游的请求量逐批拉取，不会阻塞Redis
+     *
+     * @param    pattern  需要匹配的key
+     */
+    public Flux<String> scanKeys(String pattern) {
+        return reactiveStringRedisTemplate.scan(scanOptions(pattern));
+    }
+
+    /**
+     * 从Redis 中删除key
+     *
+     * @param    keys  删除的Redis key
+     */
+    public Mono<Long> delete(String... keys) {
+        return reactiveStringRedisTemplate.delete(keys);
+    }
+
+    /**
+     * 获取scan的选项
+     *
+     * @param pattern
+     */
+    private ScanOptions scanOptions(String pattern) {
+        ScanOptions.ScanOptionsBuilder builder = ScanOptions.scanOptions();
+        if (operations.getScanCount() > 0) {
+            builder.count(operations.getScanCount());
+        }
+        if (pattern != null) {
+            builder.match(pattern);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 计算过期时间，配置了 ttlJitter 时增加随机的抖动
+     *
+     * @param timeout
+     * @param timeUnit
+     */
+    private Duration ttl(long timeout, TimeUnit timeUnit) {
+        return Duration.ofMillis(TtlUtils.jitter(timeout, timeUnit, operations.getTtlJitter()));
+    }
+
+    private ReactiveHashOperations<String, String, String> hashOperations() {
+        return reactiveStringRedisTemplate.opsForHash();
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.wpx.util;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @Author: 不会飞的小鹏
+ * @Description: Lua脚本注册表，每个数据源一个
+ * 脚本注册时计算SHA1，执行时使用EVALSHA，Redis返回NOSCRIPT时自动使用EVAL重新加载
+ */
+public class RedisScriptRegistry {
+
+    /**
+     * 自增并在key没有过期时间时设置过期时间
+     */
+    public static final String INCREMENT_TTL = "incrementTtl";
+
+    /**
+     * 保存hash键值对并设置过期时间
+     */
+    public static final String HASH_PUT_TTL = "hashPutTtl";
+
+    /**
+     * 值与期望值一致时删除key
+     */
+    public static final String COMPARE_AND_DELETE = "compareAndDelete";
+
+    /**
+     * 获取值并刷新过期时间
+     */
+    public static final String GET_AND_EXPIRE = "getAndExpire";
+
+    /**
+     * key不存在时加锁，加锁失败时返回锁的剩余过期时间
+     */
+    public static final String LOCK = "lock";
+
+    /**
+     * 值与期望值一致时删除锁并发布释放消息
+     */
+    public static final String UNLOCK = "unlock";
+
+    /**
+     * 值与期望值一致时延长锁的过期时间
+     */
+    public static final String RENEW_LOCK = "renewLock";
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final Map<String, RedisScript<?>> scripts = new ConcurrentHashMap<>();
+
+    public RedisScriptRegistry(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        register(INCREMENT_TTL, "local value = redis.call('INCRBY', KEYS[1], ARGV[1]) "
+                + "if redis.call('PTTL', KEYS[1]) < 0 then redis.call('PEXPIRE', KEYS[1], ARGV[2]) end "
+                + "return value", Long.class);
+        register(HASH_PUT_TTL, "local created = redis.call('HSET', KEYS[1], ARGV[1], ARGV[2]) "
+                + "redis.call('PEXPIRE', KEYS[1], ARGV[3]) "
+                + "return created", Long.class);
+        register(COMPARE_AND_DELETE, "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+                + "return redis.call('DEL', KEYS[1]) end "
+                + "return 0", Long.class);
+        register(GET_AND_EXPIRE, "local value = redis.call('GET', KEYS[1]) "
+                + "if value then redis.call('PEXPIRE', KEYS[1], ARGV[1]) end "
+                + "return value", String.class);
+        register(LOCK, "if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then return nil end "
+                + "return redis.call('PTTL', KEYS[1])", Long.class);
+        register(UNLOCK, "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+                + "redis.call('DEL', KEYS[1]) redis.call('PUBLISH', ARGV[2], KEYS[1]) return 1 end "
+                + "return 0", Long.class);
+        register(RENEW_LOCK, "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+                + "return redis.call('PEXPIRE', KEYS[1], ARGV[2]) end "
+                + "return 0", Long.class);
+    }
+
+    /**
+     * 注册脚本，同名脚本会被覆盖
+     *
+     * @param name  脚本名称
+     * @param script  Lua脚本
+     * @param resultType  脚本返回值类型 Long、Boolean、String、List
+     */
+    public <T> RedisScript<T> register(String name, String script, Class<T> resultType) {
+        RedisScript<T> redisScript = new DefaultRedisScript<>(script, resultType);
+        scripts.put(name, redisScript);
+        return redisScript;
+    }
+
+    /**
+     * 获取已注册的脚本
+     *
+     * @param name  脚本名称
+     */
+    @SuppressWarnings("unchecked")
+    public <T> RedisScript<T> getScript(String name) {
+        RedisScript<T> script = (RedisScript<T>) scripts.get(name);
+        if (script == null) {
+            throw new IllegalArgumentException("redis script [" + name + "] is not registered");
+        }
+        return script;
+    }
+
+    /**
+     * 执行已注册的脚本
+     * 集群模式下所有key需要在同一个hash slot
+     *
+     * @param name  脚本名称
+     * @param keys  脚本中的KEYS
+     * @param args  脚本中的ARGV
+     */
+    public <T> T execute(String name, List<String> keys, Object... args) {
+        RedisScript<T> script = getScript(name);
+        return stringRedisTemplate.execute(script, keys, args);
+    }
+
+    /**
+     * 通过指定的RedisTemplate执行已注册的脚本，ARGV和返回值使用该RedisTemplate的value序列化
+     *
+     * @param template  执行脚本的RedisTemplate
+     * @param name  脚本名称
+     * @param keys  脚本中的KEYS
+     * @param args  脚本中的ARGV
+     */
+    public <T> T execute(RedisTemplate<String, ?> template, String name, List<String> keys, Object... args) {
+        RedisScript<T> script = getScript(name);
+        return template.execute(script, keys, args);
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.wpx.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author: 不会飞的小鹏
+ * @Description: 过期时间的工具类
+ */
+public class TtlUtils {
+
+    private TtlUtils() {
+    }
+
+    /**
+     * 为过期时间增加随机的抖动，避免同时写入的key同时过期
+     *
+     * @param timeout  过期时间
+     * @param timeUnit  时间单位
+     * @param jitterPercent  抖动的百分比，在过期时间的基础上随机增加 [0, jitterPercent%]，小于等于0时不抖动
+     * @return long  抖动后的过期时间  单位为毫秒
+     */
+    public static long jitter(long timeout, TimeUnit timeUnit, int jitterPercent) {
+        long millis = timeUnit.toMillis(timeout);
+        if (jitterPercent <= 0 || millis <= 0) {
+            return millis;
+        }
+        long spread = millis * jitterPercent / 100;
+        return spread <= 0 ? millis : millis + ThreadLocalRandom.current().nextLong(spread + 1);
+    }
+
+}
@@ -0,0 +1,405 @@
+package com.wpx.codec;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.time.Year;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.temporal.Temporal;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @Author: 不会飞的小鹏
+ * @Description: BinaryValueCodec 的往返编解码
+ */
+class BinaryValueCodecTest {
+
+    private final BinaryValueCodec codec = new BinaryValueCodec();
+
+    public enum Status {
+        ACTIVE, DISABLED
+    }
+
+    public static class Item {
+
+        private String name;
+
+        private int count;
+
+        public Item() {
+        }
+
+        Item(String name, int count) {
+            this.name = name;
+            this.count = count;
+        }
+
+    }
+
+    public static class Order {
+
+        private long id;
+
+        private String title;
+
+        private boolean paid;
+
+        private Double amount;
+
+        private float rate;
+
+        private char grade;
+
+        private BigDecimal price;
+
+        private Status status;
+
+        private Date createdAt;
+
+        private LocalDateTime updatedAt;
+
+        private UUID token;
+
+        private byte[] payload;
+
+        private int[] scores;
+
+        private List<Item> items;
+
+        private Map<String, Item> itemMap;
+
+        private Set<String> tags;
+
+        private Item main;
+
+        private Map<String, Object> extra;
+
+        private transient String ignored;
+
+    }
+
+    public static class WithDuration {
+
+        public String name;
+
+        public Duration timeout;
+
+    }
+
+    public static class WithLocale {
+
+        public String name;
+
+        public Locale locale;
+
+    }
+
+    public static class WithInterfaceField {
+
+        public String name;
+
+        public Comparable<String> value;
+
+    }
+
+    public static class Key implements Comparable<String> {
+
+        public String key;
+
+        @Override
+        public int compareTo(String o) {
+            return key.compareTo(o);
+        }
+
+    }
+
+    public interface Shape {
+
+        double area();
+
+    }
+
+    public static class Circle implements Shape {
+
+        public double radius;
+
+        @Override
+        public double area() {
+            return Math.PI * radius * radius;
+        }
+
+    }
+
+    public static class ShapeList {
+
+        public List<Shape> shapes;
+
+    }
+
+    public static class ShapeMap {
+
+        public Map<String, Shape> shapes;
+
+    }
+
+    public static class CircleList {
+
+        public List<Circle> circles;
+
+    }
+
+    public static class WithYear {
+
+        public Year year;
+
+        public YearMonth month;
+
+        public MonthDay day;
+
+        public ZoneOffset offset;
+
+    }
+
+    public static class WithTemporal {
+
+        public Temporal date;
+
+    }
+
+    public static class NoDefaultConstructor {
+
+        private final String name;
+
+        public NoDefaultConstructor(String name) {
+            this.name = name;
+        }
+
+    }
+
+    private static Order newOrder() {
+        Order order = new Order();
+        order.id = 1234567890123L;
+        order.title = "订单-1";
+        order.paid = true;
+        order.amount = 99.5;
+        order.rate = 0.25f;
+        order.grade = 'A';
+        order.price = new BigDecimal("12.3400");
+        order.status = Status.DISABLED;
+        order.createdAt = new Date(1600000000000L);
+        order.updatedAt = LocalDateTime.of(2021, 8, 1, 12, 30, 15);
+        order.token = UUID.fromString("123e4567-e89b-12d3-a456-426614174000");
+        order.payload = new byte[]{1, 2, 3, (byte) 0xFF};
+        order.scores = new int[]{3, -1, 7};
+        order.items = Arrays.asList(new Item("a", 1), new Item("b", -2));
+        order.itemMap = new HashMap<>();
+        order.itemMap.put("x", new Item("x", 10));
+        order.tags = new HashSet<>(Arrays.asList("t1", "t2"));
+        order.main = new Item("main", 0);
+        order.extra = new LinkedHashMap<>();
+        order.extra.put("k", "v");
+        order.extra.put("n", 5L);
+        order.ignored = "ignored";
+        return order;
+    }
+
+    private static void assertOrder(Order expected, Order actual) {
+        assertEquals(expected.id, actual.id);
+        assertEquals(expected.title, actual.title);
+        assertEquals(expected.paid, actual.paid);
+        assertEquals(expected.amount, actual.amount);
+        assertEquals(expected.rate, actual.rate);
+        assertEquals(expected.grade, actual.grade);
+        assertEquals(expected.price, actual.price);
+        assertEquals(expected.status, actual.status);
+        assertEquals(expected.createdAt, actual.createdAt);
+        assertEquals(expected.updatedAt, actual.updatedAt);
+        assertEquals(expected.token, actual.token);
+        assertArrayEquals(expected.payload, actual.payload);
+        assertArrayEquals(expected.scores, actual.scores);
+        assertEquals(2, actual.items.size());
+        assertEquals("b", actual.items.get(1).name);
+        assertEquals(-2, actual.items.get(1).count);
+        assertEquals(10, actual.itemMap.get("x").count);
+        assertEquals(expected.tags, actual.tags);
+        assertEquals("main", actual.main.name);
+        assertEquals(expected.extra, actual.extra);
+        assertNull(actual.ignored);
+    }
+
+    @Test
+    void roundTripsObjectGraph() {
+        Order order = newOrder();
+        byte[] bytes = codec.encode(order);
+        assertEquals(BinaryValueCodec.MAGIC, bytes[0]);
+        assertOrder(order, codec.decode(bytes, Order.class));
+    }
+
+    @Test
+    void roundTripsList() {
+        List<Order> orders = Arrays.asList(newOrder(), newOrder());
+        byte[] bytes = codec.encode(orders);
+        List<Order> decoded = codec.decodeList(bytes, Order.class);
+        assertEquals(2, decoded.size());
+        assertOrder(orders.get(1), decoded.get(1));
+    }
+
+    @Test
+    void roundTripsScalars() {
+        assertEquals("文本", codec.decode(codec.encode("文本"), String.class));
+        assertEquals(Long.MIN_VALUE, codec.decode(codec.encode(Long.MIN_VALUE), Long.class));
+        assertEquals(-42, codec.decode(codec.encode(-42), Integer.class));
+        assertEquals(Status.ACTIVE, codec.decode(codec.encode(Status.ACTIVE), Status.class));
+    }
+
+    @Test
+    void skipsFieldsMissingFromTarget() {
+        Order order = newOrder();
+        Item item = codec.decode(codec.encode(order.main), Item.class);
+        assertEquals("main", item.name);
+        WithDuration unrelated = codec.decode(codec.encode(order), WithDuration.class);
+        assertNull(unrelated.name);
+    }
+
+    @Test
+    void decodesJsonValues() {
+        byte[] json = "{\"name\":\"json\",\"locale\":\"zh_CN\"}".getBytes(StandardCharsets.UTF_8);
+        WithLocale value = codec.decode(json, WithLocale.class);
+        assertEquals("json", value.name);
+        assertEquals(Locale.CHINA, value.locale);
+    }
+
+    @Test
+    void decodesHeapAndDirectBuffers() {
+        Order order = newOrder();
+        byte[] bytes = codec.encode(order);
+        byte[] padded = new byte[bytes.length + 6];
+        System.arraycopy(bytes, 0, padded, 3, bytes.length);
+        ByteBuffer heap = ByteBuffer.wrap(padded, 3, bytes.length);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        assertOrder(order, codec.decode(heap, Order.class));
+        assertOrder(order, codec.decode(direct, Order.class));
+        assertEquals(3, heap.position());
+        assertEquals(0, direct.position());
+    }
+
+    @Test
+    void fallsBackToJsonForJdkTypes() {
+        WithDuration withDuration = new WithDuration();
+        withDuration.name = "d";
+        withDuration.timeout = Duration.ofSeconds(90);
+        byte[] bytes = codec.encode(withDuration);
+        assertNotEquals(BinaryValueCodec.MAGIC, bytes[0]);
+        WithDuration decodedDuration = codec.decode(bytes, WithDuration.class);
+        assertEquals("d", decodedDuration.name);
+        assertEquals(Duration.ofSeconds(90), decodedDuration.timeout);
+
+        WithLocale withLocale = new WithLocale();
+        withLocale.name = "l";
+        withLocale.locale = Locale.CHINA;
+        bytes = codec.encode(withLocale);
+        assertNotEquals(BinaryValueCodec.MAGIC, bytes[0]);
+        WithLocale decodedLocale = codec.decode(bytes, WithLocale.class);
+        assertEquals("l", decodedLocale.name);
+        assertEquals(Locale.CHINA, decodedLocale.locale);
+    }
+
+    @Test
+    void fallsBackToJsonForInterfaceFields() {
+        Key key = new Key();
+        key.key = "k";
+        WithInterfaceField value = new WithInterfaceField();
+        value.name = "i";
+        value.value = key;
+        byte[] bytes = codec.encode(value);
+        assertNotEquals(BinaryValueCodec.MAGIC, bytes[0]);
+    }
+
+    private static Circle circle(double radius) {
+        Circle circle = new Circle();
+        circle.radius = radius;
+        return circle;
+    }
+
+    @Test
+    void fallsBackToJsonForInterfaceElements() {
+        ShapeList list = new ShapeList();
+        list.shapes = Collections.singletonList(circle(1));
+        byte[] bytes = codec.encode(list);
+        assertNotEquals(BinaryValueCodec.MAGIC, bytes[0]);
+        assertEquals(1, codec.decode(bytes, ShapeList.class).shapes.size());
+
+        ShapeMap map = new ShapeMap();
+        map.shapes = Collections.singletonMap("c", circle(2));
+        bytes = codec.encode(map);
+        assertNotEquals(BinaryValueCodec.MAGIC, bytes[0]);
+        assertEquals(1, codec.decode(bytes, ShapeMap.class).shapes.size());
+    }
+
+    @Test
+    void fallsBackToJsonForTopLevelImplementations() {
+        byte[] bytes = codec.encode(Arrays.asList(circle(1), circle(2)));
+        assertNotEquals(BinaryValueCodec.MAGIC, bytes[0]);
+        assertEquals(2, codec.decodeList(bytes, Shape.class).size());
+        assertNotEquals(BinaryValueCodec.MAGIC, codec.encode(circle(3))[0]);
+    }
+
+    @Test
+    void keepsBinaryForConcreteElements() {
+        CircleList list = new CircleList();
+        list.circles = Arrays.asList(circle(1), circle(2));
+        byte[] bytes = codec.encode(list);
+        assertEquals(BinaryValueCodec.MAGIC, bytes[0]);
+        assertEquals(2.0, codec.decode(bytes, CircleList.class).circles.get(1).radius);
+    }
+
+    @Test
+    void roundTripsTemporalStrings() {
+        WithYear value = new WithYear();
+        value.year = Year.of(2021);
+        value.month = YearMonth.of(2021, 8);
+        value.day = MonthDay.of(8, 1);
+        value.offset = ZoneOffset.ofHours(8);
+        byte[] bytes = codec.encode(value);
+        assertEquals(BinaryValueCodec.MAGIC, bytes[0]);
+        WithYear decoded = codec.decode(bytes, WithYear.class);
+        assertEquals(value.year, decoded.year);
+        assertEquals(value.month, decoded.month);
+        assertEquals(value.day, decoded.day);
+        assertEquals(value.offset, decoded.offset);
+    }
+
+    @Test
+    void fallsBackToJsonForTemporalSupertypes() {
+        WithTemporal withTemporal = new WithTemporal();
+        withTemporal.date = LocalDate.of(2021, 8, 1);
+        assertNotEquals(BinaryValueCodec.MAGIC, codec.encode(withTemporal)[0]);
+    }
+
+    @Test
+    void fallsBackToJsonWithoutNoArgConstructor() {
+        byte[] bytes = codec.encode(new NoDefaultConstructor("n"));
+        assertNotEquals(BinaryValueCodec.MAGIC, bytes[0]);
+    }
+
+    @Test
+    void rejectsTruncatedValues() {
+        byte[] bytes = codec.encode(newOrder());
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 5);
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(truncated, Order.class));
+        ByteBuffer direct = ByteBuffer.allocateDirect(truncated.length);
+        direct.put(truncated).flip();
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(direct, Order.class));
+    }
+
+}
@@ -0,0 +1,161 @@
+package com.wpx.codec;
+
+import com.wpx.property.RedisMessageProperties;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @Author: 不会飞的小鹏
+ * @Description: CompressingValueCodec 的压缩格式和解码
+ */
+class CompressingValueCodecTest {
+
+    public static class Doc {
+
+        public String name;
+
+        public int index;
+
+        public List<String> tags = new ArrayList<>();
+
+    }
+
+    private static List<Doc> docs(int count) {
+        List<Doc> docs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Doc doc = new Doc();
+            doc.name = "document-" + i;
+            doc.index = i;
+            doc.tags.add("alpha");
+            doc.tags.add("beta-" + (i % 7));
+            docs.add(doc);
+        }
+        return docs;
+    }
+
+    @Test
+    void keepsSmallValuesUncompressed() {
+        CompressingValueCodec codec = new CompressingValueCodec(JsonValueCodec.INSTANCE, 1024, -1);
+        Doc doc = docs(1).get(0);
+        assertArrayEquals(JsonValueCodec.INSTANCE.encode(doc), codec.encode(doc));
+    }
+
+    @Test
+    void compressesLargeValues() {
+        CompressingValueCodec codec = new CompressingValueCodec(JsonValueCodec.INSTANCE, 1024, -1);
+        List<Doc> docs = docs(2000);
+        byte[] plain = JsonValueCodec.INSTANCE.encode(docs);
+        byte[] compressed = codec.encode(docs);
+        assertEquals(CompressingValueCodec.DEFLATE, compressed[0]);
+        assertTrue(compressed.length < plain.length / 4);
+        List<Doc> decoded = codec.decodeList(compressed, Doc.class);
+        assertEquals(2000, decoded.size());
+        assertEquals("document-1999", decoded.get(1999).name);
+        assertEquals("beta-4", decoded.get(4).tags.get(1));
+        assertEquals(2000, codec.decodeList(plain, Doc.class).size());
+    }
+
+    @Test
+    void keepsIncompressibleValuesAsIs() {
+        CompressingValueCodec codec = new CompressingValueCodec(new BinaryValueCodec(), 16, 9);
+        byte[] random = new byte[4096];
+        ThreadLocalRandom.current().nextBytes(random);
+        byte[] encoded = codec.encode(random);
+        assertEquals(BinaryValueCodec.MAGIC, encoded[0]);
+        assertArrayEquals(random, codec.decode(encoded, byte[].class));
+    }
+
+    @Test
+    void decodesBuffers() {
+        CompressingValueCodec codec = new CompressingValueCodec(new BinaryValueCodec(), 256, -1);
+        for (List<Doc> docs : new ArrayList<List<Doc>>() {{
+            add(docs(1));
+            add(docs(500));
+        }}) {
+            byte[] bytes = codec.encode(docs);
+            ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+            direct.put(bytes).flip();
+            List<Doc> decoded = codec.decodeList(direct, Doc.class);
+            assertEquals(docs.size(), decoded.size());
+            assertEquals(docs.get(docs.size() - 1).name, decoded.get(decoded.size() - 1).name);
+            assertEquals(0, direct.position());
+        }
+    }
+
+    @Test
+    void usesPresetDictionary() {
+        List<Doc> docs = docs(200);
+        List<byte[]> samples = new ArrayList<>();
+        for (Doc doc : docs) {
+            samples.add(JsonValueCodec.INSTANCE.encode(doc));
+        }
+        byte[] dictionary = CompressingValueCodec.trainDictionary(samples, 4096);
+        assertTrue(dictionary.length > 0 && dictionary.length <= 4096);
+        // 字典中不应有重复的片段，错位的重叠片段只会占用字典空间
+        Set<String> windows = new HashSet<>();
+        for (int i = 0; i + 12 <= dictionary.length; i++) {
+            assertTrue(windows.add(new String(dictionary, i, 12, StandardCharsets.ISO_8859_1)), "duplicate segment at " + i);
+        }
+
+        CompressingValueCodec withDictionary = new CompressingValueCodec(JsonValueCodec.INSTANCE, 32, 9, dictionary);
+        CompressingValueCodec withoutDictionary = new CompressingValueCodec(JsonValueCodec.INSTANCE, 32, 9);
+        Doc doc = docs.get(123);
+        byte[] compressed = withDictionary.encode(doc);
+        assertEquals(CompressingValueCodec.DEFLATE_DICTIONARY, compressed[0]);
+        // 小值没有字典时压缩不了，字典中的内容应当能被引用
+        byte[] plain = JsonValueCodec.INSTANCE.encode(doc);
+        assertArrayEquals(plain, withoutDictionary.encode(doc));
+        assertTrue(compressed.length * 3 < plain.length * 2);
+        assertEquals("document-123", withDictionary.decode(compressed, Doc.class).name);
+        assertThrows(IllegalArgumentException.class, () -> withoutDictionary.decode(compressed, Doc.class));
+    }
+
+    @Test
+    void readsCompressedValuesWhenDisabled() {
+        RedisMessageProperties.Codec properties = new RedisMessageProperties.Codec();
+        properties.getCompression().setEnabled(true);
+        properties.getCompression().setThreshold(256);
+        ValueCodec enabled = ValueCodecs.create(properties);
+        properties.getCompression().setEnabled(false);
+        ValueCodec disabled = ValueCodecs.create(properties);
+
+        List<Doc> docs = docs(500);
+        byte[] compressed = enabled.encode(docs);
+        assertEquals(CompressingValueCodec.DEFLATE, compressed[0]);
+        assertArrayEquals(JsonValueCodec.INSTANCE.encode(docs), disabled.encode(docs));
+        assertEquals(500, disabled.decodeList(compressed, Doc.class).size());
+    }
+
+    @Test
+    void rejectsTruncatedValues() {
+        CompressingValueCodec codec = new CompressingValueCodec(JsonValueCodec.INSTANCE, 256, -1);
+        byte[] compressed = codec.encode(docs(500));
+        byte[] truncated = new byte[compressed.length / 2];
+        System.arraycopy(compressed, 0, truncated, 0, truncated.length);
+        assertThrows(IllegalArgumentException.class, () -> codec.decodeList(truncated, Doc.class));
+    }
+
+    @Test
+    void rejectsForgedLengths() {
+        CompressingValueCodec codec = new CompressingValueCodec(JsonValueCodec.INSTANCE, 256, -1);
+        byte[] forged = {CompressingValueCodec.DEFLATE, 0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x03, 0x00};
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> codec.decode(forged, Doc.class));
+        assertTrue(e.getMessage().startsWith("invalid compressed length"));
+
+        // 最大压缩率以内的长度可以正常解压
+        byte[] zeros = new byte[1 << 20];
+        byte[] compressed = new CompressingValueCodec(new BinaryValueCodec(), 16, 9).encode(zeros);
+        assertEquals(CompressingValueCodec.DEFLATE, compressed[0]);
+        assertArrayEquals(zeros, new CompressingValueCodec(new BinaryValueCodec(), 16, 9).decode(compressed, byte[].class));
+    }
+
+}
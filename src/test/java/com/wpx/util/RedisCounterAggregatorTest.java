@@ -0,0 +1,84 @@
+package com.wpx.util;
+
+import com.wpx.property.RedisMessageProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @Author: 不会飞的小鹏
+ * @Description: Redis不可用时RedisCounterAggregator的写入失败处理
+ */
+class RedisCounterAggregatorTest {
+
+    private LettuceConnectionFactory connectionFactory;
+
+    private RedisCacheUtils redisCacheUtils;
+
+    @BeforeEach
+    void setUp() {
+        // 没有服务监听的端口，连接立即被拒绝
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", 1));
+        connectionFactory.afterPropertiesSet();
+        redisCacheUtils = new RedisCacheUtils(new StringRedisTemplate(connectionFactory));
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void keepsCountersWhenClosingWhileRedisIsDown() {
+        RedisMessageProperties.Counter properties = new RedisMessageProperties.Counter();
+        properties.setFlushInterval(Duration.ofMinutes(1));
+        RedisCounterAggregator aggregator = new RedisCounterAggregator(redisCacheUtils, properties);
+        aggregator.incrementForValue("counter", 1);
+        aggregator.incrementForHash("counter:hash", "field", 2);
+
+        aggregator.close();
+        assertEquals(1, aggregator.getFailedFlushCount());
+        assertEquals(0, aggregator.getFlushCount());
+        assertEquals(2, aggregator.getPendingCount());
+        assertEquals(3, aggregator.getPendingDelta());
+
+        // 写入失败后的 flushInterval 内，关闭后的累加只保留在本地
+        aggregator.incrementForValue("counter", 4);
+        assertEquals(7, aggregator.getPendingDelta());
+        assertEquals(1, aggregator.getFailedFlushCount());
+    }
+
+    @Test
+    void backsOffAfterFailedThresholdFlush() throws InterruptedException {
+        RedisMessageProperties.Counter properties = new RedisMessageProperties.Counter();
+        properties.setFlushInterval(Duration.ofMinutes(1));
+        properties.setFlushThreshold(1);
+        RedisCounterAggregator aggregator = new RedisCounterAggregator(redisCacheUtils, properties);
+        try {
+            aggregator.incrementForValue("counter", 1);
+            long deadline = System.currentTimeMillis() + 10000;
+            while (aggregator.getFailedFlushCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, aggregator.getFailedFlushCount());
+
+            // 失败的累加值仍超过阈值，退避期间不再提前写入
+            for (int i = 0; i < 100; i++) {
+                aggregator.incrementForValue("counter:" + i, 1);
+            }
+            Thread.sleep(300);
+            assertEquals(1, aggregator.getFailedFlushCount());
+            assertEquals(101, aggregator.getPendingDelta());
+        } finally {
+            aggregator.close();
+        }
+    }
+
+}
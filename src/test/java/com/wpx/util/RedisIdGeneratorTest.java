@@ -0,0 +1,48 @@
+package com.wpx.util;
+
+import com.wpx.property.RedisMessageProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @Author: 不会飞的小鹏
+ * @Description: RedisIdGenerator 关闭后的号段切换
+ */
+class RedisIdGeneratorTest {
+
+    @Test
+    void fetchesSegmentsSynchronouslyAfterClose() {
+        AtomicLong counter = new AtomicLong();
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", 1));
+        connectionFactory.afterPropertiesSet();
+        RedisCacheUtils redisCacheUtils = new RedisCacheUtils(new StringRedisTemplate(connectionFactory)) {
+            @Override
+            public Long incrementForValue(String key, Long delta) {
+                return counter.addAndGet(delta);
+            }
+        };
+        RedisMessageProperties.IdGenerator properties = new RedisMessageProperties.IdGenerator();
+        properties.setSegmentSize(10);
+        properties.setPrefetchPercent(50);
+        RedisIdGenerator idGenerator = new RedisIdGenerator(redisCacheUtils, properties);
+        // 分配到第5个ID时开始预取下一个号段
+        for (long expected = 1; expected <= 5; expected++) {
+            assertEquals(expected, idGenerator.nextId("id"));
+        }
+        idGenerator.close();
+
+        // 关闭后到达预取位置时不再预取，已分配的ID不会丢失
+        for (long expected = 6; expected <= 35; expected++) {
+            assertEquals(expected, idGenerator.nextId("id"));
+        }
+        assertEquals(40, counter.get());
+        connectionFactory.destroy();
+    }
+
+}